@@ -0,0 +1,294 @@
+package net.researchgate.restdsl.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import net.researchgate.restdsl.dao.EntityFieldMapper;
+import net.researchgate.restdsl.metrics.MetricName;
+import net.researchgate.restdsl.metrics.MetricSink;
+import net.researchgate.restdsl.metrics.NoOpMetricSink;
+import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.EntityResult;
+import net.researchgate.restdsl.results.StreamingEntityList;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caches query results by {@link ServiceQuery#getCacheKey()}.
+ * <ul>
+ *     <li>The cache is bounded by the number of cached entities, every entry weighs at least 1.
+ *     Results with more entities than the maximum entry weight are not cached.</li>
+ *     <li>Entries expire after the ttl of their query, see {@link net.researchgate.restdsl.queries.ServiceQueryParams#getResultCacheTtl()},
+ *     or the default ttl of the cache.</li>
+ *     <li>A result is only admitted if the same query was seen before within the admission window, so that queries
+ *     which never repeat do not evict the ones that do.</li>
+ *     <li>{@link #invalidate(Collection)} drops entries that contain or were queried by one of the written ids, and all
+ *     entries if the ids are unknown. Entities that start matching the criteria of a cached query show up after the ttl.</li>
+ * </ul>
+ * Cached entities are shared between callers and must not be modified.
+ *
+ * @param <V> Type of the entity
+ * @param <K> Type of the entity's id field
+ */
+public class QueryResultCache<V, K> {
+    public static final String RESULT_CACHE_METRIC = "restler_result_cache";
+
+    private final Cache<List<Object>, Entry<V, K>> entries;
+    private final Cache<List<Object>, Boolean> doorkeeper;
+    // keys of the entries containing an entity, to invalidate them by id
+    private final SetMultimap<K, List<Object>> keysById = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    // incremented by every invalidation, results loaded across an invalidation are not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Duration defaultTtl;
+    private final Duration maximumTtl;
+    private final int maximumEntryWeight;
+    private final EntityFieldMapper entityMapper;
+    private final MetricSink metricSink;
+    private final String name;
+
+    private QueryResultCache(Builder builder, EntityFieldMapper entityMapper) {
+        this.defaultTtl = builder.defaultTtl;
+        this.maximumTtl = builder.maximumTtl;
+        this.maximumEntryWeight = builder.maximumEntryWeight;
+        this.entityMapper = entityMapper;
+        this.metricSink = builder.metricSink;
+        this.name = builder.name;
+        this.entries = CacheBuilder.newBuilder()
+                .maximumWeight(builder.maximumWeight)
+                .<List<Object>, Entry<V, K>>weigher((key, entry) -> entry.weight)
+                .expireAfterWrite(builder.maximumTtl)
+                .removalListener(this::onRemoval)
+                .build();
+        this.doorkeeper = builder.admissionWindowSize > 0
+                ? CacheBuilder.newBuilder()
+                        .maximumSize(builder.admissionWindowSize)
+                        .expireAfterWrite(builder.admissionWindow)
+                        .build()
+                : null;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the cached result of the query, or the result of the loader, which is cached if the query is admitted
+     */
+    public EntityResult<V> get(ServiceQuery<K> query, Function<ServiceQuery<K>, EntityResult<V>> loader) {
+        Duration ttl = getTtl(query);
+        if (ttl.isZero() || ttl.isNegative()) {
+            return loader.apply(query);
+        }
+
+        List<Object> key = query.getCacheKey();
+        Entry<V, K> entry = entries.getIfPresent(key);
+        if (entry != null) {
+            if (entry.expiresAtNanos - System.nanoTime() > 0) {
+                report("hit");
+                return entry.result;
+            }
+            entries.asMap().remove(key, entry);
+        }
+        report("miss");
+
+        long generationBeforeLoad = generation.get();
+        long expiresAtNanos = System.nanoTime() + ttl.toNanos();
+        EntityResult<V> result = loader.apply(query);
+        if (result.getList() instanceof StreamingEntityList || !admit(key)) {
+            return result;
+        }
+
+        int entities = Iterables.size(result);
+        if (entities >= maximumEntryWeight) {
+            return result;
+        }
+        Entry<V, K> loaded = new Entry<>(result, expiresAtNanos, entities + 1, getIds(query, result));
+        if (entries.asMap().putIfAbsent(key, loaded) == null) {
+            for (K id : loaded.ids) {
+                keysById.put(id, key);
+            }
+            if (generation.get() != generationBeforeLoad) {
+                // written meanwhile, the result may be outdated
+                entries.asMap().remove(key, loaded);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops the entries affected by a write
+     *
+     * @param ids ids of the written entities, null to drop all entries
+     */
+    public void invalidate(Collection<K> ids) {
+        generation.incrementAndGet();
+        if (ids == null) {
+            entries.invalidateAll();
+            return;
+        }
+        List<List<Object>> keys = new ArrayList<>();
+        synchronized (keysById) {
+            for (K id : ids) {
+                keys.addAll(keysById.get(id));
+            }
+        }
+        entries.invalidateAll(keys);
+    }
+
+    public void invalidateAll() {
+        invalidate(null);
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    private Duration getTtl(ServiceQuery<K> query) {
+        Duration ttl = query.getResultCacheTtl() != null ? query.getResultCacheTtl() : defaultTtl;
+        return ttl.compareTo(maximumTtl) > 0 ? maximumTtl : ttl;
+    }
+
+    private boolean admit(List<Object> key) {
+        if (doorkeeper == null) {
+            return true;
+        }
+        Map<List<Object>, Boolean> seen = doorkeeper.asMap();
+        if (seen.remove(key) != null) {
+            return true;
+        }
+        seen.put(key, Boolean.TRUE);
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<K> getIds(ServiceQuery<K> query, EntityResult<V> result) {
+        Set<K> ids = new HashSet<>();
+        if (query.getIdList() != null) {
+            ids.addAll(query.getIdList());
+        }
+        for (V entity : result) {
+            K id = (K) entityMapper.getIdValue(entity.getClass(), entity);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private void onRemoval(RemovalNotification<List<Object>, Entry<V, K>> notification) {
+        Entry<V, K> entry = notification.getValue();
+        if (entry != null) {
+            for (K id : entry.ids) {
+                keysById.remove(id, notification.getKey());
+            }
+        }
+    }
+
+    private void report(String result) {
+        metricSink.increment(new MetricName(RESULT_CACHE_METRIC, Map.of("cacheName", name, "result", result)), 1);
+    }
+
+    private static final class Entry<V, K> {
+        private final EntityResult<V> result;
+        private final long expiresAtNanos;
+        private final int weight;
+        private final Set<K> ids;
+
+        private Entry(EntityResult<V> result, long expiresAtNanos, int weight, Set<K> ids) {
+            this.result = result;
+            this.expiresAtNanos = expiresAtNanos;
+            this.weight = weight;
+            this.ids = ids;
+        }
+    }
+
+    public static class Builder {
+        private long maximumWeight = 100_000;
+        private int maximumEntryWeight = 1_000;
+        private Duration defaultTtl = Duration.ofSeconds(10);
+        private Duration maximumTtl = Duration.ofMinutes(10);
+        private long admissionWindowSize = 10_000;
+        private Duration admissionWindow = Duration.ofMinutes(1);
+        private MetricSink metricSink = NoOpMetricSink.INSTANCE;
+        private String name = "default";
+
+        private Builder() {
+        }
+
+        /**
+         * @param maximumWeight maximum number of cached entities
+         */
+        public Builder maximumWeight(long maximumWeight) {
+            Preconditions.checkArgument(maximumWeight > 0, "maximumWeight must be positive");
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * @param maximumEntryWeight results with at least that many entities are not cached
+         */
+        public Builder maximumEntryWeight(int maximumEntryWeight) {
+            Preconditions.checkArgument(maximumEntryWeight > 0, "maximumEntryWeight must be positive");
+            this.maximumEntryWeight = maximumEntryWeight;
+            return this;
+        }
+
+        /**
+         * @param defaultTtl ttl of queries without a ttl of their own; zero disables caching for them
+         */
+        public Builder defaultTtl(Duration defaultTtl) {
+            this.defaultTtl = Preconditions.checkNotNull(defaultTtl);
+            return this;
+        }
+
+        /**
+         * @param maximumTtl upper bound for the ttl of any entry
+         */
+        public Builder maximumTtl(Duration maximumTtl) {
+            Preconditions.checkArgument(!maximumTtl.isNegative() && !maximumTtl.isZero(), "maximumTtl must be positive");
+            this.maximumTtl = maximumTtl;
+            return this;
+        }
+
+        /**
+         * A result is admitted when its query was seen before within the window. Size 0 admits every result.
+         *
+         * @param size   number of recently seen queries to remember
+         * @param window how long a seen query is remembered
+         */
+        public Builder admissionWindow(long size, Duration window) {
+            Preconditions.checkArgument(size >= 0, "size must not be negative");
+            this.admissionWindowSize = size;
+            this.admissionWindow = Preconditions.checkNotNull(window);
+            return this;
+        }
+
+        /**
+         * @param metricSink receives hits and misses
+         * @param name       value of the 'cacheName' label
+         */
+        public Builder metricSink(MetricSink metricSink, String name) {
+            this.metricSink = Preconditions.checkNotNull(metricSink);
+            this.name = Preconditions.checkNotNull(name);
+            return this;
+        }
+
+        public <V, K> QueryResultCache<V, K> build(EntityFieldMapper entityMapper) {
+            return new QueryResultCache<>(this, entityMapper);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package net.researchgate.restdsl.dao;
+
+import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.EntityResult;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking counterpart of {@link PersistentServiceDao}. Operations return right away, their stages complete
+ * when the database answered, so no thread waits for the database in between.
+ * Failures complete the stages exceptionally with the same exceptions the blocking dao would throw.
+ *
+ * @param <V> value entity
+ * @param <K> primary key of the value entity
+ */
+public interface AsyncServiceDao<V, K> {
+
+    CompletionStage<EntityResult<V>> get(ServiceQuery<K> serviceQuery);
+
+    CompletionStage<V> getOne(ServiceQuery<K> serviceQuery);
+
+    CompletionStage<Long> count(ServiceQuery<K> serviceQuery);
+
+    /**
+     * @param entity entity to be saved
+     * @return stage of the entity with possibly augmented/modified values that ended up in the storage
+     */
+    CompletionStage<V> save(V entity);
+
+    CompletionStage<V> patch(ServiceQuery<K> q, Map<String, Object> patchedFields);
+
+    /**
+     * @return stage of the number of deleted entries
+     */
+    CompletionStage<Integer> delete(ServiceQuery<K> serviceQuery);
+
+    EntityFieldMapper getEntityMapper();
+
+}
@@ -21,4 +21,10 @@ public interface BaseServiceDao<V, K> extends ServiceDao<V, K> {
      */
     int delete(K id);
 
+    /**
+     * Registers a listener that is notified after writes through this dao. Daos that cannot notify about writes ignore it.
+     */
+    default void addWriteListener(EntityWriteListener<K> listener) {
+    }
+
 }
@@ -0,0 +1,220 @@
+package net.researchgate.restdsl.dao;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import dev.morphia.mapping.Mapper;
+import dev.morphia.mapping.codec.pojo.EntityModel;
+import dev.morphia.mapping.codec.pojo.PropertyModel;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes stored documents of an entity straight to JSON, in the shape Jackson would give the decoded entity, without
+ * creating the entity. Mongo field names are translated to the java names of the entity and its embedded types,
+ * fields without a mapped property, e.g. the discriminator, are left out. Values of map properties are written as stored.
+ * <p>
+ * Jackson annotations of the entity are not applied: values are written by {@link BsonValueWriter}s, which can be
+ * set per field path and per BSON type. By default ObjectIds are written as hex strings and dates as epoch millis.
+ */
+public class BsonJsonTranscoder {
+    // values of properties without an entity model, e.g. maps: names are kept and no writers apply
+    private static final Node PASS_THROUGH = new Node(null, null, null);
+
+    private final Mapper mapper;
+    private final Map<BsonType, BsonValueWriter> typeWriters;
+    private final Map<String, BsonValueWriter> fieldWriters;
+    private final Node root;
+
+    private BsonJsonTranscoder(Builder builder) {
+        this.mapper = builder.mapper;
+        this.typeWriters = new EnumMap<>(builder.typeWriters);
+        this.fieldWriters = new HashMap<>(builder.fieldWriters);
+        this.root = new Node(null, null, mapper.getEntityModel(builder.entityClazz));
+    }
+
+    public static Builder builder(Mapper mapper, Class<?> entityClazz) {
+        return new Builder(mapper, entityClazz);
+    }
+
+    public void write(RawBsonDocument document, JsonGenerator gen) throws IOException {
+        try (BsonReader reader = document.asBsonReader()) {
+            writeDocument(reader, gen, root, "");
+        }
+    }
+
+    private void writeDocument(BsonReader reader, JsonGenerator gen, Node node, String path) throws IOException {
+        reader.readStartDocument();
+        gen.writeStartObject();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (node.model == null) {
+                gen.writeFieldName(name);
+                writeValue(reader, gen, PASS_THROUGH, path);
+                continue;
+            }
+            Node child = node.getProperties(this, path).get(name);
+            if (child == null) {
+                reader.skipValue();
+                continue;
+            }
+            gen.writeFieldName(child.javaName);
+            writeValue(reader, gen, child, path.isEmpty() ? child.javaName : path + "." + child.javaName);
+        }
+        reader.readEndDocument();
+        gen.writeEndObject();
+    }
+
+    private void writeValue(BsonReader reader, JsonGenerator gen, Node node, String path) throws IOException {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.NULL) {
+            reader.readNull();
+            gen.writeNull();
+            return;
+        }
+        if (type == BsonType.ARRAY) {
+            reader.readStartArray();
+            gen.writeStartArray();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                writeValue(reader, gen, node, path);
+            }
+            reader.readEndArray();
+            gen.writeEndArray();
+            return;
+        }
+        BsonValueWriter writer = node.writer != null ? node.writer : typeWriters.get(type);
+        if (writer != null) {
+            writer.write(reader, gen);
+            return;
+        }
+        switch (type) {
+            case DOCUMENT:
+                writeDocument(reader, gen, node, path);
+                break;
+            case DOUBLE:
+                gen.writeNumber(reader.readDouble());
+                break;
+            case STRING:
+                gen.writeString(reader.readString());
+                break;
+            case BINARY:
+                gen.writeString(Base64.getEncoder().encodeToString(reader.readBinaryData().getData()));
+                break;
+            case BOOLEAN:
+                gen.writeBoolean(reader.readBoolean());
+                break;
+            case INT32:
+                gen.writeNumber(reader.readInt32());
+                break;
+            case INT64:
+                gen.writeNumber(reader.readInt64());
+                break;
+            case DECIMAL128:
+                gen.writeNumber(reader.readDecimal128().bigDecimalValue());
+                break;
+            case OBJECT_ID:
+                gen.writeString(reader.readObjectId().toHexString());
+                break;
+            case DATE_TIME:
+                gen.writeNumber(reader.readDateTime());
+                break;
+            case TIMESTAMP:
+                gen.writeNumber(reader.readTimestamp().getValue());
+                break;
+            case SYMBOL:
+                gen.writeString(reader.readSymbol());
+                break;
+            case JAVASCRIPT:
+                gen.writeString(reader.readJavaScript());
+                break;
+            case REGULAR_EXPRESSION:
+                gen.writeString(reader.readRegularExpression().getPattern());
+                break;
+            default:
+                // undefined, min and max keys and other types without a JSON counterpart
+                reader.skipValue();
+                gen.writeNull();
+                break;
+        }
+    }
+
+    private EntityModel getEntityModel(PropertyModel property) {
+        if (Map.class.isAssignableFrom(property.getType())) {
+            return null;
+        }
+        Class<?> type = property.getNormalizedType();
+        return mapper.isMappable(type) ? mapper.getEntityModel(type) : null;
+    }
+
+    // a property of the entity or of an embedded type; its properties are resolved on first use
+    private static final class Node {
+        private final String javaName;
+        private final BsonValueWriter writer;
+        private final EntityModel model;
+        private volatile Map<String, Node> properties;
+
+        private Node(String javaName, BsonValueWriter writer, EntityModel model) {
+            this.javaName = javaName;
+            this.writer = writer;
+            this.model = model;
+        }
+
+        // by mongo field name
+        private Map<String, Node> getProperties(BsonJsonTranscoder transcoder, String path) {
+            Map<String, Node> result = properties;
+            if (result == null) {
+                result = new HashMap<>();
+                for (PropertyModel property : model.getProperties()) {
+                    String propertyPath = path.isEmpty() ? property.getName() : path + "." + property.getName();
+                    result.put(property.getMappedName(), new Node(property.getName(),
+                            transcoder.fieldWriters.get(propertyPath), transcoder.getEntityModel(property)));
+                }
+                result = Collections.unmodifiableMap(result);
+                properties = result;
+            }
+            return result;
+        }
+    }
+
+    public static class Builder {
+        private final Mapper mapper;
+        private final Class<?> entityClazz;
+        private final Map<BsonType, BsonValueWriter> typeWriters = new EnumMap<>(BsonType.class);
+        private final Map<String, BsonValueWriter> fieldWriters = new HashMap<>();
+
+        private Builder(Mapper mapper, Class<?> entityClazz) {
+            this.mapper = mapper;
+            this.entityClazz = entityClazz;
+            typeWriters.put(BsonType.OBJECT_ID, BsonValueWriter.OBJECT_ID_HEX);
+            typeWriters.put(BsonType.DATE_TIME, BsonValueWriter.DATE_EPOCH_MILLIS);
+        }
+
+        /**
+         * Writes all values of the type with the writer, unless a field writer applies
+         */
+        public Builder typeWriter(BsonType type, BsonValueWriter writer) {
+            typeWriters.put(type, writer);
+            return this;
+        }
+
+        /**
+         * Writes the values of the field with the writer, for arrays each element
+         *
+         * @param path java field path, e.g. 'stats.createdAt'
+         */
+        public Builder fieldWriter(String path, BsonValueWriter writer) {
+            fieldWriters.put(path, writer);
+            return this;
+        }
+
+        public BsonJsonTranscoder build() {
+            return new BsonJsonTranscoder(this);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package net.researchgate.restdsl.dao;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.bson.BsonReader;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Writes a single BSON value as JSON, see {@link BsonJsonTranscoder}. Null values never reach a writer.
+ */
+@FunctionalInterface
+public interface BsonValueWriter {
+
+    /**
+     * Writes ObjectIds as hex strings
+     */
+    BsonValueWriter OBJECT_ID_HEX = (reader, gen) -> gen.writeString(reader.readObjectId().toHexString());
+
+    /**
+     * Writes dates as milliseconds since the epoch, like Jackson does for {@link Date} by default
+     */
+    BsonValueWriter DATE_EPOCH_MILLIS = (reader, gen) -> gen.writeNumber(reader.readDateTime());
+
+    /**
+     * Reads the current value of the reader and writes it to the generator
+     */
+    void write(BsonReader reader, JsonGenerator gen) throws IOException;
+
+    /**
+     * @param pattern {@link DateTimeFormatter} pattern, e.g. "yyyy-MM-dd'T'HH:mm:ss.SSSXXX" for RFC 3339
+     * @return writer of dates as strings in the given format, in UTC
+     */
+    static BsonValueWriter formattedDate(String pattern) {
+        return formattedDate(pattern, ZoneOffset.UTC);
+    }
+
+    /**
+     * @param pattern {@link DateTimeFormatter} pattern, e.g. "yyyy-MM-dd'T'HH:mm:ss.SSSXXX" for RFC 3339
+     * @param zone    time zone the dates are written in
+     * @return writer of dates as strings in the given format
+     */
+    static BsonValueWriter formattedDate(String pattern, ZoneId zone) {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern(pattern).withZone(zone);
+        return (reader, gen) -> gen.writeString(format.format(Instant.ofEpochMilli(reader.readDateTime())));
+    }
+}
@@ -0,0 +1,119 @@
+package net.researchgate.restdsl.dao;
+
+import com.google.common.base.Throwables;
+import net.researchgate.restdsl.exceptions.RestDslException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects lookups by id that arrive within a short window into one query for all their ids.
+ * The first caller of a batch waits for the window and then runs the query for everybody, the caller that fills
+ * a batch runs it right away. No threads besides the callers' are involved.
+ *
+ * @param <V> Type of the entity
+ * @param <K> Type of the entity's id field
+ */
+public class ByIdBatchLoader<V, K> {
+    private final Function<Collection<K>, Map<K, V>> batchQuery;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    // batch that new lookups join, guarded by this
+    private Batch<V, K> current;
+
+    /**
+     * @param batchQuery   loads the entities of all given ids, by id; missing entities are left out
+     * @param window       how long the first lookup of a batch waits for others to join
+     * @param maxBatchSize number of ids after which a batch is loaded without waiting for the window to pass
+     */
+    public ByIdBatchLoader(Function<Collection<K>, Map<K, V>> batchQuery, Duration window, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, but was " + maxBatchSize);
+        }
+        this.batchQuery = batchQuery;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @return the entity with the id, null if it does not exist
+     */
+    public V load(K id) throws RestDslException {
+        Batch<V, K> batch;
+        CompletableFuture<V> result;
+        boolean first = false;
+        boolean full = false;
+        synchronized (this) {
+            if (current == null) {
+                current = new Batch<>();
+                first = true;
+            }
+            batch = current;
+            result = batch.lookups.computeIfAbsent(id, k -> new CompletableFuture<>());
+            if (batch.lookups.size() >= maxBatchSize) {
+                current = null;
+                full = true;
+            }
+        }
+
+        if (full) {
+            batch.filled.countDown();
+            run(batch);
+        } else if (first) {
+            awaitWindow(batch);
+            boolean detached;
+            synchronized (this) {
+                detached = current == batch;
+                if (detached) {
+                    current = null;
+                }
+            }
+            // otherwise the batch was filled meanwhile and is run by the caller that filled it
+            if (detached) {
+                run(batch);
+            }
+        }
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RestDslException("Unable to load entity by id " + id, e.getCause(), RestDslException.Type.GENERAL_ERROR);
+        }
+    }
+
+    private void awaitWindow(Batch<V, K> batch) {
+        try {
+            batch.filled.await(windowNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // load what was collected so far
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(Batch<V, K> batch) {
+        // no lookups join a batch after it was detached
+        Map<K, CompletableFuture<V>> lookups = batch.lookups;
+        try {
+            Map<K, V> entities = batchQuery.apply(new ArrayList<>(lookups.keySet()));
+            lookups.forEach((id, lookup) -> lookup.complete(entities.get(id)));
+        } catch (Throwable e) {
+            // also errors, the other callers of the batch would wait forever otherwise
+            lookups.values().forEach(lookup -> lookup.completeExceptionally(e));
+        }
+    }
+
+    private static final class Batch<V, K> {
+        private final Map<K, CompletableFuture<V>> lookups = new LinkedHashMap<>();
+        private final CountDownLatch filled = new CountDownLatch(1);
+    }
+}
@@ -1,5 +1,7 @@
 package net.researchgate.restdsl.dao;
 
+import net.researchgate.restdsl.types.FieldPathRegistry;
+
 public interface EntityFieldMapper {
 
     Class<?> getFieldType(Class<?> cl, String fieldName);
@@ -11,6 +13,20 @@ public interface EntityFieldMapper {
      */
     Class<?> getNormalizedType(Class<?> cl, String fieldName);
 
+    /**
+     * Returns the name the field is stored with, e.g. as renamed by dev.morphia.annotations.Property
+     */
+    default String getMappedFieldName(Class<?> cl, String fieldName) {
+        return fieldName;
+    }
+
+    /**
+     * Returns the java name of a field given by its java or stored name
+     */
+    default String getJavaFieldName(Class<?> cl, String fieldName) {
+        return fieldName;
+    }
+
     /**
      * Return any field name annotated with dev.morphia.annotations.Id or Null if none exists
      * @param clazz
@@ -29,4 +45,27 @@ public interface EntityFieldMapper {
 
     void setIdValue(Class<?> clazz, Object instance, Object idValue);
 
+    /**
+     * Return the field name annotated with dev.morphia.annotations.Version or Null if none exists
+     */
+    default String getVersionFieldName(Class<?> clazz) {
+        return null;
+    }
+
+    /**
+     * Returns the version of the instance, Null if it has none, i.e. also 0 for a primitive version, or the class has
+     * no version field
+     */
+    default Long getVersionValue(Class<?> clazz, Object instance) {
+        return null;
+    }
+
+    /**
+     * Returns the field paths of the class as resolved by this mapper. Mappers kept for the lifetime of a dao should
+     * keep one registry per class, so that paths are resolved once; by default they are resolved per registry.
+     */
+    default FieldPathRegistry getFieldPaths(Class<?> entityClazz) {
+        return new FieldPathRegistry(this, entityClazz);
+    }
+
 }
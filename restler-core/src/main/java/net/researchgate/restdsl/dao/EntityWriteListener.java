@@ -0,0 +1,17 @@
+package net.researchgate.restdsl.dao;
+
+import java.util.Collection;
+
+/**
+ * Notified after a dao wrote to its collection, e.g. to invalidate cached results
+ *
+ * @param <K> primary key of the written entities
+ */
+@FunctionalInterface
+public interface EntityWriteListener<K> {
+
+    /**
+     * @param ids ids of the written entities, null if the write may have affected any entity of the collection
+     */
+    void afterWrite(Collection<K> ids);
+}
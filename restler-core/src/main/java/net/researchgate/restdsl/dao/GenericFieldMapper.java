@@ -1,13 +1,21 @@
 package net.researchgate.restdsl.dao;
 
 import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.types.FieldPathRegistry;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GenericFieldMapper implements EntityFieldMapper {
+    private final Map<Class<?>, FieldPathRegistry> fieldPaths = new ConcurrentHashMap<>();
+
+    @Override
+    public FieldPathRegistry getFieldPaths(Class<?> entityClazz) {
+        return fieldPaths.computeIfAbsent(entityClazz, clazz -> new FieldPathRegistry(this, clazz));
+    }
 
     @Override
     public Class<?> getFieldType(Class<?> cl, String fieldName) {
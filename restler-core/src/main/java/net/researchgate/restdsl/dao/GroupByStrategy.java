@@ -0,0 +1,18 @@
+package net.researchgate.restdsl.dao;
+
+/**
+ * How a {@link MongoBaseServiceDao} answers queries with a groupBy parameter
+ */
+public enum GroupByStrategy {
+    /**
+     * One aggregation pipeline returns the top entities and the counts of all groups in a single round trip.
+     * Needs MongoDB 5.0, so it has to be enabled by the dao
+     */
+    AGGREGATION,
+
+    /**
+     * One find (and possibly one count) per group key, the default. Keep it on servers before MongoDB 5.0 or if the
+     * groups are too large to be sliced inside an aggregation
+     */
+    PER_KEY
+}
@@ -0,0 +1,374 @@
+package net.researchgate.restdsl.dao;
+
+import com.google.common.base.Throwables;
+import com.mongodb.MongoException;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.EstimatedDocumentCountOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.reactivestreams.client.AggregatePublisher;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import dev.morphia.mapping.codec.pojo.PropertyModel;
+import dev.morphia.query.updates.UpdateOperator;
+import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.metrics.MetricSinkTimingWrapper;
+import net.researchgate.restdsl.queries.CountMode;
+import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.EntityList;
+import net.researchgate.restdsl.results.EntityMultimap;
+import net.researchgate.restdsl.results.EntityResult;
+import net.researchgate.restdsl.util.RequestUtil;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt64;
+import org.bson.BsonObjectId;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.EncoderContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link AsyncServiceDao} on the reactive streams mongo driver.
+ * Queries are translated by a {@link MongoServiceDao} of the same entity, so both daos accept the same queries and
+ * call the same lifecycle hooks, and writes through either of them notify its write listeners.
+ * <ul>
+ *     <li>groupBy queries answered by a single aggregation, see {@link GroupByStrategy#AGGREGATION}, run on the
+ *     reactive driver. Those issuing a query per key run on the fan-out executor of the blocking dao</li>
+ *     <li>by id batching, single flight and the count cache of the blocking dao are not applied</li>
+ *     <li>versioned entities are written like by the blocking dao: patches increment the version and check
+ *     {@link ServiceQuery#getExpectedVersion()}, saves of an entity with a version only replace that version</li>
+ *     <li>consistency tokens are not supported: writes leave none and reads carrying one fail with
+ *     {@link RestDslException.Type#PARAMS_ERROR}, instead of silently reading without the guarantee</li>
+ * </ul>
+ *
+ * @param <V> Type of the entity
+ * @param <K> Type of the entity's id field
+ */
+public class MongoAsyncServiceDao<V, K> implements AsyncServiceDao<V, K> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoAsyncServiceDao.class);
+
+    private final MongoServiceDao<V, K> dao;
+    private final MongoCollection<Document> collection;
+
+    /**
+     * @param dao    blocking dao of the entity, translates queries and provides the lifecycle hooks
+     * @param client reactive client connected to the deployment of the dao's datastore
+     */
+    public MongoAsyncServiceDao(MongoServiceDao<V, K> dao, MongoClient client) {
+        this.dao = dao;
+        this.collection = client.getDatabase(dao.datastore.getDatabase().getName())
+                .getCollection(dao.collectionName)
+                .withCodecRegistry(dao.datastore.getCodecRegistry());
+    }
+
+    @Override
+    public EntityFieldMapper getEntityMapper() {
+        return dao.getEntityMapper();
+    }
+
+    @Override
+    public CompletionStage<EntityResult<V>> get(ServiceQuery<K> serviceQuery) {
+        if (serviceQuery.getConsistencyToken() != null) {
+            return CompletableFuture.failedFuture(newConsistencyTokenNotSupported());
+        }
+        if (serviceQuery.getGroupBy() != null) {
+            if (dao.allowGroupBy && dao.isAggregatedGroupBy(serviceQuery)) {
+                return async(() -> getGroupedByAggregation(serviceQuery));
+            }
+            return dao.fanOutExecutor.submit(() -> dao.get(serviceQuery));
+        }
+        return async(() -> {
+            Document filter = dao.convertToMorphiaQuery(serviceQuery).toDocument();
+            MetricSinkTimingWrapper timer = dao.getQueryShapeWrapper(serviceQuery);
+            CompletableFuture<List<V>> page = serviceQuery.getCountOnly()
+                    ? CompletableFuture.completedFuture(Collections.emptyList())
+                    : find(serviceQuery, filter);
+            return mapExceptions(serviceQuery, page
+                    .thenCompose(results -> getTotalItemsCnt(serviceQuery, filter, results.size())
+                            .thenApply(totalItems -> dao.newListResult(serviceQuery, results, totalItems)))
+                    .whenComplete((result, e) -> timer.close()));
+        });
+    }
+
+    @Override
+    public CompletionStage<V> getOne(ServiceQuery<K> serviceQuery) {
+        return async(() -> {
+            checkNoConsistencyToken(serviceQuery);
+            Document filter = dao.convertToMorphiaQuery(serviceQuery).toDocument();
+            return mapExceptions(serviceQuery, Publishers.first(toFindPublisher(serviceQuery, filter).first()))
+                    .thenApply(document -> document == null ? null : dao.decodeEntity(document));
+        });
+    }
+
+    @Override
+    public CompletionStage<Long> count(ServiceQuery<K> serviceQuery) {
+        return async(() -> {
+            checkNoConsistencyToken(serviceQuery);
+            return mapExceptions(serviceQuery, countItems(serviceQuery, dao.convertToMorphiaQuery(serviceQuery).toDocument()));
+        });
+    }
+
+    @Override
+    public CompletionStage<V> save(V entity) {
+        return async(() -> {
+            dao.prePersist(entity);
+            // as morphia does, the version is incremented and a stored entity is only replaced if it still has the old one
+            PropertyModel versionProperty = dao.datastore.getMapper().getEntityModel(dao.entityClazz).getVersionProperty();
+            Long version = getEntityMapper().getVersionValue(dao.entityClazz, entity);
+            if (versionProperty != null) {
+                versionProperty.setValue(entity, version == null ? 1L : version + 1);
+            }
+            BsonDocument document = encodeEntity(entity);
+            BsonValue id = document.get("_id");
+            MongoCollection<BsonDocument> documents = collection.withDocumentClass(BsonDocument.class);
+            CompletableFuture<?> write;
+            if (id == null) {
+                write = Publishers.first(documents.insertOne(document))
+                        .thenAccept(result -> setGeneratedId(entity, result.getInsertedId()));
+            } else if (version == null) {
+                write = Publishers.first(documents.replaceOne(new BsonDocument("_id", id), document, new ReplaceOptions().upsert(true)));
+            } else {
+                BsonDocument filter = new BsonDocument("_id", id).append(versionProperty.getMappedName(), new BsonInt64(version));
+                write = Publishers.first(documents.replaceOne(filter, document)).thenAccept(result -> {
+                    if (result.getMatchedCount() == 0) {
+                        throw new RestDslException("Entity " + dao.entityClazz.getSimpleName() + " " + id +
+                                " was modified concurrently, expected version " + version, RestDslException.Type.CONFLICT);
+                    }
+                });
+            }
+            return mapExceptions(null, write.whenComplete((result, e) -> dao.afterWrite(dao.getWrittenIds(entity))))
+                    .thenApply(result -> entity);
+        });
+    }
+
+    @Override
+    public CompletionStage<V> patch(ServiceQuery<K> q, Map<String, Object> patchedFields) {
+        return async(() -> {
+            List<UpdateOperator> ops = MongoServiceDao.toPatchOperators(dao.withoutVersion(patchedFields));
+            dao.preUpdate(q, ops);
+            Document filter = dao.withExpectedVersion(dao.convertToMorphiaQuery(q), q).toDocument();
+            FindOneAndUpdateOptions options = new FindOneAndUpdateOptions()
+                    .returnDocument(ReturnDocument.AFTER)
+                    .upsert(false);
+            if (q.getMaxTime() != null) {
+                options.maxTime(q.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            CompletableFuture<Document> modified = Publishers.first(collection.findOneAndUpdate(filter,
+                            toUpdateDocument(Arrays.asList(dao.withVersionIncrement(ops))), options))
+                    .thenCompose(document -> document == null
+                            ? checkVersionConflict(q).<Document>thenApply(ignored -> null)
+                            : CompletableFuture.completedFuture(document));
+            return mapExceptions(q, modified.whenComplete((result, e) -> dao.afterWrite(q.getIdList())))
+                    .thenApply(document -> document == null ? null : dao.decodeEntity(document));
+        });
+    }
+
+    @Override
+    public CompletionStage<Integer> delete(ServiceQuery<K> serviceQuery) {
+        return async(() -> {
+            MongoServiceDao.validateDeleteQuery(serviceQuery);
+            dao.preDelete(serviceQuery);
+            Document filter = dao.convertToMorphiaQuery(serviceQuery).toDocument();
+            return mapExceptions(serviceQuery, Publishers.first(collection.deleteMany(filter))
+                    .whenComplete((result, e) -> dao.afterWrite(serviceQuery.getIdList())))
+                    .thenApply(result -> Math.toIntExact(result.getDeletedCount()));
+        });
+    }
+
+    private static void checkNoConsistencyToken(ServiceQuery<?> serviceQuery) {
+        if (serviceQuery.getConsistencyToken() != null) {
+            throw newConsistencyTokenNotSupported();
+        }
+    }
+
+    private static RestDslException newConsistencyTokenNotSupported() {
+        return new RestDslException("Consistency tokens are not supported by asynchronous endpoints, read without the " +
+                RequestUtil.CONSISTENCY_TOKEN_HEADER + " header or from a blocking endpoint", RestDslException.Type.PARAMS_ERROR);
+    }
+
+    private CompletableFuture<EntityResult<V>> getGroupedByAggregation(ServiceQuery<K> serviceQuery) {
+        Document filter = dao.convertToMorphiaQuery(serviceQuery).toDocument();
+        List<Document> pipeline = dao.toGroupByPipeline(serviceQuery, filter);
+        MetricSinkTimingWrapper timer = dao.getQueryShapeWrapper(serviceQuery);
+        LOGGER.debug("Executing async groupBy aggregation {}", pipeline);
+        CompletableFuture<EntityResult<V>> result = Publishers.toList(toAggregatePublisher(serviceQuery, pipeline))
+                .thenCompose(groupDocs -> {
+                    Map<Object, EntityList<V>> groupedResult = dao.toGroupedLists(serviceQuery, groupDocs);
+                    CompletableFuture<Long> totalItems = serviceQuery.isCountTotalItems()
+                            ? countItems(serviceQuery, filter)
+                            : CompletableFuture.completedFuture(null);
+                    return totalItems.thenApply(count -> new EntityResult<>(new EntityMultimap<>(groupedResult, count)));
+                });
+        return mapExceptions(serviceQuery, result.whenComplete((groups, e) -> timer.close()));
+    }
+
+    // nothing matched: only reads again if a version was expected, to tell a stale version from a missing entity
+    private CompletableFuture<Void> checkVersionConflict(ServiceQuery<K> q) {
+        if (q.getExpectedVersion() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Document filter = dao.convertToMorphiaQuery(q).toDocument();
+        return Publishers.first(collection.countDocuments(filter, new CountOptions().limit(1))).thenAccept(count -> {
+            if (count > 0) {
+                throw dao.newVersionConflict(q);
+            }
+        });
+    }
+
+    private CompletableFuture<List<V>> find(ServiceQuery<K> serviceQuery, Document filter) {
+        LOGGER.debug("Executing async query {}", filter);
+        return Publishers.toList(toFindPublisher(serviceQuery, filter)).thenApply(documents -> {
+            List<V> results = new ArrayList<>(documents.size());
+            for (Document document : documents) {
+                results.add(dao.decodeEntity(document));
+            }
+            return results;
+        });
+    }
+
+    private FindPublisher<Document> toFindPublisher(ServiceQuery<K> serviceQuery, Document filter) {
+        FindPublisher<Document> find = getReadCollection(serviceQuery).find(filter)
+                .skip(serviceQuery.getOffset())
+                .limit(serviceQuery.getLimit());
+        Set<String> projectedFields = dao.getProjectedFields(serviceQuery);
+        if (projectedFields != null) {
+            find = find.projection(dao.toProjectionDocument(projectedFields));
+        }
+        Document sort = dao.toSortDocument(dao.getEffectiveOrder(serviceQuery));
+        if (!sort.isEmpty()) {
+            find = find.sort(sort);
+        }
+        if (serviceQuery.getMaxTime() != null) {
+            find = find.maxTime(serviceQuery.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        Document hint = dao.getHint(serviceQuery);
+        if (hint != null) {
+            find = find.hint(hint);
+        }
+        return find;
+    }
+
+    private AggregatePublisher<Document> toAggregatePublisher(ServiceQuery<K> serviceQuery, List<Document> pipeline) {
+        AggregatePublisher<Document> aggregation = getReadCollection(serviceQuery).aggregate(pipeline)
+                .allowDiskUse(true);
+        if (serviceQuery.getMaxTime() != null) {
+            aggregation = aggregation.maxTime(serviceQuery.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        Document hint = dao.getHint(serviceQuery);
+        if (hint != null) {
+            aggregation = aggregation.hint(hint);
+        }
+        return aggregation;
+    }
+
+    private CompletableFuture<Long> getTotalItemsCnt(ServiceQuery<K> serviceQuery, Document filter, int resultsSize) {
+        if (!serviceQuery.isCountTotalItems()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Long totalItems = dao.getTotalItemsCntWithoutCounting(serviceQuery, resultsSize);
+        return totalItems != null ? CompletableFuture.completedFuture(totalItems) : countItems(serviceQuery, filter);
+    }
+
+    private CompletableFuture<Long> countItems(ServiceQuery<K> serviceQuery, Document filter) {
+        Long maxTimeMs = serviceQuery.getMaxTime() == null ? null : serviceQuery.getMaxTime().toMillis();
+        if (MongoBaseServiceDao.isCountedFromMetadata(serviceQuery)) {
+            EstimatedDocumentCountOptions options = new EstimatedDocumentCountOptions();
+            if (maxTimeMs != null) {
+                options.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+            }
+            return Publishers.first(getReadCollection(serviceQuery).estimatedDocumentCount(options));
+        }
+        if (MongoBaseServiceDao.hasContinuationToken(serviceQuery)) {
+            // totalItems counts all pages, not only those after the token
+            filter = dao.convertToMorphiaCountQuery(serviceQuery).toDocument();
+        }
+        CountOptions options = new CountOptions();
+        CountMode countMode = serviceQuery.getCountMode();
+        if (countMode.getType() == CountMode.Type.CAPPED) {
+            options.limit(countMode.getCap());
+        }
+        if (maxTimeMs != null) {
+            options.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+        }
+        Document hint = dao.getHint(serviceQuery);
+        if (hint != null) {
+            options.hint(hint);
+        }
+        return Publishers.first(getReadCollection(serviceQuery).countDocuments(filter, options));
+    }
+
+    private MongoCollection<Document> getReadCollection(ServiceQuery<K> serviceQuery) {
+        ReadPreference readPreference = dao.getReadPreference(serviceQuery);
+        return readPreference == null ? collection : collection.withReadPreference(readPreference);
+    }
+
+    // groups the operators of the lifecycle hooks and the patch by their update operator, e.g. {$set: {...}, $unset: {...}}
+    private Document toUpdateDocument(List<UpdateOperator> ops) {
+        Document update = new Document();
+        for (UpdateOperator op : ops) {
+            Document fields = (Document) update.computeIfAbsent(op.operator(), k -> new Document());
+            fields.append(dao.toMongoPath(op.field()), op.value());
+        }
+        return update;
+    }
+
+    private BsonDocument encodeEntity(V entity) {
+        BsonDocument document = new BsonDocument();
+        dao.datastore.getCodecRegistry().get(dao.entityClazz).encode(new BsonDocumentWriter(document), entity,
+                EncoderContext.builder().isEncodingCollectibleDocument(true).build());
+        return document;
+    }
+
+    private void setGeneratedId(V entity, BsonValue id) {
+        if (id instanceof BsonObjectId) {
+            getEntityMapper().setIdValue(dao.entityClazz, entity, ((BsonObjectId) id).getValue());
+        }
+    }
+
+    /**
+     * @param serviceQuery query of the operation, to report timeouts by query shape; null for operations without time limit
+     */
+    private <T> CompletableFuture<T> mapExceptions(ServiceQuery<K> serviceQuery, CompletableFuture<T> future) {
+        return future.handle((result, e) -> {
+            if (e == null) {
+                return result;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof MongoExecutionTimeoutException && serviceQuery != null) {
+                throw dao.toTimeoutException(serviceQuery, (MongoExecutionTimeoutException) cause);
+            }
+            if (cause instanceof MongoException) {
+                throw dao.mapMongoExceptions((MongoException) cause);
+            }
+            Throwables.throwIfUnchecked(cause);
+            throw new RestDslException("Unable to execute operation", cause, RestDslException.Type.GENERAL_ERROR);
+        });
+    }
+
+    // failures while preparing an operation complete its stage too, instead of being thrown to the caller
+    private static <T> CompletableFuture<T> async(Supplier<CompletableFuture<T>> operation) {
+        try {
+            return operation.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -1,10 +1,29 @@
 package net.researchgate.restdsl.dao;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.ReadPreference;
+import com.mongodb.ReadPreferenceHedgeOptions;
+import com.mongodb.Tag;
+import com.mongodb.TagSet;
+import com.mongodb.TaggableReadPreference;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.EstimatedDocumentCountOptions;
 import dev.morphia.Datastore;
 import dev.morphia.DeleteOptions;
+import dev.morphia.mapping.codec.pojo.PropertyModel;
+import dev.morphia.query.CountOptions;
 import dev.morphia.query.FindOptions;
 import dev.morphia.query.MorphiaCursor;
 import dev.morphia.query.Query;
@@ -17,37 +36,58 @@ import net.researchgate.restdsl.metrics.MetricName;
 import net.researchgate.restdsl.metrics.MetricSink;
 import net.researchgate.restdsl.metrics.MetricSinkTimingWrapper;
 import net.researchgate.restdsl.metrics.NoOpMetricSink;
+import net.researchgate.restdsl.queries.ConsistencyToken;
+import net.researchgate.restdsl.queries.ContinuationToken;
+import net.researchgate.restdsl.queries.CountMode;
+import net.researchgate.restdsl.queries.QueryExplanation;
+import net.researchgate.restdsl.queries.ReadRoute;
 import net.researchgate.restdsl.queries.ServiceQuery;
 import net.researchgate.restdsl.queries.ServiceQueryInfo;
 import net.researchgate.restdsl.queries.ServiceQueryReservedValue;
 import net.researchgate.restdsl.results.EntityList;
 import net.researchgate.restdsl.results.EntityMultimap;
 import net.researchgate.restdsl.results.EntityResult;
+import net.researchgate.restdsl.results.StreamingEntityList;
 import net.researchgate.restdsl.util.ServiceQueryUtil;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+import static dev.morphia.query.filters.Filters.and;
 import static dev.morphia.query.filters.Filters.elemMatch;
 import static dev.morphia.query.filters.Filters.eq;
-import static dev.morphia.query.filters.Filters.exists;
 import static dev.morphia.query.filters.Filters.gt;
-import static dev.morphia.query.filters.Filters.gte;
 import static dev.morphia.query.filters.Filters.in;
 import static dev.morphia.query.filters.Filters.lt;
-import static dev.morphia.query.filters.Filters.lte;
-import static dev.morphia.query.filters.Filters.nin;
+import static dev.morphia.query.filters.Filters.ne;
+import static dev.morphia.query.filters.Filters.or;
 
 /**
  * This Dao implements common access to the underlying mongo collection.
@@ -64,7 +104,12 @@ import static dev.morphia.query.filters.Filters.nin;
  */
 public class MongoBaseServiceDao<V, K> implements BaseServiceDao<V, K>{
     public static final String MONGO_SERVICE_QUERY_METRIC = "mongo_service_query";
+    public static final String MONGO_SERVICE_COUNT_CACHE_METRIC = "mongo_service_count_cache";
+    public static final String MONGO_SERVICE_QUERY_PLAN_CACHE_METRIC = "mongo_service_query_plan_cache";
+    public static final String MONGO_SERVICE_COLLAPSED_QUERY_METRIC = "mongo_service_collapsed_query";
+    public static final String MONGO_SERVICE_TIMEOUT_METRIC = "mongo_service_timeout";
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoBaseServiceDao.class);
+    private static final ClientSessionOptions CAUSALLY_CONSISTENT = ClientSessionOptions.builder().causallyConsistent(true).build();
 
     protected final String collectionName;
     protected final Class<V> entityClazz;
@@ -72,8 +117,42 @@ public class MongoBaseServiceDao<V, K> implements BaseServiceDao<V, K>{
     protected final EntityIndexInfo<V> entityIndexInfo;
     protected final MetricSink metricSink;
 
+    // name of the temporary field holding the group key inside the groupBy aggregation
+    private static final String GROUP_KEY_FIELD = "__restlerGroupKey";
+    private static final String GROUP_RANK_FIELD = "__restlerGroupRank";
+    private static final String GROUP_COUNT_FIELD = "__restlerGroupCount";
+    private static final int DEFAULT_FAN_OUT_PARALLELISM = 8;
+    private static final int DEFAULT_QUERY_PLAN_CACHE_SIZE = 1000;
+
     // group by operations may require a lot of requests to the database. We should have to explicitly enable it
     protected boolean allowGroupBy = false;
+    protected GroupByStrategy groupByStrategy = GroupByStrategy.PER_KEY;
+    protected TotalItemsStrategy totalItemsStrategy = TotalItemsStrategy.SEQUENTIAL;
+    protected QueryFanOutExecutor fanOutExecutor = QueryFanOutExecutor.withParallelism(DEFAULT_FAN_OUT_PARALLELISM);
+
+    // totalItems per ServiceQuery#getCountKey, only set if enabled by the dao
+    private Cache<List<Object>, Long> countCache;
+    // incremented by every write, counts that overlap a write are not kept in the cache
+    private final AtomicLong countCacheGeneration = new AtomicLong();
+    private final List<EntityWriteListener<K>> writeListeners = new CopyOnWriteArrayList<>();
+    // lookups of single entities by id, only set if enabled by the dao
+    private ByIdBatchLoader<V, K> byIdBatchLoader;
+    // identical gets in flight, only set if enabled by the dao
+    private SingleFlight<List<Object>, EntityResult<V>> singleFlight;
+    // declared index to hint per query shape
+    private final Map<String, String> pinnedIndexes = new ConcurrentHashMap<>();
+    private boolean consistencyTokens;
+    // causally consistent session of the read running on this thread, see #readCausally
+    private final ThreadLocal<ClientSession> causalSession = new ThreadLocal<>();
+    // hint the selected index for every query instead of leaving the choice to the planner
+    private boolean indexHints = false;
+    // writes stored documents to responses for getRaw, only set if enabled by the dao
+    private BsonJsonTranscoder rawTranscoder;
+    // read preferences by query shape, only set if configured by the dao
+    private ReadRoutingRules readRouting;
+    private Cache<List<Object>, QueryPlan> queryPlanCache = CacheBuilder.newBuilder()
+            .maximumSize(DEFAULT_QUERY_PLAN_CACHE_SIZE)
+            .build();
 
     protected final Datastore datastore;
     private final EntityFieldMapper entityMapper;
@@ -122,52 +201,295 @@ public class MongoBaseServiceDao<V, K> implements BaseServiceDao<V, K>{
         this.allowGroupBy = true;
     }
 
+    /**
+     * Chooses how groupBy queries are executed, see {@link GroupByStrategy}
+     */
+    protected void setGroupByStrategy(GroupByStrategy groupByStrategy) {
+        this.groupByStrategy = groupByStrategy;
+    }
+
+    /**
+     * Chooses how totalItems is counted when the fetched page is not enough to know it, see {@link TotalItemsStrategy}
+     */
+    protected void setTotalItemsStrategy(TotalItemsStrategy totalItemsStrategy) {
+        this.totalItemsStrategy = totalItemsStrategy;
+    }
+
+    /**
+     * Sets the executor for operations that issue several queries, e.g. groupBy with {@link GroupByStrategy#PER_KEY}.
+     * Its parallelism caps the parallelism a request may ask for.
+     */
+    protected void setFanOutExecutor(QueryFanOutExecutor fanOutExecutor) {
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    /**
+     * Caches counts of totalItems by criteria and ids for the given time. Writes through this dao invalidate the cache,
+     * writes by other processes become visible after the ttl at the latest.
+     */
+    protected void enableCountCache(Duration ttl, long maximumSize) {
+        this.countCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Bounds the number of cached query plans, see {@link QueryPlan}. 0 disables the cache.
+     */
+    protected void setQueryPlanCacheSize(long maximumSize) {
+        this.queryPlanCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Collects lookups of single entities by id that arrive within the window into one $in query, see {@link ByIdBatchLoader}.
+     * Applies to {@link #get(ServiceQuery)} and {@link #getOne(ServiceQuery)} with one id, no criteria and all fields.
+     */
+    protected void enableByIdBatching(Duration window, int maxBatchSize) {
+        this.byIdBatchLoader = new ByIdBatchLoader<>(this::getByIds, window, maxBatchSize);
+    }
+
+    /**
+     * Lets identical concurrent {@link #get(ServiceQuery)} calls, by {@link ServiceQuery#getCacheKey()}, share one
+     * execution and its result, see {@link SingleFlight}. Collapsed calls are reported as {@value #MONGO_SERVICE_COLLAPSED_QUERY_METRIC}.
+     * Entities of shared results must not be modified.
+     */
+    protected void enableSingleFlight() {
+        MetricName collapsed = new MetricName(MONGO_SERVICE_COLLAPSED_QUERY_METRIC, Map.of("collectionName", collectionName));
+        this.singleFlight = new SingleFlight<>(() -> metricSink.increment(collapsed, 1));
+    }
+
+    /**
+     * Hints the given index for all queries of the shape, see {@link ServiceQuery#getQueryShape()}. Meant for shapes
+     * the planner is known to choose a bad index for; an explicit hint of the query takes precedence.
+     *
+     * @param index one of the declared indexes, e.g. 'a,-b'
+     */
+    protected void pinIndex(String queryShape, String index) {
+        if (!entityIndexInfo.getIndexesMap().contains(index)) {
+            throw new IllegalArgumentException("Index '" + index + "' is not declared for " + entityClazz.getName() +
+                    ", declared indexes are [(" + Joiner.on("), (").join(entityIndexInfo.getIndexesMap()) + ")]");
+        }
+        pinnedIndexes.put(queryShape, index);
+    }
+
+    /**
+     * Hints the declared index that matches the criteria and order best, see {@link EntityIndexInfo#selectIndex},
+     * for every query instead of leaving the choice to the planner.
+     */
+    protected void enableIndexHints() {
+        this.indexHints = true;
+    }
+
+    /**
+     * Lets {@link #getRaw(ServiceQuery)} return the stored documents, which the transcoder writes to the response
+     * without decoding them into entities. Only for entities whose JSON does not depend on Jackson annotations other
+     * than the formats the transcoder is configured with.
+     */
+    protected void enableRawReads(BsonJsonTranscoder transcoder) {
+        this.rawTranscoder = transcoder;
+    }
+
+    /**
+     * Routes reads by query shape, e.g. heavy groupBy shapes to analytics secondaries, see {@link ReadRoutingRules}.
+     * Lookups by id of the by id batching and writes always go to the client's default.
+     */
+    protected void setReadRouting(ReadRoutingRules readRouting) {
+        this.readRouting = readRouting;
+    }
+
+    /**
+     * Runs writes in causally consistent sessions, whose tokens are left with {@link ConsistencyToken#setLastWrite}
+     * to be handed to the client. Reads carrying a token are causally consistent whether or not this is enabled.
+     */
+    protected void enableConsistencyTokens() {
+        this.consistencyTokens = true;
+    }
+
+    /**
+     * @return a causally consistent session for a write, null if consistency tokens are disabled
+     */
+    protected ClientSession startWriteSession() {
+        return consistencyTokens ? datastore.startSession(CAUSALLY_CONSISTENT) : null;
+    }
+
+    /**
+     * Leaves the token of the writes of the session with {@link ConsistencyToken#setLastWrite}. Called after
+     * successful writes; subclasses writing to the collection on their own should call it too.
+     *
+     * @param session as returned by {@link #startWriteSession()}, may be null
+     */
+    protected void recordWrite(ClientSession session) {
+        if (session != null && session.getOperationTime() != null) {
+            ConsistencyToken.setLastWrite(new ConsistencyToken(session.getOperationTime(), session.getClusterTime()));
+        }
+    }
+
+    // reads of a query with a consistency token see the write of the token, also on secondaries
+    private <T> T readCausally(ServiceQuery<K> serviceQuery, Supplier<T> read) {
+        ConsistencyToken token = serviceQuery.getConsistencyToken();
+        if (token == null || causalSession.get() != null) {
+            return read.get();
+        }
+        try (ClientSession session = datastore.startSession(CAUSALLY_CONSISTENT)) {
+            if (token.getClusterTime() != null) {
+                session.advanceClusterTime(token.getClusterTime());
+            }
+            session.advanceOperationTime(token.getOperationTime());
+            return inSession(session, read);
+        }
+    }
+
+    private <T> T inSession(ClientSession session, Supplier<T> read) {
+        ClientSession previous = causalSession.get();
+        causalSession.set(session);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                causalSession.remove();
+            } else {
+                causalSession.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public void addWriteListener(EntityWriteListener<K> listener) {
+        writeListeners.add(listener);
+    }
+
+    /**
+     * Drops cached counts and notifies write listeners. Called after writes; subclasses writing to the collection
+     * on their own should call it too.
+     *
+     * @param ids ids of the written entities, null if the write may have affected any entity
+     */
+    protected void afterWrite(Collection<K> ids) {
+        invalidateCountCache();
+        for (EntityWriteListener<K> listener : writeListeners) {
+            listener.afterWrite(ids);
+        }
+    }
+
+    private void invalidateCountCache() {
+        countCacheGeneration.incrementAndGet();
+        if (countCache != null) {
+            countCache.invalidateAll();
+        }
+    }
+
     public FindOptions toFindOptions(ServiceQuery<K>  serviceQuery) {
+        return toFindOptions(serviceQuery, getQueryPlan(serviceQuery));
+    }
 
+    private FindOptions toFindOptions(ServiceQuery<K> serviceQuery, QueryPlan plan) {
         FindOptions findOptions = new FindOptions();
 
-        if (serviceQuery.getFields() != null) {
-            Set<String> excludedFields = new HashSet<>();
-            Set<String> includedFields = new HashSet<>();
-            boolean all = false;
-            for (String f : serviceQuery.getFields()) {
-                if (f.equals("*")) {
-                    all = true;
-                } else {
-                    if (f.startsWith("-")) {
-                        excludedFields.add(f.substring(1));
-                    } else {
-                        includedFields.add(f);
-                    }
-                }
+        Set<String> projectedFields = getProjectedFields(serviceQuery);
+        if (projectedFields != null) {
+            findOptions.projection().include(projectedFields.toArray(new String[0]));
+        }
+
+        findOptions.skip(serviceQuery.getOffset());
+        findOptions.limit(serviceQuery.getLimit());
+
+        Sort[] sort = plan.getSort();
+        if (sort != null) {
+            findOptions.sort(sort);
+        }
+
+        if (serviceQuery.getMaxTime() != null) {
+            findOptions.maxTime(serviceQuery.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        Document hint = getHint(serviceQuery, plan);
+        if (hint != null) {
+            findOptions.hint(hint);
+        }
+
+        ReadPreference readPreference = getReadPreference(serviceQuery);
+        if (readPreference != null) {
+            findOptions.readPreference(readPreference);
+        }
+
+        ClientSession session = causalSession.get();
+        if (session != null) {
+            findOptions.clientSession(session);
+        }
+        return findOptions;
+    }
+
+    // keyset pagination needs a total order, the id breaks ties
+    String getEffectiveOrder(ServiceQuery<K> serviceQuery) {
+        String order = serviceQuery.getOrder();
+        if (!serviceQuery.isKeysetPagination()) {
+            return order;
+        }
+        String idField = entityInfo.getIdFieldName();
+        for (Sort s : parseSortString(order)) {
+            if (s.getField().equals(idField)) {
+                return order;
             }
+        }
+        return order == null || order.isBlank() ? idField : order + "," + idField;
+    }
 
-            if (!excludedFields.isEmpty() && !includedFields.isEmpty()) {
-                throw new RestDslException("Query cannot have both included and excluded fields", RestDslException.Type.QUERY_ERROR);
+    /**
+     * @return fields to include into the projection, or null if the whole entity should be fetched
+     */
+    Set<String> getProjectedFields(ServiceQuery<K> serviceQuery) {
+        Set<String> fields = getRequestedFields(serviceQuery);
+        if (fields != null && serviceQuery.isKeysetPagination()) {
+            // the next continuation token is built from the sort keys of the last entity
+            fields = new HashSet<>(fields);
+            for (Sort s : parseSortString(getEffectiveOrder(serviceQuery))) {
+                fields.add(s.getField());
             }
+        }
+        return fields;
+    }
 
-            if (!all) {
-                if (!includedFields.isEmpty()) {
-                    findOptions.projection().include(includedFields.toArray(new String[0]));
-                } else {
-                    // only excluded fields were provided
-                    findOptions.projection().include(excludedFields.toArray(new String[0]));
-                }
+    private Set<String> getRequestedFields(ServiceQuery<K> serviceQuery) {
+        if (serviceQuery.getFields() == null) {
+            return null;
+        }
+
+        Set<String> excludedFields = new HashSet<>();
+        Set<String> includedFields = new HashSet<>();
+        boolean all = false;
+        for (String f : serviceQuery.getFields()) {
+            if (f.equals("*")) {
+                all = true;
             } else {
-                // provided * but also excluded fields
-                if (!excludedFields.isEmpty()) {
-                    findOptions.projection().include(excludedFields.toArray(new String[0]));
+                if (f.startsWith("-")) {
+                    excludedFields.add(f.substring(1));
+                } else {
+                    includedFields.add(f);
                 }
             }
         }
 
-        findOptions.skip(serviceQuery.getOffset());
-        findOptions.limit(serviceQuery.getLimit());
+        if (!excludedFields.isEmpty() && !includedFields.isEmpty()) {
+            throw new RestDslException("Query cannot have both included and excluded fields", RestDslException.Type.QUERY_ERROR);
+        }
 
-        if (serviceQuery.getOrder() != null) {
-            findOptions.sort(parseSortString(serviceQuery.getOrder()));
+        if (!all) {
+            if (!includedFields.isEmpty()) {
+                return includedFields;
+            } else {
+                // only excluded fields were provided
+                return excludedFields;
+            }
+        } else {
+            // provided * but also excluded fields
+            if (!excludedFields.isEmpty()) {
+                return excludedFields;
+            }
         }
-        return findOptions;
+        return null;
     }
 
     private static Sort[] parseSortString(String sortString) {
@@ -194,65 +516,598 @@ public class MongoBaseServiceDao<V, K> implements BaseServiceDao<V, K>{
     }
 
     public EntityResult<V> get(ServiceQuery<K> serviceQuery) throws RestDslException {
-        Query<V> morphiaQuery = convertToMorphiaQuery(serviceQuery);
-        FindOptions findOptions = toFindOptions(serviceQuery);
+        if (serviceQuery.getConsistencyToken() != null) {
+            // batched and collapsed reads run outside of the session
+            return readCausally(serviceQuery, () -> execute(serviceQuery));
+        }
+        if (isBatchableByIdLookup(serviceQuery)) {
+            V entity = byIdBatchLoader.load(serviceQuery.getIdList().iterator().next());
+            List<V> results = entity == null ? Collections.emptyList() : Collections.singletonList(entity);
+            return newListResult(serviceQuery, results, serviceQuery.isCountTotalItems() ? (long) results.size() : null);
+        }
+        if (singleFlight != null) {
+            return singleFlight.execute(serviceQuery.getCacheKey(), () -> execute(serviceQuery));
+        }
+        return execute(serviceQuery);
+    }
+
+    private EntityResult<V> execute(ServiceQuery<K> serviceQuery) {
+        // compiled once, the query, its options and its count are bound from the same plan
+        QueryPlan plan = getQueryPlan(serviceQuery);
+        Query<V> morphiaQuery = convertToMorphiaQuery(serviceQuery, plan);
+        FindOptions findOptions = toFindOptions(serviceQuery, plan);
 
         try (MetricSinkTimingWrapper ignored = getQueryShapeWrapper(serviceQuery)) {
             String groupBy = serviceQuery.getGroupBy();
             if (groupBy == null) {
-                List<V> results = Collections.emptyList();
-                if (!serviceQuery.getCountOnly()) {
-                    LOGGER.debug("Executing query {}", morphiaQuery);
-                    try (MorphiaCursor<V> iterator = morphiaQuery.iterator(findOptions)) {
-                        results = iterator.toList();
-                    }
+                if (serviceQuery.getCountOnly() || !serviceQuery.isCountTotalItems()) {
+                    return getListSequentially(serviceQuery, plan, morphiaQuery, findOptions);
+                }
+                switch (totalItemsStrategy) {
+                    case CONCURRENT:
+                        // a session must not be used by two threads at once
+                        return causalSession.get() == null
+                                ? getListWithConcurrentCount(serviceQuery, plan, morphiaQuery, findOptions)
+                                : getListSequentially(serviceQuery, plan, morphiaQuery, findOptions);
+                    case SINGLE_ROUND_TRIP:
+                        // a metadata count is cheaper than counting in the aggregation, and the facet could only
+                        // count the entities after the continuation token
+                        return isCountedFromMetadata(serviceQuery) || hasContinuationToken(serviceQuery)
+                                ? getListSequentially(serviceQuery, plan, morphiaQuery, findOptions)
+                                : getListWithFacetCount(serviceQuery, plan, morphiaQuery);
+                    default:
+                        return getListSequentially(serviceQuery, plan, morphiaQuery, findOptions);
                 }
-                return new EntityResult<>(results, getTotalItemsCnt(morphiaQuery, serviceQuery, results));
             } else {
                 if (!allowGroupBy) {
                     throw new RestDslException("GroupBy is not allowed by this dao, but request contains groupBy '" + groupBy + "'. GroupBy can be enabled in the Service", RestDslException.Type.QUERY_ERROR);
                 }
-                // warning: in-place criteria editing
-                Collection<Object> criteriaForGrouping = new ArrayList<>(serviceQuery.getCriteria().get(groupBy));
-
-                Map<Object, EntityList<V>> groupedResult = new HashMap<>();
-                for (Object k : criteriaForGrouping) {
-                    serviceQuery.getCriteria().removeAll(groupBy);
-                    serviceQuery.getCriteria().put(groupBy, k);
-                    Query<V> q = convertToMorphiaQuery(serviceQuery);
-                    List<V> resultPerKey = Collections.emptyList();
-                    if (!serviceQuery.getCountOnly()) {
-                        LOGGER.debug("Executing query {}", q);
-                        try (MorphiaCursor<V> iterator = q.iterator(findOptions)) {
-                            resultPerKey = iterator.toList();
-                        }
-                    }
+                if (isAggregatedGroupBy(serviceQuery)) {
+                    return getGroupedByAggregation(serviceQuery, plan, morphiaQuery);
+                }
+                return getGroupedPerKey(serviceQuery, plan, morphiaQuery, findOptions);
+            }
+        } catch (MongoExecutionTimeoutException e) {
+            throw toTimeoutException(serviceQuery, e);
+        }
+    }
+
+    /**
+     * Same as {@link #get(ServiceQuery)}, but list results are read from the cursor while they are serialized.
+     * Grouped and count only queries and queries with a consistency token are answered by {@link #get(ServiceQuery)}.
+     */
+    @Override
+    public EntityResult<V> stream(ServiceQuery<K> serviceQuery) throws RestDslException {
+        if (serviceQuery.getGroupBy() != null || serviceQuery.getCountOnly() || serviceQuery.getConsistencyToken() != null) {
+            return get(serviceQuery);
+        }
+        QueryPlan plan = getQueryPlan(serviceQuery);
+        Query<V> morphiaQuery = convertToMorphiaQuery(serviceQuery, plan);
+        FindOptions findOptions = toFindOptions(serviceQuery, plan);
+
+        return new EntityResult<>(new StreamingEntityList<V>(
+                () -> {
+                    LOGGER.debug("Streaming query {}", morphiaQuery);
+                    return morphiaQuery.iterator(findOptions);
+                },
+                (itemCount, last) -> {
+                    Long totalItems = getTotalItemsCnt(morphiaQuery, plan, serviceQuery, itemCount);
+                    return new StreamingEntityList.Trailer(totalItems, isCountCapped(serviceQuery, totalItems),
+                            getNextToken(serviceQuery, itemCount, last));
+                },
+                getQueryShapeWrapper(serviceQuery)));
+    }
+
+    /**
+     * Streams {@link RawEntity raw entities} if raw reads are enabled, see {@link #enableRawReads(BsonJsonTranscoder)}.
+     * groupBy, count only, keyset paginated queries and queries with a consistency token are read as entities.
+     */
+    @Override
+    public EntityResult<?> getRaw(ServiceQuery<K> serviceQuery) throws RestDslException {
+        BsonJsonTranscoder transcoder = rawTranscoder;
+        if (transcoder == null || serviceQuery.getGroupBy() != null || serviceQuery.getCountOnly() || serviceQuery.isKeysetPagination()
+                || serviceQuery.getConsistencyToken() != null) {
+            return stream(serviceQuery);
+        }
+        QueryPlan plan = getQueryPlan(serviceQuery);
+        Query<V> morphiaQuery = convertToMorphiaQuery(serviceQuery, plan);
+        FindIterable<RawBsonDocument> find = toRawFind(serviceQuery, plan, morphiaQuery.toDocument());
+
+        return new EntityResult<>(new StreamingEntityList<RawEntity>(
+                () -> {
+                    LOGGER.debug("Streaming raw query {}", morphiaQuery);
+                    return new RawEntityCursor(find.iterator(), transcoder);
+                },
+                (itemCount, last) -> {
+                    Long totalItems = getTotalItemsCnt(morphiaQuery, plan, serviceQuery, itemCount);
+                    return new StreamingEntityList.Trailer(totalItems, isCountCapped(serviceQuery, totalItems), null);
+                },
+                getQueryShapeWrapper(serviceQuery)));
+    }
+
+    private FindIterable<RawBsonDocument> toRawFind(ServiceQuery<K> serviceQuery, QueryPlan plan, Document filter) {
+        FindIterable<RawBsonDocument> find = getReadCollection(serviceQuery).withDocumentClass(RawBsonDocument.class)
+                .find(filter)
+                .skip(serviceQuery.getOffset())
+                .limit(serviceQuery.getLimit());
+        Set<String> projectedFields = getProjectedFields(serviceQuery);
+        if (projectedFields != null) {
+            find.projection(toProjectionDocument(projectedFields));
+        }
+        Document sort = toSortDocument(getEffectiveOrder(serviceQuery));
+        if (!sort.isEmpty()) {
+            find.sort(sort);
+        }
+        if (serviceQuery.getMaxTime() != null) {
+            find.maxTime(serviceQuery.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        Document hint = getHint(serviceQuery, plan);
+        if (hint != null) {
+            find.hint(hint);
+        }
+        return find;
+    }
+
+    private static final class RawEntityCursor implements Iterator<RawEntity>, Closeable {
+        private final MongoCursor<RawBsonDocument> cursor;
+        private final BsonJsonTranscoder transcoder;
 
-                    EntityList<V> entityList = new EntityList<>(resultPerKey, getTotalItemsCnt(q, serviceQuery, resultPerKey));
-                    groupedResult.put(k, entityList);
+        private RawEntityCursor(MongoCursor<RawBsonDocument> cursor, BsonJsonTranscoder transcoder) {
+            this.cursor = cursor;
+            this.transcoder = transcoder;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasNext();
+        }
+
+        @Override
+        public RawEntity next() {
+            return new RawEntity(cursor.next(), transcoder);
+        }
+
+        @Override
+        public void close() {
+            cursor.close();
+        }
+    }
+
+    private EntityResult<V> getListSequentially(ServiceQuery<K> serviceQuery, QueryPlan plan, Query<V> morphiaQuery, FindOptions findOptions) {
+        List<V> results = Collections.emptyList();
+        if (!serviceQuery.getCountOnly()) {
+            LOGGER.debug("Executing query {}", morphiaQuery);
+            try (MorphiaCursor<V> iterator = morphiaQuery.iterator(findOptions)) {
+                results = iterator.toList();
+            }
+        }
+        return newListResult(serviceQuery, results, getTotalItemsCnt(morphiaQuery, plan, serviceQuery, results.size()));
+    }
+
+    /*
+     * The count starts before the page is known, so pages that are not full, whose totalItems follows from the page
+     * alone, still issue a count. It is cancelled, but may already run on the server.
+     */
+    private EntityResult<V> getListWithConcurrentCount(ServiceQuery<K> serviceQuery, QueryPlan plan, Query<V> morphiaQuery,
+                                                       FindOptions findOptions) {
+        // morphia queries are not thread safe, count with a query of its own
+        Query<V> countQuery = convertToMorphiaQuery(serviceQuery, plan);
+        CompletableFuture<Long> count = fanOutExecutor.submit(() -> countItems(countQuery, plan, serviceQuery));
+
+        List<V> results;
+        LOGGER.debug("Executing query {}", morphiaQuery);
+        try (MorphiaCursor<V> iterator = morphiaQuery.iterator(findOptions)) {
+            results = iterator.toList();
+        } catch (RuntimeException e) {
+            count.cancel(false);
+            throw e;
+        }
+
+        Long totalItems = getTotalItemsCntWithoutCounting(serviceQuery, results.size());
+        if (totalItems != null) {
+            count.cancel(false);
+            return newListResult(serviceQuery, results, totalItems);
+        }
+        try {
+            return newListResult(serviceQuery, results, count.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestDslException("Interrupted while counting items", e, RestDslException.Type.GENERAL_ERROR);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RestDslException("Unable to count items", e.getCause(), RestDslException.Type.GENERAL_ERROR);
+        }
+    }
+
+    /*
+     * Sorts ahead of the $facet, where $match and $sort can still be answered by an index. Only $skip and $limit of
+     * the page stay in the facet, since the count of the other facet needs all matching documents.
+     */
+    private EntityResult<V> getListWithFacetCount(ServiceQuery<K> serviceQuery, QueryPlan plan, Query<V> morphiaQuery) {
+        List<Document> page = new ArrayList<>();
+        if (serviceQuery.getOffset() > 0) {
+            page.add(new Document("$skip", serviceQuery.getOffset()));
+        }
+        page.add(new Document("$limit", serviceQuery.getLimit()));
+        Set<String> projectedFields = getProjectedFields(serviceQuery);
+        if (projectedFields != null) {
+            page.add(new Document("$project", toProjectionDocument(projectedFields)));
+        }
+
+        List<Document> total = new ArrayList<>();
+        if (serviceQuery.getCountMode().getType() == CountMode.Type.CAPPED) {
+            total.add(new Document("$limit", serviceQuery.getCountMode().getCap()));
+        }
+        total.add(new Document("$count", "count"));
+
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", morphiaQuery.toDocument()));
+        Document sort = toSortDocument(getEffectiveOrder(serviceQuery));
+        if (!sort.isEmpty()) {
+            pipeline.add(new Document("$sort", sort));
+        }
+        pipeline.add(new Document("$facet", new Document("items", page).append("total", total)));
+
+        LOGGER.debug("Executing page and count aggregation {}", pipeline);
+        Document facets = aggregate(serviceQuery, plan, pipeline).first();
+
+        List<V> results = new ArrayList<>();
+        long totalItems = 0;
+        if (facets != null) {
+            for (Document item : facets.getList("items", Document.class)) {
+                results.add(decodeEntity(item));
+            }
+            List<Document> count = facets.getList("total", Document.class);
+            if (!count.isEmpty()) {
+                totalItems = ((Number) count.get(0).get("count")).longValue();
+            }
+        }
+        return newListResult(serviceQuery, results, totalItems);
+    }
+
+    EntityResult<V> newListResult(ServiceQuery<K> serviceQuery, List<V> results, Long totalItems) {
+        V last = results.isEmpty() ? null : results.get(results.size() - 1);
+        return new EntityResult<>(new EntityList<>(results, totalItems, isCountCapped(serviceQuery, totalItems),
+                getNextToken(serviceQuery, results.size(), last)));
+    }
+
+    // a full page of a keyset paginated query continues after its last entity
+    private String getNextToken(ServiceQuery<K> serviceQuery, int resultsSize, V last) {
+        if (!serviceQuery.isKeysetPagination() || resultsSize == 0 || resultsSize < serviceQuery.getLimit()) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>();
+        for (Sort s : parseSortString(getEffectiveOrder(serviceQuery))) {
+            Object value = readPropertyValue(last, s.getField());
+            values.add(value instanceof Enum ? ((Enum<?>) value).name() : value);
+        }
+        return new ContinuationToken(serviceQuery.getOrder(), values).encode();
+    }
+
+    private Object readPropertyValue(Object entity, String javaPath) {
+        Object current = entity;
+        for (String comp : Splitter.on('.').split(javaPath)) {
+            if (current == null) {
+                return null;
+            }
+            PropertyModel property = datastore.getMapper().getEntityModel(current.getClass()).getProperty(comp);
+            if (property == null) {
+                throw new RestDslException("Cannot find field '" + comp + "' of '" + javaPath + "' in " + current.getClass().getName(),
+                        RestDslException.Type.QUERY_ERROR);
+            }
+            current = property.getValue(current);
+        }
+        return current;
+    }
+
+    private EntityResult<V> getGroupedPerKey(ServiceQuery<K> serviceQuery, QueryPlan plan, Query<V> morphiaQuery, FindOptions findOptions) {
+        String groupBy = serviceQuery.getGroupBy();
+        // the queries per key share the session of the read, one at a time
+        ClientSession session = causalSession.get();
+        Map<Object, EntityList<V>> groupedResult = fanOutExecutor.execute(serviceQuery.getCriteria().get(groupBy), k -> inSession(session, () -> {
+            ServiceQuery<K> keyQuery = serviceQuery.withCriterionReplaced(groupBy, k);
+            Query<V> q = convertToMorphiaQuery(keyQuery);
+            List<V> resultPerKey = Collections.emptyList();
+            if (!keyQuery.getCountOnly()) {
+                LOGGER.debug("Executing query {}", q);
+                try (MorphiaCursor<V> iterator = q.iterator(findOptions)) {
+                    resultPerKey = iterator.toList();
                 }
-                return new EntityResult<>(new EntityMultimap<>(groupedResult, serviceQuery.isCountTotalItems() ? morphiaQuery.count() : null));
+            }
+            Long totalItems = getTotalItemsCnt(q, null, keyQuery, resultPerKey.size());
+            return new EntityList<>(resultPerKey, totalItems, isCountCapped(keyQuery, totalItems), null);
+        }), session == null ? getParallelism(serviceQuery) : 1);
+        return new EntityResult<>(new EntityMultimap<>(groupedResult, serviceQuery.isCountTotalItems() ? countItems(morphiaQuery, plan, serviceQuery) : null));
+    }
+
+    private int getParallelism(ServiceQuery<K> serviceQuery) {
+        Integer requested = serviceQuery.getMaxParallelism();
+        return requested == null ? fanOutExecutor.getMaxParallelism() : requested;
+    }
+
+    /**
+     * @return whether the groupBy query is answered by a single aggregation, see {@link GroupByStrategy#AGGREGATION}
+     */
+    boolean isAggregatedGroupBy(ServiceQuery<K> serviceQuery) {
+        return groupByStrategy == GroupByStrategy.AGGREGATION && canAggregateGroupBy(serviceQuery);
+    }
+
+    // reserved values and nulls cannot be matched against the group key, let the per key queries handle them
+    private boolean canAggregateGroupBy(ServiceQuery<K> serviceQuery) {
+        for (Object k : serviceQuery.getCriteria().get(serviceQuery.getGroupBy())) {
+            if (k == null || k instanceof ServiceQueryReservedValue) {
+                return false;
             }
         }
+        return true;
+    }
+
+    /*
+     * Answers a groupBy with a single aggregation: documents matching the query are sorted, tagged with their group key
+     * (unwinding array fields) and numbered per group. Only those within offset/limit of their group, plus the first
+     * one carrying the count of the group, reach the $group stage. Counts per group come from the same pipeline, capped
+     * like the count of a single list. The requested fields are only projected on the items of the groups, since the
+     * numbering needs the fields of the order. Numbering with $setWindowFields needs MongoDB 5.0.
+     */
+    private EntityResult<V> getGroupedByAggregation(ServiceQuery<K> serviceQuery, QueryPlan plan, Query<V> morphiaQuery) {
+        List<Document> pipeline = toGroupByPipeline(serviceQuery, morphiaQuery.toDocument());
+        LOGGER.debug("Executing groupBy aggregation {}", pipeline);
+        Map<Object, EntityList<V>> groupedResult = toGroupedLists(serviceQuery, aggregate(serviceQuery, plan, pipeline));
+        return new EntityResult<>(new EntityMultimap<>(groupedResult, serviceQuery.isCountTotalItems() ? countItems(morphiaQuery, plan, serviceQuery) : null));
+    }
+
+    // pipeline of the groupBy aggregation, shared with the asynchronous dao
+    List<Document> toGroupByPipeline(ServiceQuery<K> serviceQuery, Document filter) {
+        String groupBy = serviceQuery.getGroupBy();
+        Collection<Object> groupKeys = serviceQuery.getCriteria().get(groupBy);
+        boolean countOnly = serviceQuery.getCountOnly();
+
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", filter));
+        Document sort = toSortDocument(serviceQuery.getOrder());
+        if (!sort.isEmpty()) {
+            pipeline.add(new Document("$sort", sort));
+        }
+        pipeline.add(new Document("$addFields", new Document(GROUP_KEY_FIELD, "$" + toMongoPath(groupBy))));
+        pipeline.add(new Document("$unwind", "$" + GROUP_KEY_FIELD));
+        pipeline.add(new Document("$match", new Document(GROUP_KEY_FIELD, new Document("$in", new ArrayList<>(groupKeys)))));
+
+        if (countOnly) {
+            pipeline.add(new Document("$group", new Document("_id", "$" + GROUP_KEY_FIELD).append("count", new Document("$sum", 1))));
+        } else {
+            int offset = serviceQuery.getOffset();
+            pipeline.add(new Document("$setWindowFields", new Document("partitionBy", "$" + GROUP_KEY_FIELD)
+                    .append("sortBy", sort.isEmpty() ? new Document("_id", 1) : sort)
+                    .append("output", new Document(GROUP_RANK_FIELD, new Document("$documentNumber", new Document()))
+                            .append(GROUP_COUNT_FIELD, new Document("$count", new Document())))));
+            pipeline.add(new Document("$match", new Document("$or", List.of(
+                    new Document(GROUP_RANK_FIELD, new Document("$gt", offset).append("$lte", offset + serviceQuery.getLimit())),
+                    new Document(GROUP_RANK_FIELD, 1)))));
+            pipeline.add(new Document("$group", new Document("_id", "$" + GROUP_KEY_FIELD)
+                    .append("count", new Document("$first", "$" + GROUP_COUNT_FIELD))
+                    .append("items", new Document("$push", "$$ROOT"))));
+            pipeline.add(new Document("$project", new Document("count", 1)
+                    .append("items", new Document("$filter", new Document("input", "$items")
+                            .append("cond", new Document("$gt", List.of("$$this." + GROUP_RANK_FIELD, offset)))))));
+            Set<String> projectedFields = getProjectedFields(serviceQuery);
+            if (projectedFields != null) {
+                // including only the requested fields drops the temporary ones too; the id is kept as by a find
+                Document projection = new Document("count", 1).append("items._id", 1);
+                for (String field : toProjectionDocument(projectedFields).keySet()) {
+                    projection.append("items." + field, 1);
+                }
+                pipeline.add(new Document("$project", projection));
+            } else {
+                pipeline.add(new Document("$project", new Document("items." + GROUP_KEY_FIELD, 0)
+                        .append("items." + GROUP_RANK_FIELD, 0)
+                        .append("items." + GROUP_COUNT_FIELD, 0)));
+            }
+        }
+
+        return pipeline;
+    }
+
+    // one list per requested key from the groups of the aggregation, keys without matches get an empty list
+    Map<Object, EntityList<V>> toGroupedLists(ServiceQuery<K> serviceQuery, Iterable<Document> groupDocs) {
+        Collection<Object> groupKeys = serviceQuery.getCriteria().get(serviceQuery.getGroupBy());
+        boolean countOnly = serviceQuery.getCountOnly();
+        Map<Object, Document> groupsByKey = new HashMap<>();
+        for (Document groupDoc : groupDocs) {
+            groupsByKey.put(normalizeGroupKey(groupDoc.get("_id")), groupDoc);
+        }
+
+        Map<Object, EntityList<V>> groupedResult = new HashMap<>();
+        for (Object k : groupKeys) {
+            Document groupDoc = groupsByKey.get(normalizeGroupKey(k));
+            List<V> resultPerKey = new ArrayList<>();
+            long count = 0;
+            if (groupDoc != null) {
+                count = ((Number) groupDoc.get("count")).longValue();
+                if (!countOnly) {
+                    for (Document item : groupDoc.getList("items", Document.class)) {
+                        resultPerKey.add(decodeEntity(item));
+                    }
+                }
+            }
+            Long totalItems = serviceQuery.isCountTotalItems() ? capCount(serviceQuery, count) : null;
+            groupedResult.put(k, new EntityList<>(resultPerKey, totalItems, isCountCapped(serviceQuery, totalItems), null));
+        }
+        return groupedResult;
+    }
+
+    private AggregateIterable<Document> aggregate(ServiceQuery<K> serviceQuery, QueryPlan plan, List<Document> pipeline) {
+        MongoCollection<Document> collection = getReadCollection(serviceQuery);
+        ClientSession session = causalSession.get();
+        AggregateIterable<Document> aggregation = (session == null ? collection.aggregate(pipeline) : collection.aggregate(session, pipeline))
+                .allowDiskUse(true);
+        if (serviceQuery.getMaxTime() != null) {
+            aggregation.maxTime(serviceQuery.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        Document hint = getHint(serviceQuery, plan);
+        if (hint != null) {
+            aggregation.hint(hint);
+        }
+        return aggregation;
+    }
+
+    // group keys come back from mongo in their BSON representation, e.g. enums as strings and small numbers as ints
+    private static Object normalizeGroupKey(Object key) {
+        if (key instanceof Enum) {
+            return ((Enum<?>) key).name();
+        }
+        if (key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        return key;
+    }
+
+    protected V decodeEntity(Document document) {
+        CodecRegistry codecRegistry = datastore.getCodecRegistry();
+        BsonDocument bsonDocument = document.toBsonDocument(BsonDocument.class, codecRegistry);
+        return codecRegistry.get(entityClazz).decode(new BsonDocumentReader(bsonDocument), DecoderContext.builder().build());
+    }
+
+    /**
+     * Translates a dotted path of java field names into the field names stored in mongo
+     */
+    protected String toMongoPath(String javaPath) {
+        try {
+            return entityMapper.getFieldPaths(entityClazz).resolve(javaPath).getMongoPath();
+        } catch (RestDslException e) {
+            throw new RestDslException("Cannot find field '" + javaPath + "' in " + entityClazz.getName() + ": " + e.getMessage(),
+                    e, RestDslException.Type.QUERY_ERROR);
+        }
+    }
+
+    protected Document toProjectionDocument(Set<String> projectedFields) {
+        Document projection = new Document();
+        for (String f : projectedFields) {
+            projection.append(toMongoPath(f), 1);
+        }
+        return projection;
+    }
+
+    protected Document toSortDocument(String order) {
+        Document sort = new Document();
+        for (Sort s : parseSortString(order)) {
+            sort.append(toMongoPath(s.getField()), s.getOrder());
+        }
+        return sort;
     }
 
     public V getOne(ServiceQuery<K> serviceQuery) throws RestDslException {
-        return convertToMorphiaQuery(serviceQuery).first(toFindOptions(serviceQuery));
+        if (serviceQuery.getConsistencyToken() != null) {
+            return readCausally(serviceQuery, () -> getOneUnbatched(serviceQuery));
+        }
+        if (isBatchableByIdLookup(serviceQuery)) {
+            return byIdBatchLoader.load(serviceQuery.getIdList().iterator().next());
+        }
+        return getOneUnbatched(serviceQuery);
+    }
+
+    private V getOneUnbatched(ServiceQuery<K> serviceQuery) {
+        try {
+            QueryPlan plan = getQueryPlan(serviceQuery);
+            return convertToMorphiaQuery(serviceQuery, plan).first(toFindOptions(serviceQuery, plan));
+        } catch (MongoExecutionTimeoutException e) {
+            throw toTimeoutException(serviceQuery, e);
+        }
+    }
+
+    // the batch is read with the defaults of the dao: no time limit, no hint and the read preference of the client
+    private boolean isBatchableByIdLookup(ServiceQuery<K> serviceQuery) {
+        return byIdBatchLoader != null
+                && serviceQuery.getIdList() != null && serviceQuery.getIdList().size() == 1
+                && (serviceQuery.getCriteria() == null || serviceQuery.getCriteria().isEmpty())
+                && serviceQuery.getGroupBy() == null
+                && !serviceQuery.getCountOnly()
+                && serviceQuery.getOffset() == 0
+                && serviceQuery.getLimit() > 0
+                && !serviceQuery.isKeysetPagination()
+                && serviceQuery.getMaxTime() == null
+                && serviceQuery.getHint() == null
+                && getReadPreference(serviceQuery) == null
+                && getProjectedFields(serviceQuery) == null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<K, V> getByIds(Collection<K> ids) {
+        Map<K, V> entities = new HashMap<>();
+        Query<V> query = datastore.find(entityClazz).filter(in(entityInfo.getIdFieldName(), ids));
+        LOGGER.debug("Executing batched lookup by {} ids", ids.size());
+        try (MetricSinkTimingWrapper ignored = MetricSinkTimingWrapper.of(metricSink, new MetricName(
+                MONGO_SERVICE_QUERY_METRIC,
+                Map.of(
+                        "collectionName", collectionName,
+                        "queryShape", "IDS-BATCH"
+                )));
+             MorphiaCursor<V> cursor = query.iterator()) {
+            while (cursor.hasNext()) {
+                V entity = cursor.next();
+                entities.put((K) entityMapper.getIdValue(entityClazz, entity), entity);
+            }
+        }
+        return entities;
     }
 
     public long count(ServiceQuery<K> serviceQuery) throws RestDslException {
-        return convertToMorphiaQuery(serviceQuery).count();
+        try {
+            return readCausally(serviceQuery, () -> {
+                QueryPlan plan = getQueryPlan(serviceQuery);
+                return countItems(convertToMorphiaQuery(serviceQuery, plan), plan, serviceQuery);
+            });
+        } catch (MongoExecutionTimeoutException e) {
+            throw toTimeoutException(serviceQuery, e);
+        }
+    }
+
+    /**
+     * Reports the timeout as {@value #MONGO_SERVICE_TIMEOUT_METRIC} by query shape and translates it into a
+     * {@link RestDslException.Type#TIMEOUT}
+     */
+    protected RestDslException toTimeoutException(ServiceQuery<K> serviceQuery, MongoExecutionTimeoutException e) {
+        metricSink.increment(new MetricName(
+                MONGO_SERVICE_TIMEOUT_METRIC,
+                Map.of(
+                        "collectionName", collectionName,
+                        "queryShape", serviceQuery.getQueryShape()
+                )
+        ), 1);
+        return new RestDslException("Query exceeded its time limit of " + serviceQuery.getMaxTime().toMillis() + "ms",
+                e, RestDslException.Type.TIMEOUT);
     }
 
     public int delete(K id) {
-        return Math.toIntExact(datastore.find(entityClazz)
-                .filter(eq("_id", id))
-                .delete(new DeleteOptions().multi(false))
-                .getDeletedCount());
+        try (ClientSession session = startWriteSession()) {
+            int deleted = Math.toIntExact(datastore.find(entityClazz)
+                    .filter(eq("_id", id))
+                    .delete(new DeleteOptions().multi(false).clientSession(session))
+                    .getDeletedCount());
+            recordWrite(session);
+            return deleted;
+        } finally {
+            afterWrite(Collections.singletonList(id));
+        }
     }
 
     Query<V> convertToMorphiaQuery(ServiceQuery<K> serviceQuery) throws RestDslException {
-        validateQuery(serviceQuery);
+        return convertToMorphiaQuery(serviceQuery, getQueryPlan(serviceQuery));
+    }
+
+    private Query<V> convertToMorphiaQuery(ServiceQuery<K> serviceQuery, QueryPlan plan) throws RestDslException {
+        return convertToMorphiaQuery(serviceQuery, plan, true);
+    }
+
+    /**
+     * @return the query without the continuation token, matching all pages of a keyset paginated query
+     */
+    Query<V> convertToMorphiaCountQuery(ServiceQuery<K> serviceQuery) throws RestDslException {
+        return convertToMorphiaQuery(serviceQuery, getQueryPlan(serviceQuery), false);
+    }
+
+    // without the keyset filter the query matches all pages, e.g. to count them
+    private Query<V> convertToMorphiaQuery(ServiceQuery<K> serviceQuery, QueryPlan plan, boolean keysetFilter) throws RestDslException {
+        validateQuery(serviceQuery, plan);
 
         Query<V> mongoQuery = datastore.find(entityClazz);
 
@@ -266,121 +1121,334 @@ public class MongoBaseServiceDao<V, K> implements BaseServiceDao<V, K>{
             }
         }
 
-        if (serviceQuery.getCriteria() != null) {
-            Multimap<String, String> syncMatchToCriteriaKeys = HashMultimap.create();
-            Set<String> syncMatch = serviceQuery.getSyncMatch() == null ? Collections.emptySet() : serviceQuery.getSyncMatch();
-
-            for (String k : serviceQuery.getCriteria().keySet()) {
-                boolean forSyncMatch = false;
-                for (String sm : syncMatch) {
-                    if (k.startsWith(sm + ".")) {
-                        syncMatchToCriteriaKeys.put(sm, k);
-                        forSyncMatch = true;
-                    }
-                }
-
-                if (forSyncMatch) {
-                    continue;
-                }
-
-                Collection<Object> objs = serviceQuery.getCriteria().get(k);
-                mongoQuery.filter(prepareFilters(k, objs));
+        for (QueryPlan.CriterionTemplate criterion : plan.getCriteria()) {
+            Filter filter = criterion.bind(serviceQuery.getCriteria().get(criterion.getCriteriaKey()));
+            if (filter != null) {
+                mongoQuery.filter(filter);
             }
+        }
 
-            if (!syncMatchToCriteriaKeys.isEmpty()) {
-                for (String k : syncMatchToCriteriaKeys.keySet()) {
-                    Collection<String> criteriaKeys = syncMatchToCriteriaKeys.get(k);
-                    List<Filter> elemMatchFilters = new ArrayList<>();
-                    for (String criteriaKey : criteriaKeys) {
-                        elemMatchFilters.addAll(List.of(prepareFilters(criteriaKey.substring(k.length() + 1), serviceQuery.getCriteria().get(criteriaKey))));
-                    }
-
-                    mongoQuery.filter(elemMatch(k, elemMatchFilters.toArray(new Filter[0])));
+        for (Map.Entry<String, List<QueryPlan.CriterionTemplate>> e : plan.getElemMatchCriteria().entrySet()) {
+            List<Filter> elemMatchFilters = new ArrayList<>();
+            for (QueryPlan.CriterionTemplate criterion : e.getValue()) {
+                Filter filter = criterion.bind(serviceQuery.getCriteria().get(criterion.getCriteriaKey()));
+                if (filter != null) {
+                    elemMatchFilters.add(filter);
                 }
             }
+            mongoQuery.filter(elemMatch(e.getKey(), elemMatchFilters.toArray(new Filter[0])));
+        }
+
+        if (keysetFilter && hasContinuationToken(serviceQuery)) {
+            mongoQuery.filter(toKeysetFilter(serviceQuery));
         }
 
         return mongoQuery;
     }
 
-    private Filter[] prepareFilters(String field, Collection<Object> criteria) {
-        List<Filter> filters = new ArrayList<>();
-        if (criteria.size() == 1) {
-            // range query
-            Object val = criteria.iterator().next();
-            // TODO: rather operatte on ParsedField and have a method to determine whether it's some operation
-            if (field.contains(">") || field.contains("<")) {
-                final String[] parts = field.trim().split(" ");
-                if (parts.length < 2) {
-                    throw new IllegalArgumentException("'" + field + "' is not a valid filter condition");
-                }
-                String operator = parts[1];
-                if ("<".equals(operator)) {
-                    filters.add(lt(parts[0], val));
-                } else if ("<=".equals(operator)) {
-                    filters.add(lte(parts[0], val));
-                } else if (">=".equals(operator)) {
-                    filters.add(gte(parts[0], val));
-                } else if (">".equals(operator)) {
-                    filters.add(gt(parts[0], val));
-                }
-            } else if (val instanceof ServiceQueryReservedValue) {
-                if (val == ServiceQueryReservedValue.EXISTS) {
-                    filters.add(exists(field));
-                } else if (val == ServiceQueryReservedValue.NULL) {
-                    filters.add(eq(field, null));
-                } else if (val == ServiceQueryReservedValue.ANY) {
-                    // no op
+    private QueryPlan getQueryPlan(ServiceQuery<K> serviceQuery) {
+        List<Object> key = QueryPlan.getKey(serviceQuery);
+        QueryPlan plan = queryPlanCache.getIfPresent(key);
+        reportQueryPlanCacheAccess(plan != null);
+        if (plan == null) {
+            String order = getEffectiveOrder(serviceQuery);
+            Sort[] sort = order == null ? null : parseSortString(order);
+            plan = QueryPlan.compile(serviceQuery, isSafeQuery(serviceQuery), selectIndex(serviceQuery, sort), sort);
+            queryPlanCache.put(key, plan);
+        }
+        return plan;
+    }
+
+    // criteria with an operator are ranges, all others match one or several values
+    private String selectIndex(ServiceQuery<K> serviceQuery, Sort[] sort) {
+        Set<String> equalityFields = new HashSet<>();
+        Set<String> rangeFields = new HashSet<>();
+        if (serviceQuery.getIdList() != null && !serviceQuery.getIdList().isEmpty()) {
+            equalityFields.add(entityInfo.getIdFieldName());
+        }
+        if (serviceQuery.getCriteria() != null) {
+            for (String key : serviceQuery.getCriteria().keySet()) {
+                String field = ServiceQueryUtil.parseQueryField(key).getFieldName();
+                if (field.equals(key.trim())) {
+                    equalityFields.add(field);
                 } else {
-                    throw new RestDslException("Unhandled reserved value: " + val, RestDslException.Type.GENERAL_ERROR);
+                    rangeFields.add(field);
                 }
-            } else {
-                filters.add(eq(field, val));
             }
-        } else {
-            // TODO: deal nicely with other operations
-            if (field.contains("<>")) {
-                filters.add(nin(ServiceQueryUtil.parseQueryField(field).getFieldName(), criteria.toArray(new Object[0])));
-            } else {
-                // defensive copy here to avoid issues with groupBy
-                filters.add(in(field, new ArrayList<>(criteria)));
+        }
+        List<String> sortFields = new ArrayList<>();
+        if (sort != null) {
+            for (Sort s : sort) {
+                sortFields.add(s.getField());
             }
         }
-        return filters.toArray(new Filter[0]);
+        return entityIndexInfo.selectIndex(equalityFields, rangeFields, sortFields);
     }
 
-    // optimization. If the returned set is smaller than limit, that means we can calculate size without countAll()
-    private Long getTotalItemsCnt(Query<V> q, ServiceQuery<?> serviceQuery, List<V> results) {
+    /**
+     * @return the declared index to hint: the one asked for by the query, the one pinned for its shape or, if hints
+     * are enabled, the selected one; null to leave the choice to the planner
+     */
+    private String getHintedIndex(ServiceQuery<K> serviceQuery, QueryPlan plan) {
+        String hint = serviceQuery.getHint();
+        if (hint != null) {
+            if (!entityIndexInfo.getIndexesMap().contains(hint)) {
+                throw new RestDslException("Hinted index '" + hint + "' is not declared for " + entityClazz.getName() +
+                        ", declared indexes are [(" + Joiner.on("), (").join(entityIndexInfo.getIndexesMap()) + ")]",
+                        RestDslException.Type.QUERY_ERROR);
+            }
+            return hint;
+        }
+        String pinned = pinnedIndexes.get(serviceQuery.getQueryShape());
+        if (pinned != null) {
+            return pinned;
+        }
+        if (!indexHints) {
+            return null;
+        }
+        return (plan == null ? getQueryPlan(serviceQuery) : plan).getSelectedIndex();
+    }
+
+    /**
+     * @return keys of the index to hint as stored in mongo, null to leave the choice to the planner
+     */
+    Document getHint(ServiceQuery<K> serviceQuery) {
+        return getHint(serviceQuery, null);
+    }
+
+    /**
+     * @param plan of the query if already resolved, null to look it up only if needed
+     */
+    private Document getHint(ServiceQuery<K> serviceQuery, QueryPlan plan) {
+        String index = getHintedIndex(serviceQuery, plan);
+        return index == null ? null : entityIndexInfo.getIndexKey(index);
+    }
+
+    /**
+     * @return read preference of the query's route or of the routing rules, null for the client's default
+     */
+    ReadPreference getReadPreference(ServiceQuery<K> serviceQuery) {
+        ReadRoute route = serviceQuery.getReadRoute();
+        if (route == null && readRouting != null) {
+            route = readRouting.getRoute(collectionName, serviceQuery.getQueryShape());
+        }
+        return route == null ? null : toReadPreference(route);
+    }
+
+    private MongoCollection<Document> getReadCollection(ServiceQuery<K> serviceQuery) {
+        MongoCollection<Document> collection = datastore.getCollection(entityClazz).withDocumentClass(Document.class);
+        ReadPreference readPreference = getReadPreference(serviceQuery);
+        return readPreference == null ? collection : collection.withReadPreference(readPreference);
+    }
+
+    static ReadPreference toReadPreference(ReadRoute route) {
+        if (route.getMode() == ReadRoute.Mode.PRIMARY) {
+            return ReadPreference.primary();
+        }
+        List<TagSet> tagSets = new ArrayList<>();
+        for (Map<String, String> tags : route.getTagSets()) {
+            List<Tag> tagList = new ArrayList<>();
+            tags.forEach((name, value) -> tagList.add(new Tag(name, value)));
+            tagSets.add(new TagSet(tagList));
+        }
+        TaggableReadPreference readPreference = route.getMaxStaleness() == null
+                ? ReadPreference.valueOf(route.getMode().getName(), tagSets)
+                : ReadPreference.valueOf(route.getMode().getName(), tagSets, route.getMaxStaleness().toMillis(), TimeUnit.MILLISECONDS);
+        if (route.isHedged()) {
+            readPreference = readPreference.withHedgeOptions(ReadPreferenceHedgeOptions.builder().enabled(true).build());
+        }
+        return readPreference;
+    }
+
+    private void reportQueryPlanCacheAccess(boolean hit) {
+        metricSink.increment(new MetricName(
+                MONGO_SERVICE_QUERY_PLAN_CACHE_METRIC,
+                Map.of(
+                        "collectionName", collectionName,
+                        "lookup", hit ? "hit" : "miss"
+                )
+        ), 1);
+    }
+
+    /*
+     * Matches everything that sorts after the position of the continuation token, i.e. for order 'a,-b,id':
+     * a > va || (a == va && b < vb) || (a == va && b == vb && id > vid)
+     */
+    private Filter toKeysetFilter(ServiceQuery<K> serviceQuery) {
+        ContinuationToken token = ContinuationToken.decode(serviceQuery.getAfter());
+        Sort[] sorts = parseSortString(getEffectiveOrder(serviceQuery));
+        if (!token.getOrder().equals(Strings.nullToEmpty(serviceQuery.getOrder())) || token.getValues().size() != sorts.length) {
+            throw new RestDslException("Continuation token was created for order '" + token.getOrder() +
+                    "', but query has order '" + Strings.nullToEmpty(serviceQuery.getOrder()) + "'", RestDslException.Type.PARAMS_ERROR);
+        }
+
+        List<Filter> alternatives = new ArrayList<>();
+        List<Filter> equalPrefix = new ArrayList<>();
+        for (int i = 0; i < sorts.length; i++) {
+            String field = sorts[i].getField();
+            Object value = token.getValues().get(i);
+            Filter sortsAfter = sortsAfter(field, value, sorts[i].getOrder() < 0);
+            if (sortsAfter != null) {
+                List<Filter> alternative = new ArrayList<>(equalPrefix);
+                alternative.add(sortsAfter);
+                alternatives.add(alternative.size() == 1 ? sortsAfter : and(alternative.toArray(new Filter[0])));
+            }
+            equalPrefix.add(eq(field, value));
+        }
+
+        if (alternatives.isEmpty()) {
+            // nothing can sort after the token
+            return in(entityInfo.getIdFieldName(), Collections.emptyList());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : or(alternatives.toArray(new Filter[0]));
+    }
+
+    // mongo sorts nulls first
+    private static Filter sortsAfter(String field, Object value, boolean descending) {
+        if (value == null) {
+            return descending ? null : ne(field, null);
+        }
+        return descending ? or(lt(field, value), eq(field, null)) : gt(field, value);
+    }
+
+    private Long getTotalItemsCnt(Query<V> q, QueryPlan plan, ServiceQuery<K> serviceQuery, int resultsSize) {
         if (!serviceQuery.isCountTotalItems()) {
             return null;
         }
 
-        if (results.size() > serviceQuery.getLimit()) {
+        Long totalItems = getTotalItemsCntWithoutCounting(serviceQuery, resultsSize);
+        return totalItems != null ? totalItems : countItems(q, plan, serviceQuery);
+    }
+
+    private long countItems(Query<V> q, QueryPlan plan, ServiceQuery<K> serviceQuery) {
+        Cache<List<Object>, Long> cache = countCache;
+        // cached counts may predate the write of the consistency token
+        if (cache == null || causalSession.get() != null) {
+            return countItemsUncached(q, plan, serviceQuery);
+        }
+
+        List<Object> key = serviceQuery.getCountKey();
+        Long cached = cache.getIfPresent(key);
+        reportCountCacheAccess(cached != null);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = countCacheGeneration.get();
+        long count = countItemsUncached(q, plan, serviceQuery);
+        cache.put(key, count);
+        if (generation != countCacheGeneration.get()) {
+            // a write happened meanwhile, the count may be outdated
+            cache.invalidate(key);
+        }
+        return count;
+    }
+
+    private void reportCountCacheAccess(boolean hit) {
+        metricSink.increment(new MetricName(
+                MONGO_SERVICE_COUNT_CACHE_METRIC,
+                Map.of(
+                        "collectionName", collectionName,
+                        "result", hit ? "hit" : "miss"
+                )
+        ), 1);
+    }
+
+    private long countItemsUncached(Query<V> q, QueryPlan plan, ServiceQuery<K> serviceQuery) {
+        CountMode countMode = serviceQuery.getCountMode();
+        Duration maxTime = serviceQuery.getMaxTime();
+        if (isCountedFromMetadata(serviceQuery)) {
+            EstimatedDocumentCountOptions options = new EstimatedDocumentCountOptions();
+            if (maxTime != null) {
+                options.maxTime(maxTime.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            return getReadCollection(serviceQuery).estimatedDocumentCount(options);
+        }
+        CountOptions options = new CountOptions();
+        if (countMode.getType() == CountMode.Type.CAPPED) {
+            options.limit(countMode.getCap());
+        }
+        if (maxTime != null) {
+            options.maxTime(maxTime.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        Document hint = getHint(serviceQuery, plan);
+        if (hint != null) {
+            options.hint(hint);
+        }
+        ReadPreference readPreference = getReadPreference(serviceQuery);
+        if (readPreference != null) {
+            options.readPreference(readPreference);
+        }
+        ClientSession session = causalSession.get();
+        if (session != null) {
+            options.clientSession(session);
+        }
+        if (hasContinuationToken(serviceQuery)) {
+            // totalItems counts all pages, not only those after the token
+            q = convertToMorphiaQuery(serviceQuery, plan != null ? plan : getQueryPlan(serviceQuery), false);
+        }
+        return q.count(options);
+    }
+
+    // estimated counts of unfiltered queries come from the collection metadata instead of a scan
+    static boolean isCountedFromMetadata(ServiceQuery<?> serviceQuery) {
+        return serviceQuery.getCountMode().getType() == CountMode.Type.ESTIMATED
+                && serviceQuery.getIdList() == null
+                && (serviceQuery.getCriteria() == null || serviceQuery.getCriteria().isEmpty());
+    }
+
+    // a keyset paginated query past its first page
+    static boolean hasContinuationToken(ServiceQuery<?> serviceQuery) {
+        return !Strings.isNullOrEmpty(serviceQuery.getAfter());
+    }
+
+    // null unless counting may have stopped at the cap, then totalItems is a lower bound
+    // counts not stopped at the cap by the database, e.g. of an aggregation, are cut to it
+    private static long capCount(ServiceQuery<?> serviceQuery, long count) {
+        CountMode countMode = serviceQuery.getCountMode();
+        return countMode.getType() == CountMode.Type.CAPPED ? Math.min(count, countMode.getCap()) : count;
+    }
+
+    private static Boolean isCountCapped(ServiceQuery<?> serviceQuery, Long totalItems) {
+        CountMode countMode = serviceQuery.getCountMode();
+        if (countMode.getType() == CountMode.Type.CAPPED && totalItems != null && totalItems >= countMode.getCap()) {
+            return Boolean.TRUE;
+        }
+        return null;
+    }
+
+    // optimization. If the returned set is smaller than limit, that means we can calculate size without countAll()
+    // returns null if the items have to be counted
+    Long getTotalItemsCntWithoutCounting(ServiceQuery<?> serviceQuery, int resultsSize) {
+        if (resultsSize > serviceQuery.getLimit()) {
             throw new RestDslException("Implementation error: results size must be not greater than limit, was " +
-                    results.size() + " but limit was: " + serviceQuery.getLimit());
+                    resultsSize + " but limit was: " + serviceQuery.getLimit());
         }
 
-        if (serviceQuery.getCountOnly()) {
-            return q.count();
+        // pages after a continuation token do not tell how many entities preceded them
+        if (serviceQuery.getCountOnly() || hasContinuationToken(serviceQuery)) {
+            return null;
         }
 
         // if getLimit == 0 then we need to count anyway
-        if (results.isEmpty() && serviceQuery.getOffset() == 0 && serviceQuery.getLimit() > 0) {
+        if (resultsSize == 0 && serviceQuery.getOffset() == 0 && serviceQuery.getLimit() > 0) {
             return 0L;
         }
 
         // if size is equal 0 it could be that offset is too big, or we just have 0 elements in total - must count
-        if (!results.isEmpty() && results.size() < serviceQuery.getLimit()) {
-            return (long) (serviceQuery.getOffset() + results.size());
-        } else {
-            return q.count();
+        if (resultsSize > 0 && resultsSize < serviceQuery.getLimit()) {
+            return (long) (serviceQuery.getOffset() + resultsSize);
         }
+        return null;
     }
 
     public void validateQuery(ServiceQuery<K> serviceQuery) throws RestDslException {
+        validateQuery(serviceQuery, getQueryPlan(serviceQuery));
+    }
+
+    private void validateQuery(ServiceQuery<K> serviceQuery, QueryPlan plan) throws RestDslException {
         if (serviceQuery.isIndexValidation()) {
-            boolean safeQuery = isSafeQuery(serviceQuery);
-            if (!safeQuery) {
+            if (!plan.isIndexSafe()) {
                 throw new RestDslException("Query criterion for fields " + serviceQuery.getCriteria().keySet() +
                         " don't match declared indexes  [(" + Joiner.on("), (").join(entityIndexInfo.getIndexesMap()) +
                         ")] for class " + entityClazz.getName() +
@@ -393,6 +1461,14 @@ public class MongoBaseServiceDao<V, K> implements BaseServiceDao<V, K>{
             throw new RestDslException("Query limit must be positive", RestDslException.Type.QUERY_ERROR);
         }
 
+        if (serviceQuery.isKeysetPagination() && serviceQuery.getOffset() != 0) {
+            throw new RestDslException("Query cannot have both offset and after", RestDslException.Type.QUERY_ERROR);
+        }
+
+        if (serviceQuery.isKeysetPagination() && serviceQuery.getGroupBy() != null) {
+            throw new RestDslException("Keyset pagination with after is not supported for groupBy queries", RestDslException.Type.QUERY_ERROR);
+        }
+
         // for primary keys it could also work, but it does not make sense to group on them since they are unique
         if (serviceQuery.getGroupBy() != null &&
                 (serviceQuery.getCriteria() == null || !serviceQuery.getCriteria().containsKey(serviceQuery.getGroupBy()))) {
@@ -403,7 +1479,72 @@ public class MongoBaseServiceDao<V, K> implements BaseServiceDao<V, K>{
     }
 
     public ServiceQueryInfo<K> getServiceQueryInfo(ServiceQuery<K> serviceQuery) {
-        return new ServiceQueryInfo<>(serviceQuery, isSafeQuery(serviceQuery));
+        return getServiceQueryInfo(serviceQuery, getQueryPlan(serviceQuery));
+    }
+
+    private ServiceQueryInfo<K> getServiceQueryInfo(ServiceQuery<K> serviceQuery, QueryPlan plan) {
+        String hinted = getHintedIndex(serviceQuery, plan);
+        String index = hinted != null ? hinted : plan.getSelectedIndex();
+        return new ServiceQueryInfo<>(serviceQuery, isSafeQuery(serviceQuery), index, hinted != null);
+    }
+
+    /**
+     * Runs the find of the query in execution stats mode. For groupBy queries this is the find over all group keys,
+     * for count only queries the find without limit.
+     */
+    @Override
+    public ServiceQueryInfo<K> explain(ServiceQuery<K> serviceQuery) throws RestDslException {
+        QueryPlan plan = getQueryPlan(serviceQuery);
+        ServiceQueryInfo<K> info = getServiceQueryInfo(serviceQuery, plan);
+        Map<String, Object> explain;
+        try {
+            explain = convertToMorphiaQuery(serviceQuery, plan).explain(toFindOptions(serviceQuery, plan), ExplainVerbosity.EXECUTION_STATS);
+        } catch (MongoExecutionTimeoutException e) {
+            throw toTimeoutException(serviceQuery, e);
+        }
+        return new ServiceQueryInfo<>(serviceQuery, info.isSafeQuery(), info.getIndex(), info.isIndexHinted(), toExplanation(explain));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static QueryExplanation toExplanation(Map<String, Object> explain) {
+        Map<String, Object> queryPlanner = (Map<String, Object>) explain.get("queryPlanner");
+        Map<String, Object> winningPlan = (Map<String, Object>) queryPlanner.get("winningPlan");
+        // the slot based engine of mongo 5+ nests the classic plan
+        if (winningPlan.containsKey("queryPlan")) {
+            winningPlan = (Map<String, Object>) winningPlan.get("queryPlan");
+        }
+        List<String> stages = new ArrayList<>();
+        List<String> indexNames = new ArrayList<>();
+        collectStages(winningPlan, stages, indexNames);
+
+        Map<String, Object> stats = (Map<String, Object>) explain.get("executionStats");
+        return new QueryExplanation(stages, indexNames,
+                getLong(stats, "totalKeysExamined"),
+                getLong(stats, "totalDocsExamined"),
+                getLong(stats, "nReturned"),
+                getLong(stats, "executionTimeMillis"));
+    }
+
+    // depth first, so a single chain of stages reads from the root down
+    @SuppressWarnings("unchecked")
+    private static void collectStages(Map<String, Object> stage, List<String> stages, List<String> indexNames) {
+        stages.add(String.valueOf(stage.get("stage")));
+        if (stage.get("indexName") != null) {
+            indexNames.add(stage.get("indexName").toString());
+        }
+        if (stage.get("inputStage") != null) {
+            collectStages((Map<String, Object>) stage.get("inputStage"), stages, indexNames);
+        }
+        if (stage.get("inputStages") != null) {
+            for (Object inputStage : (List<Object>) stage.get("inputStages")) {
+                collectStages((Map<String, Object>) inputStage, stages, indexNames);
+            }
+        }
+    }
+
+    private static long getLong(Map<String, Object> document, String key) {
+        Object value = document == null ? null : document.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
     }
 
     private boolean isSafeQuery(ServiceQuery<K> serviceQuery) {
@@ -425,7 +1566,7 @@ public class MongoBaseServiceDao<V, K> implements BaseServiceDao<V, K>{
     }
 
     // PRIVATE
-    private MetricSinkTimingWrapper getQueryShapeWrapper(ServiceQuery<K> serviceQuery) {
+    MetricSinkTimingWrapper getQueryShapeWrapper(ServiceQuery<K> serviceQuery) {
         MetricName name = new MetricName(
                 MONGO_SERVICE_QUERY_METRIC,
                 Map.of(
@@ -5,14 +5,25 @@ import dev.morphia.mapping.Mapper;
 import dev.morphia.mapping.codec.pojo.EntityModel;
 import dev.morphia.mapping.codec.pojo.PropertyModel;
 import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.types.FieldPathRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MongoEntityFieldMapper implements EntityFieldMapper {
 
     private final Mapper mapper;
+    // per mapper, as paths resolve through the entity models of its datastore
+    private final Map<Class<?>, FieldPathRegistry> fieldPaths = new ConcurrentHashMap<>();
 
     public MongoEntityFieldMapper(Datastore datastore) {
         this.mapper = datastore.getMapper();
     }
+
+    @Override
+    public FieldPathRegistry getFieldPaths(Class<?> entityClazz) {
+        return fieldPaths.computeIfAbsent(entityClazz, clazz -> new FieldPathRegistry(this, clazz));
+    }
     @Override
     public Class<?> getFieldType(Class<?> cl, String fieldName) {
         PropertyModel nestedField = getPropertyModel(cl, fieldName);
@@ -25,6 +36,16 @@ public class MongoEntityFieldMapper implements EntityFieldMapper {
         return nestedField.getNormalizedType();
     }
 
+    @Override
+    public String getMappedFieldName(Class<?> cl, String fieldName) {
+        return getPropertyModel(cl, fieldName).getMappedName();
+    }
+
+    @Override
+    public String getJavaFieldName(Class<?> cl, String fieldName) {
+        return getPropertyModel(cl, fieldName).getName();
+    }
+
     @Override
     public String getIdFieldName(Class<?> clazz) {
         EntityModel entityModel = mapper.getEntityModel(clazz);
@@ -60,4 +81,18 @@ public class MongoEntityFieldMapper implements EntityFieldMapper {
         EntityModel entityModel = mapper.getEntityModel(clazz);
         entityModel.getIdProperty().setValue(instance, idValue);
     }
+
+    @Override
+    public String getVersionFieldName(Class<?> clazz) {
+        PropertyModel versionProperty = mapper.getEntityModel(clazz).getVersionProperty();
+        return versionProperty == null ? null : versionProperty.getName();
+    }
+
+    @Override
+    public Long getVersionValue(Class<?> clazz, Object instance) {
+        PropertyModel versionProperty = mapper.getEntityModel(clazz).getVersionProperty();
+        Number version = versionProperty == null ? null : (Number) versionProperty.getValue(instance);
+        // morphia starts versions at 1, a primitive version of 0 was never read from the db
+        return version == null || version.longValue() == 0 ? null : version.longValue();
+    }
 }
@@ -4,14 +4,27 @@ import com.mongodb.DuplicateKeyException;
 import com.mongodb.ErrorCategory;
 import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoException;
+import com.mongodb.MongoExecutionTimeoutException;
 import com.mongodb.MongoWriteException;
 import com.mongodb.WriteError;
+import com.mongodb.bulk.BulkWriteInsert;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.UpdateResult;
 import dev.morphia.Datastore;
 import dev.morphia.DeleteOptions;
+import dev.morphia.InsertOneOptions;
 import dev.morphia.ModifyOptions;
 import dev.morphia.UpdateOptions;
+import dev.morphia.query.CountOptions;
 import dev.morphia.query.Query;
 import dev.morphia.query.updates.UpdateOperator;
 import dev.morphia.query.updates.UpdateOperators;
@@ -19,12 +32,23 @@ import net.researchgate.restdsl.exceptions.RestDslException;
 import net.researchgate.restdsl.metrics.MetricSink;
 import net.researchgate.restdsl.metrics.NoOpMetricSink;
 import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.BulkItemResult;
+import net.researchgate.restdsl.results.BulkWriteResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static dev.morphia.query.filters.Filters.eq;
 
 /**
  * This dao exposes full CRUD.
@@ -32,12 +56,20 @@ import java.util.Map;
  * If you have more challenging businessLogic, consider using a {@link MongoBaseServiceDao} and implement
  * write operations yourself.
  *
+ * <p>
+ * Entities with a dev.morphia.annotations.Version field are written optimistically: updates increment the version
+ * and, given {@link ServiceQuery#getExpectedVersion()}, only apply to the entity with that version, in the same
+ * single write. Otherwise they fail with a {@link RestDslException.Type#CONFLICT}.
+ *
  * @param <V> Type of the entity
  * @param <K> Type of the entity's id field
  */
 @SuppressWarnings("WeakerAccess")
 public class MongoServiceDao<V, K> extends MongoBaseServiceDao<V, K> implements PersistentServiceDao<V, K> {
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoServiceDao.class);
+    public static final int DEFAULT_BULK_WRITE_BATCH_SIZE = 1000;
+
+    private int bulkWriteBatchSize = DEFAULT_BULK_WRITE_BATCH_SIZE;
 
     public MongoServiceDao(Datastore datastore, Class<V> entityClazz) {
         this(datastore, entityClazz, NoOpMetricSink.INSTANCE);
@@ -95,28 +127,178 @@ public class MongoServiceDao<V, K> extends MongoBaseServiceDao<V, K> implements
 
     @Override
     public int delete(ServiceQuery<K> serviceQuery) throws RestDslException {
+        validateDeleteQuery(serviceQuery);
+        preDelete(serviceQuery);
+        Query<V> query = convertToMorphiaQuery(serviceQuery);
+        try (ClientSession session = startWriteSession()) {
+            int deleted = Math.toIntExact(query.delete(new DeleteOptions().multi(true).clientSession(session)).getDeletedCount());
+            recordWrite(session);
+            return deleted;
+        } finally {
+            afterWrite(serviceQuery.getIdList());
+        }
+    }
+
+    static void validateDeleteQuery(ServiceQuery<?> serviceQuery) throws RestDslException {
         if ((serviceQuery.getCriteria() == null || serviceQuery.getCriteria().isEmpty())
                 && (serviceQuery.getIdList() == null || serviceQuery.getIdList().isEmpty())) {
             throw new RestDslException("Deletion query should either provide ids or criteria", RestDslException.Type.QUERY_ERROR);
         }
-        preDelete(serviceQuery);
-        Query<V> query = convertToMorphiaQuery(serviceQuery);
-        return Math.toIntExact(query.delete(new DeleteOptions().multi(true)).getDeletedCount());
     }
 
     @Override
     public V save(V entity) {
         prePersist(entity);
-        try {
-            datastore.save(entity);
+        try (ClientSession session = startWriteSession()) {
+            datastore.save(entity, new InsertOneOptions().clientSession(session));
+            recordWrite(session);
         } catch (DuplicateKeyException|MongoWriteException|MongoBulkWriteException e) {
             throw mapMongoExceptions(e);
+        } catch (ConcurrentModificationException e) {
+            // morphia checks the version of the entity when saving
+            throw new RestDslException(e.getMessage(), e, RestDslException.Type.CONFLICT);
+        } finally {
+            afterWrite(getWrittenIds(entity));
         }
         return entity;
     }
 
+    /**
+     * Number of entities of {@link #saveAll(List)} sent to mongo in one unordered bulk write
+     */
+    protected void setBulkWriteBatchSize(int bulkWriteBatchSize) {
+        if (bulkWriteBatchSize < 1) {
+            throw new IllegalArgumentException("Bulk write batch size must be positive, but was " + bulkWriteBatchSize);
+        }
+        this.bulkWriteBatchSize = bulkWriteBatchSize;
+    }
+
+    /**
+     * Inserts entities without id and replaces or inserts the others by id, in unordered bulk writes of
+     * {@link #setBulkWriteBatchSize(int)} entities. {@link #prePersist} is called per entity, failures of
+     * single entities, e.g. duplicate keys, are reported per entity as mapped by {@link #mapMongoExceptions}.
+     * Versions of entities are not checked.
+     */
+    @Override
+    public BulkWriteResult<K> saveAll(List<V> entities) {
+        List<BulkItemResult<K>> items = new ArrayList<>();
+        List<Integer> batch = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            V entity = entities.get(i);
+            try {
+                prePersist(entity);
+            } catch (RuntimeException e) {
+                items.add(BulkItemResult.failed(i, getIdValue(entity), e));
+                continue;
+            }
+            batch.add(i);
+            if (batch.size() == bulkWriteBatchSize) {
+                items.addAll(bulkWrite(entities, batch));
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            items.addAll(bulkWrite(entities, batch));
+        }
+        return new BulkWriteResult<>(items);
+    }
+
+    // writes the entities at the given positions of the request in one unordered bulk write
+    private List<BulkItemResult<K>> bulkWrite(List<V> entities, List<Integer> batch) {
+        List<WriteModel<V>> models = new ArrayList<>(batch.size());
+        for (int index : batch) {
+            V entity = entities.get(index);
+            K id = getIdValue(entity);
+            models.add(id == null
+                    ? new InsertOneModel<>(entity)
+                    : new ReplaceOneModel<>(Filters.eq("_id", id), entity, new ReplaceOptions().upsert(true)));
+        }
+
+        MongoCollection<V> collection = datastore.getCollection(entityClazz);
+        BulkWriteOptions options = new BulkWriteOptions().ordered(false);
+        com.mongodb.bulk.BulkWriteResult result;
+        Map<Integer, RuntimeException> errors = new HashMap<>();
+        try (ClientSession session = startWriteSession()) {
+            try {
+                result = session == null ? collection.bulkWrite(models, options) : collection.bulkWrite(session, models, options);
+            } catch (MongoBulkWriteException e) {
+                result = e.getWriteResult();
+                for (WriteError error : e.getWriteErrors()) {
+                    errors.put(error.getIndex(), mapMongoExceptions(new MongoWriteException(error, e.getServerAddress())));
+                }
+            }
+            recordWrite(session);
+        } catch (MongoException e) {
+            // the whole batch failed, e.g. the connection was lost
+            RuntimeException mapped = mapMongoExceptions(e);
+            List<BulkItemResult<K>> failed = new ArrayList<>();
+            for (int index : batch) {
+                failed.add(BulkItemResult.failed(index, getIdValue(entities.get(index)), mapped));
+            }
+            return failed;
+        } finally {
+            afterWrite(getWrittenIds(entities, batch));
+        }
+
+        Set<Integer> created = new HashSet<>();
+        for (BulkWriteInsert insert : result.getInserts()) {
+            created.add(insert.getIndex());
+        }
+        for (BulkWriteUpsert upsert : result.getUpserts()) {
+            created.add(upsert.getIndex());
+        }
+        List<BulkItemResult<K>> items = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            int index = batch.get(i);
+            K id = getIdValue(entities.get(index));
+            RuntimeException error = errors.get(i);
+            if (error != null) {
+                items.add(BulkItemResult.failed(index, id, error));
+            } else if (created.contains(i)) {
+                items.add(BulkItemResult.created(index, id));
+            } else {
+                items.add(BulkItemResult.updated(index, id));
+            }
+        }
+        return items;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K getIdValue(V entity) {
+        return (K) getEntityMapper().getIdValue(entityClazz, entity);
+    }
+
+    // ids are known after the write, inserted entities get theirs when they are encoded
+    private Collection<K> getWrittenIds(List<V> entities, List<Integer> batch) {
+        List<K> ids = new ArrayList<>(batch.size());
+        for (int index : batch) {
+            K id = getIdValue(entities.get(index));
+            if (id == null) {
+                return null;
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
     @Override
     public V patch(ServiceQuery<K> q, Map<String, Object> patchedFields) throws RestDslException {
+        return findAndModify(q, toPatchOperators(withoutVersion(patchedFields)));
+    }
+
+    // the version is incremented by the update, see ServiceQuery#getExpectedVersion() for checking it
+    Map<String, Object> withoutVersion(Map<String, Object> patchedFields) {
+        String versionField = entityInfo.getVersionFieldName();
+        if (versionField == null || !patchedFields.containsKey(versionField)) {
+            return patchedFields;
+        }
+        Map<String, Object> fields = new HashMap<>(patchedFields);
+        fields.remove(versionField);
+        return fields;
+    }
+
+    // null values unset the field
+    static List<UpdateOperator> toPatchOperators(Map<String, Object> patchedFields) {
         List<UpdateOperator> ops = new ArrayList<>();
         for (Map.Entry<String, Object> e : patchedFields.entrySet()) {
             String key = e.getKey();
@@ -127,13 +309,23 @@ public class MongoServiceDao<V, K> extends MongoBaseServiceDao<V, K> implements
                 ops.add(UpdateOperators.unset(key));
             }
         }
-        return findAndModify(q, ops);
+        return ops;
     }
 
     protected UpdateResult update(ServiceQuery<K> q, List<UpdateOperator> updateOperations) throws RestDslException {
         preUpdate(q, updateOperations);
-        Query<V> morphiaQuery = convertToMorphiaQuery(q);
-        return morphiaQuery.update(new UpdateOptions().multi(true), updateOperations.toArray(new UpdateOperator[0]));
+        Query<V> morphiaQuery = withExpectedVersion(convertToMorphiaQuery(q), q);
+        try (ClientSession session = startWriteSession()) {
+            UpdateResult result = morphiaQuery.update(new UpdateOptions().multi(true).clientSession(session),
+                    withVersionIncrement(updateOperations));
+            recordWrite(session);
+            if (result.getMatchedCount() == 0) {
+                checkVersionConflict(q, session);
+            }
+            return result;
+        } finally {
+            afterWrite(q.getIdList());
+        }
     }
 
     protected V findAndModify(ServiceQuery<K> q, List<UpdateOperator> updateOperations) throws RestDslException {
@@ -155,15 +347,67 @@ public class MongoServiceDao<V, K> extends MongoBaseServiceDao<V, K> implements
 
     protected V findAndModify(ServiceQuery<K> q, List<UpdateOperator> updateOperations, ModifyOptions options) throws RestDslException {
         preUpdate(q, updateOperations);
-        Query<V> morphiaQuery = convertToMorphiaQuery(q);
+        Query<V> morphiaQuery = withExpectedVersion(convertToMorphiaQuery(q), q);
+        if (q.getMaxTime() != null) {
+            options.maxTime(q.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
+        }
 
-        try {
-            return morphiaQuery.modify(options, updateOperations.toArray(new UpdateOperator[0]));
+        try (ClientSession session = startWriteSession()) {
+            V modified = morphiaQuery.modify(options.clientSession(session), withVersionIncrement(updateOperations));
+            recordWrite(session);
+            if (modified == null) {
+                checkVersionConflict(q, session);
+            }
+            return modified;
+        } catch (MongoExecutionTimeoutException e) {
+            throw toTimeoutException(q, e);
         } catch (DuplicateKeyException|MongoWriteException|MongoBulkWriteException e) {
             throw mapMongoExceptions(e);
+        } finally {
+            afterWrite(q.getIdList());
+        }
+    }
+
+    Query<V> withExpectedVersion(Query<V> morphiaQuery, ServiceQuery<K> q) throws RestDslException {
+        if (q.getExpectedVersion() == null) {
+            return morphiaQuery;
+        }
+        String versionField = entityInfo.getVersionFieldName();
+        if (versionField == null) {
+            throw new RestDslException("Entity " + entityClazz.getSimpleName() + " has no version field to check",
+                    RestDslException.Type.QUERY_ERROR);
+        }
+        return morphiaQuery.filter(eq(versionField, q.getExpectedVersion()));
+    }
+
+    UpdateOperator[] withVersionIncrement(List<UpdateOperator> updateOperations) {
+        String versionField = entityInfo.getVersionFieldName();
+        List<UpdateOperator> ops = new ArrayList<>(updateOperations);
+        if (versionField != null && ops.stream().noneMatch(op -> versionField.equals(op.field()))) {
+            ops.add(UpdateOperators.inc(versionField));
+        }
+        return ops.toArray(new UpdateOperator[0]);
+    }
+
+    // nothing matched: only reads again if a version was expected, to tell a stale version from a missing entity
+    private void checkVersionConflict(ServiceQuery<K> q, ClientSession session) throws RestDslException {
+        if (q.getExpectedVersion() != null
+                && convertToMorphiaQuery(q).count(new CountOptions().limit(1).clientSession(session)) > 0) {
+            throw newVersionConflict(q);
         }
     }
 
+    RestDslException newVersionConflict(ServiceQuery<K> q) {
+        return new RestDslException("Entity " + entityClazz.getSimpleName() + " " + q.getIdList() +
+                " was modified concurrently, expected version " + q.getExpectedVersion(), RestDslException.Type.CONFLICT);
+    }
+
+    @SuppressWarnings("unchecked")
+    Collection<K> getWrittenIds(V entity) {
+        K id = (K) getEntityMapper().getIdValue(entityClazz, entity);
+        return id == null ? null : Collections.singletonList(id);
+    }
+
     protected RuntimeException mapMongoExceptions(MongoException e) {
         if (e instanceof DuplicateKeyException) {
             return new RestDslException("Duplicate mongo key: " + e.getMessage(), RestDslException.Type.DUPLICATE_KEY);
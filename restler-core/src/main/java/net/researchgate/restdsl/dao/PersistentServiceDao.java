@@ -3,7 +3,11 @@ package net.researchgate.restdsl.dao;
 import dev.morphia.mapping.Mapper;
 import net.researchgate.restdsl.exceptions.RestDslException;
 import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.BulkItemResult;
+import net.researchgate.restdsl.results.BulkWriteResult;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -29,7 +33,37 @@ public interface PersistentServiceDao<V, K> extends BaseServiceDao<V, K>, Entity
      */
     V save(V entity);
 
+    /**
+     * Saves the entities independently of each other: a failing entity does not stop the others.
+     * This default saves one entity after the other, daos should write them in bulk.
+     *
+     * @param entities entities to be created or replaced
+     * @return outcome per entity
+     */
+    @SuppressWarnings("unchecked")
+    default BulkWriteResult<K> saveAll(List<V> entities) {
+        List<BulkItemResult<K>> items = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            V entity = entities.get(i);
+            K id = (K) getEntityMapper().getIdValue(entity.getClass(), entity);
+            try {
+                V saved = save(entity);
+                K savedId = (K) getEntityMapper().getIdValue(saved.getClass(), saved);
+                items.add(id == null ? BulkItemResult.created(i, savedId) : BulkItemResult.updated(i, savedId));
+            } catch (RuntimeException e) {
+                items.add(BulkItemResult.failed(i, id, e));
+            }
+        }
+        return new BulkWriteResult<>(items);
+    }
+
 
+    /**
+     * @param patchedFields new values by field, or by dotted path of embedded fields and list elements, e.g. 'stats.followerCnt'
+     *                      or 'additionalStats.2.value' as computed by {@link net.researchgate.restdsl.util.BeanUtils#deepDifferences};
+     *                      null values unset the field
+     * @return the patched entity
+     */
     V patch(ServiceQuery<K> q, Map<String, Object> patchedFields) throws RestDslException;
 
 }
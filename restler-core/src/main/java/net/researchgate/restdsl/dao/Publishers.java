@@ -0,0 +1,122 @@
+package net.researchgate.restdsl.dao;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Bridges the publishers of the reactive mongo driver to {@link CompletableFuture}s
+ */
+final class Publishers {
+
+    private Publishers() {
+    }
+
+    /**
+     * @return future of all published items; results of the driver are bounded by the query limit
+     */
+    static <T> CompletableFuture<List<T>> toList(Publisher<T> publisher) {
+        SubscriptionFuture<List<T>> future = new SubscriptionFuture<>(new Cancellation());
+        publisher.subscribe(new Subscriber<T>() {
+            private final List<T> items = new ArrayList<>();
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                future.cancellation.onCancel(subscription::cancel);
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(T item) {
+                items.add(item);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(items);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return future of the first published item, null if nothing was published
+     */
+    static <T> CompletableFuture<T> first(Publisher<T> publisher) {
+        return toList(publisher).thenApply(items -> items.isEmpty() ? null : items.get(0));
+    }
+
+    /**
+     * Future of a subscription. Stages depending on it, also those composed with other subscriptions, share its
+     * cancellation: cancelling any of them cancels all their subscriptions, so that the driver stops fetching results.
+     */
+    static final class SubscriptionFuture<T> extends CompletableFuture<T> {
+        private final Cancellation cancellation;
+
+        private SubscriptionFuture(Cancellation cancellation) {
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        public <U> CompletableFuture<U> newIncompleteFuture() {
+            return new SubscriptionFuture<>(cancellation);
+        }
+
+        @Override
+        public <U> CompletableFuture<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+            return super.thenCompose(value -> {
+                CompletionStage<U> stage = fn.apply(value);
+                if (stage instanceof SubscriptionFuture) {
+                    cancellation.onCancel(((SubscriptionFuture<?>) stage).cancellation::cancel);
+                }
+                return stage;
+            });
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            cancellation.cancel();
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    // cancels the subscriptions of a chain of stages once, also those subscribed after the cancellation
+    private static final class Cancellation {
+        private final List<Runnable> actions = new ArrayList<>();
+        private boolean cancelled;
+
+        void onCancel(Runnable action) {
+            synchronized (this) {
+                if (!cancelled) {
+                    actions.add(action);
+                    return;
+                }
+            }
+            action.run();
+        }
+
+        void cancel() {
+            List<Runnable> pending;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                pending = new ArrayList<>(actions);
+                actions.clear();
+            }
+            pending.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package net.researchgate.restdsl.dao;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.researchgate.restdsl.exceptions.RestDslException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs one query per key with a bounded number of queries in flight.
+ * The calling thread takes part in the work, so a saturated pool slows a fan-out down but never blocks it.
+ * A fan-out only waits for the queries that were started, not for helpers still queued in the pool.
+ */
+public class QueryFanOutExecutor {
+    private static final int SHARED_POOL_SIZE = 64;
+    private static final int SHARED_QUEUE_SIZE = 1024;
+
+    // bounded across all daos: tasks beyond the pool queue up, beyond the queue they run on the submitting thread
+    private static final ExecutorService SHARED_EXECUTOR = newSharedExecutor();
+
+    /**
+     * Executes all queries one after another on the calling thread
+     */
+    public static final QueryFanOutExecutor DIRECT = new QueryFanOutExecutor(SHARED_EXECUTOR, 1);
+
+    private final ExecutorService executor;
+    private final int maxParallelism;
+
+    public QueryFanOutExecutor(ExecutorService executor, int maxParallelism) {
+        if (maxParallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive, but was " + maxParallelism);
+        }
+        this.executor = executor;
+        this.maxParallelism = maxParallelism;
+    }
+
+    /**
+     * @param maxParallelism maximum number of queries a single fan-out runs at the same time
+     * @return executor backed by a pool shared by all daos
+     */
+    public static QueryFanOutExecutor withParallelism(int maxParallelism) {
+        return new QueryFanOutExecutor(SHARED_EXECUTOR, maxParallelism);
+    }
+
+    public int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    private static ExecutorService newSharedExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(SHARED_POOL_SIZE, SHARED_POOL_SIZE, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(SHARED_QUEUE_SIZE),
+                new ThreadFactoryBuilder().setNameFormat("restler-fan-out-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Runs a single query in the background, e.g. a count overlapping with the fetch of a page.
+     * If the shared pool and its queue are full, it runs on the calling thread before this returns.
+     */
+    public <R> CompletableFuture<R> submit(Supplier<R> query) {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    public <T, R> Map<T, R> execute(Collection<T> keys, Function<T, R> query) {
+        return execute(keys, query, maxParallelism);
+    }
+
+    /**
+     * Applies the query to every key.
+     *
+     * @param keys        keys to run the query for
+     * @param query       query per key, must not modify shared state
+     * @param parallelism requested parallelism, capped by the parallelism of this executor
+     * @return results per key in the iteration order of keys
+     */
+    public <T, R> Map<T, R> execute(Collection<T> keys, Function<T, R> query, int parallelism) {
+        List<T> keyList = new ArrayList<>(keys);
+        AtomicReferenceArray<R> results = new AtomicReferenceArray<>(keyList.size());
+        AtomicInteger nextKey = new AtomicInteger();
+        AtomicInteger pending = new AtomicInteger(keyList.size());
+        // completed once every key has its result or the first query failed
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (keyList.isEmpty()) {
+            done.complete(null);
+        }
+
+        Runnable worker = () -> {
+            int i;
+            while (!done.isDone() && (i = nextKey.getAndIncrement()) < keyList.size()) {
+                try {
+                    results.set(i, query.apply(keyList.get(i)));
+                    if (pending.decrementAndGet() == 0) {
+                        done.complete(null);
+                    }
+                } catch (Throwable e) {
+                    done.completeExceptionally(e);
+                }
+            }
+        };
+
+        int workers = Math.min(Math.min(maxParallelism, Math.max(parallelism, 1)), keyList.size());
+        for (int i = 1; i < workers; i++) {
+            CompletableFuture.runAsync(worker, executor);
+        }
+        worker.run();
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestDslException("Interrupted while waiting for queries", e, RestDslException.Type.GENERAL_ERROR);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RestDslException("Unable to execute queries", e.getCause(), RestDslException.Type.GENERAL_ERROR);
+        }
+
+        Map<T, R> resultMap = new LinkedHashMap<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            resultMap.put(keyList.get(i), results.get(i));
+        }
+        return resultMap;
+    }
+}
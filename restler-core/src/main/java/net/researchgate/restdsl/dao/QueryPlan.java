@@ -0,0 +1,209 @@
+package net.researchgate.restdsl.dao;
+
+import dev.morphia.query.Sort;
+import dev.morphia.query.filters.Filter;
+import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.queries.ServiceQueryReservedValue;
+import net.researchgate.restdsl.util.ServiceQueryUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static dev.morphia.query.filters.Filters.eq;
+import static dev.morphia.query.filters.Filters.exists;
+import static dev.morphia.query.filters.Filters.gt;
+import static dev.morphia.query.filters.Filters.gte;
+import static dev.morphia.query.filters.Filters.in;
+import static dev.morphia.query.filters.Filters.lt;
+import static dev.morphia.query.filters.Filters.lte;
+import static dev.morphia.query.filters.Filters.nin;
+
+/**
+ * Everything about a query that only depends on its shape: the index validation verdict, the best matching index,
+ * the sort and a filter template per criterion. Executing a query with a cached plan only binds the criteria values.
+ */
+final class QueryPlan {
+    enum Operator {
+        EQ, IN, NIN, LT, LTE, GT, GTE, EXISTS, NULL, NONE
+    }
+
+    /**
+     * Filter of one criteria key, with the value left open
+     */
+    static final class CriterionTemplate {
+        private final String criteriaKey;
+        private final String field;
+        private final Operator operator;
+
+        private CriterionTemplate(String criteriaKey, String field, Operator operator) {
+            this.criteriaKey = criteriaKey;
+            this.field = field;
+            this.operator = operator;
+        }
+
+        String getCriteriaKey() {
+            return criteriaKey;
+        }
+
+        /**
+         * @return the filter for the values, null if the criterion does not restrict the query
+         */
+        Filter bind(Collection<Object> values) {
+            switch (operator) {
+                case EQ:
+                    return eq(field, values.iterator().next());
+                case IN:
+                    // defensive copy here to avoid issues with groupBy
+                    return in(field, new ArrayList<>(values));
+                case NIN:
+                    return nin(field, values.toArray(new Object[0]));
+                case LT:
+                    return lt(field, values.iterator().next());
+                case LTE:
+                    return lte(field, values.iterator().next());
+                case GT:
+                    return gt(field, values.iterator().next());
+                case GTE:
+                    return gte(field, values.iterator().next());
+                case EXISTS:
+                    return exists(field);
+                case NULL:
+                    return eq(field, null);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private final boolean indexSafe;
+    // declared index that serves the query best, null if none fits
+    private final String selectedIndex;
+    private final Sort[] sort;
+    private final List<CriterionTemplate> criteria;
+    // criteria that have to match the same element of an array, by array field
+    private final Map<String, List<CriterionTemplate>> elemMatchCriteria;
+
+    private QueryPlan(boolean indexSafe, String selectedIndex, Sort[] sort, List<CriterionTemplate> criteria, Map<String, List<CriterionTemplate>> elemMatchCriteria) {
+        this.indexSafe = indexSafe;
+        this.selectedIndex = selectedIndex;
+        this.sort = sort;
+        this.criteria = criteria;
+        this.elemMatchCriteria = elemMatchCriteria;
+    }
+
+    static QueryPlan compile(ServiceQuery<?> serviceQuery, boolean indexSafe, String selectedIndex, Sort[] sort) {
+        List<CriterionTemplate> criteria = new ArrayList<>();
+        Map<String, List<CriterionTemplate>> elemMatchCriteria = new LinkedHashMap<>();
+        if (serviceQuery.getCriteria() != null) {
+            Set<String> syncMatch = serviceQuery.getSyncMatch() == null ? Collections.emptySet() : serviceQuery.getSyncMatch();
+            for (Map.Entry<String, Collection<Object>> e : serviceQuery.getCriteria().asMap().entrySet()) {
+                String key = e.getKey();
+                boolean forSyncMatch = false;
+                for (String sm : syncMatch) {
+                    if (key.startsWith(sm + ".")) {
+                        elemMatchCriteria.computeIfAbsent(sm, k -> new ArrayList<>())
+                                .add(compileCriterion(key, key.substring(sm.length() + 1), e.getValue()));
+                        forSyncMatch = true;
+                    }
+                }
+                if (!forSyncMatch) {
+                    criteria.add(compileCriterion(key, key, e.getValue()));
+                }
+            }
+        }
+        return new QueryPlan(indexSafe, selectedIndex, sort, criteria, elemMatchCriteria);
+    }
+
+    private static CriterionTemplate compileCriterion(String criteriaKey, String field, Collection<Object> values) {
+        if (values.size() != 1) {
+            // TODO: deal nicely with other operations
+            if (field.contains("<>")) {
+                return new CriterionTemplate(criteriaKey, ServiceQueryUtil.parseQueryField(field).getFieldName(), Operator.NIN);
+            }
+            return new CriterionTemplate(criteriaKey, field, Operator.IN);
+        }
+
+        Object val = values.iterator().next();
+        // range query
+        if (field.contains(">") || field.contains("<")) {
+            final String[] parts = field.trim().split(" ");
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("'" + field + "' is not a valid filter condition");
+            }
+            switch (parts[1]) {
+                case "<":
+                    return new CriterionTemplate(criteriaKey, parts[0], Operator.LT);
+                case "<=":
+                    return new CriterionTemplate(criteriaKey, parts[0], Operator.LTE);
+                case ">=":
+                    return new CriterionTemplate(criteriaKey, parts[0], Operator.GTE);
+                case ">":
+                    return new CriterionTemplate(criteriaKey, parts[0], Operator.GT);
+                default:
+                    return new CriterionTemplate(criteriaKey, parts[0], Operator.NONE);
+            }
+        }
+        if (val instanceof ServiceQueryReservedValue) {
+            switch ((ServiceQueryReservedValue) val) {
+                case EXISTS:
+                    return new CriterionTemplate(criteriaKey, field, Operator.EXISTS);
+                case NULL:
+                    return new CriterionTemplate(criteriaKey, field, Operator.NULL);
+                case ANY:
+                    return new CriterionTemplate(criteriaKey, field, Operator.NONE);
+                default:
+                    throw new RestDslException("Unhandled reserved value: " + val, RestDslException.Type.GENERAL_ERROR);
+            }
+        }
+        return new CriterionTemplate(criteriaKey, field, Operator.EQ);
+    }
+
+    /**
+     * @return a key that is equal for queries sharing a plan: the query shape refined by which criteria have
+     * a single value, several values or a reserved value, since these compile to different filters
+     */
+    static List<Object> getKey(ServiceQuery<?> serviceQuery) {
+        List<String> criteria = new ArrayList<>();
+        if (serviceQuery.getCriteria() != null) {
+            for (Map.Entry<String, Collection<Object>> e : serviceQuery.getCriteria().asMap().entrySet()) {
+                Collection<Object> values = e.getValue();
+                Object first = values.iterator().next();
+                String arity = values.size() > 1 ? "*" : first instanceof ServiceQueryReservedValue ? first.toString() : "1";
+                criteria.add(e.getKey() + "=" + arity);
+            }
+        }
+        return Arrays.asList(
+                serviceQuery.getIdList() == null ? null : serviceQuery.getIdList().isEmpty(),
+                criteria,
+                serviceQuery.getSyncMatch(),
+                serviceQuery.getOrder(),
+                serviceQuery.isKeysetPagination());
+    }
+
+    boolean isIndexSafe() {
+        return indexSafe;
+    }
+
+    String getSelectedIndex() {
+        return selectedIndex;
+    }
+
+    Sort[] getSort() {
+        return sort == null ? null : sort.clone();
+    }
+
+    List<CriterionTemplate> getCriteria() {
+        return criteria;
+    }
+
+    Map<String, List<CriterionTemplate>> getElemMatchCriteria() {
+        return elemMatchCriteria;
+    }
+}
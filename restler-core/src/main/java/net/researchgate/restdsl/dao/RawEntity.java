@@ -0,0 +1,29 @@
+package net.researchgate.restdsl.dao;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.bson.RawBsonDocument;
+
+import java.io.IOException;
+
+/**
+ * Entity as stored, serialized to JSON by transcoding its document instead of decoding it, see {@link BsonJsonTranscoder}
+ */
+@JsonSerialize(using = RawEntitySerializer.class)
+public final class RawEntity {
+    private final RawBsonDocument document;
+    private final BsonJsonTranscoder transcoder;
+
+    public RawEntity(RawBsonDocument document, BsonJsonTranscoder transcoder) {
+        this.document = document;
+        this.transcoder = transcoder;
+    }
+
+    public RawBsonDocument getDocument() {
+        return document;
+    }
+
+    void writeTo(JsonGenerator gen) throws IOException {
+        transcoder.write(document, gen);
+    }
+}
@@ -0,0 +1,22 @@
+package net.researchgate.restdsl.dao;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link RawEntity} with its transcoder
+ */
+public class RawEntitySerializer extends StdSerializer<RawEntity> {
+
+    public RawEntitySerializer() {
+        super(RawEntity.class);
+    }
+
+    @Override
+    public void serialize(RawEntity value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        value.writeTo(gen);
+    }
+}
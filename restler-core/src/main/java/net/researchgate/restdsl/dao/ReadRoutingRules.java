@@ -0,0 +1,74 @@
+package net.researchgate.restdsl.dao;
+
+import net.researchgate.restdsl.queries.ReadRoute;
+import net.researchgate.restdsl.queries.ServiceQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses the {@link ReadRoute} of queries by collection and query shape, see {@link ServiceQuery#getQueryShape()}.
+ * A rule for the shape wins over one for the collection, which wins over the default route. Queries without a
+ * matching rule read with the read preference of the client.
+ * <p>
+ * Routes given with the query, e.g. per resource by {@link net.researchgate.restdsl.queries.ServiceQueryParams#getReadRoute()},
+ * take precedence over all rules.
+ */
+public class ReadRoutingRules {
+    private final ReadRoute defaultRoute;
+    private final Map<String, ReadRoute> collectionRoutes;
+    private final Map<List<String>, ReadRoute> queryShapeRoutes;
+
+    private ReadRoutingRules(Builder builder) {
+        this.defaultRoute = builder.defaultRoute;
+        this.collectionRoutes = new HashMap<>(builder.collectionRoutes);
+        this.queryShapeRoutes = new HashMap<>(builder.queryShapeRoutes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the route of the query shape in the collection, null to read with the read preference of the client
+     */
+    public ReadRoute getRoute(String collectionName, String queryShape) {
+        ReadRoute route = queryShapeRoutes.get(List.of(collectionName, queryShape));
+        if (route == null) {
+            route = collectionRoutes.get(collectionName);
+        }
+        return route != null ? route : defaultRoute;
+    }
+
+    public static class Builder {
+        private ReadRoute defaultRoute;
+        private final Map<String, ReadRoute> collectionRoutes = new HashMap<>();
+        private final Map<List<String>, ReadRoute> queryShapeRoutes = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder defaultRoute(ReadRoute route) {
+            this.defaultRoute = route;
+            return this;
+        }
+
+        public Builder collection(String collectionName, ReadRoute route) {
+            collectionRoutes.put(collectionName, route);
+            return this;
+        }
+
+        /**
+         * @param queryShape as reported by the query metrics, see {@link ServiceQuery#getQueryShape()}
+         */
+        public Builder queryShape(String collectionName, String queryShape, ReadRoute route) {
+            queryShapeRoutes.put(List.of(collectionName, queryShape), route);
+            return this;
+        }
+
+        public ReadRoutingRules build() {
+            return new ReadRoutingRules(this);
+        }
+    }
+}
@@ -16,6 +16,7 @@ public abstract class RestApiServiceDao<V, K> implements ServiceDao<V, K> {
     private String baseUrl;
     private Class<V> entityClazz;
     private final Client client;
+    private final EntityFieldMapper entityMapper = new GenericFieldMapper();
 
     public RestApiServiceDao(String baseUrl, Class<V> entityClazz) {
         this.baseUrl = baseUrl;
@@ -25,7 +26,7 @@ public abstract class RestApiServiceDao<V, K> implements ServiceDao<V, K> {
 
     @Override
     public EntityFieldMapper getEntityMapper() {
-        return new GenericFieldMapper();
+        return entityMapper;
     }
 
     @Override
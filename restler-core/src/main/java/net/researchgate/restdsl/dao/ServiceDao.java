@@ -14,6 +14,22 @@ public interface ServiceDao<V, K> {
 
     EntityResult<V> get(ServiceQuery<K> serviceQuery) throws RestDslException;
 
+    /**
+     * Like {@link #get(ServiceQuery)}, but the dao may return a result that reads its items while it is serialized
+     * instead of holding them in memory. Such a result can be iterated only once.
+     */
+    default EntityResult<V> stream(ServiceQuery<K> serviceQuery) throws RestDslException {
+        return get(serviceQuery);
+    }
+
+    /**
+     * Like {@link #stream(ServiceQuery)}, but the dao may return items that are only meant to be serialized,
+     * e.g. stored documents written to the response without creating entities.
+     */
+    default EntityResult<?> getRaw(ServiceQuery<K> serviceQuery) throws RestDslException {
+        return stream(serviceQuery);
+    }
+
     V getOne(ServiceQuery<K> serviceQuery) throws RestDslException;
 
     long count(ServiceQuery<K> serviceQuery) throws RestDslException;
@@ -22,6 +38,14 @@ public interface ServiceDao<V, K> {
 
     ServiceQueryInfo<K> getServiceQueryInfo(ServiceQuery<K> serviceQuery);
 
+    /**
+     * Like {@link #getServiceQueryInfo(ServiceQuery)}, but also runs the query and reports how the database executed it.
+     * Daos that cannot explain queries return the info without explanation.
+     */
+    default ServiceQueryInfo<K> explain(ServiceQuery<K> serviceQuery) throws RestDslException {
+        return getServiceQueryInfo(serviceQuery);
+    }
+
     EntityFieldMapper getEntityMapper();
 
 }
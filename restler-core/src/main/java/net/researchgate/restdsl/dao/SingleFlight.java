@@ -0,0 +1,61 @@
+package net.researchgate.restdsl.dao;
+
+import com.google.common.base.Throwables;
+import net.researchgate.restdsl.exceptions.RestDslException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs a call at most once at a time per key: callers that arrive while the call for their key is in flight
+ * wait for it and share its result, or its failure. Nothing is kept after the call completed.
+ *
+ * @param <T> Type of the keys
+ * @param <R> Type of the results
+ */
+public class SingleFlight<T, R> {
+    private final ConcurrentMap<T, CompletableFuture<R>> inFlight = new ConcurrentHashMap<>();
+    private final Runnable onCollapsed;
+
+    /**
+     * @param onCollapsed called for every caller that shares the result of another caller's call
+     */
+    public SingleFlight(Runnable onCollapsed) {
+        this.onCollapsed = onCollapsed;
+    }
+
+    public R execute(T key, Supplier<R> call) throws RestDslException {
+        CompletableFuture<R> own = new CompletableFuture<>();
+        CompletableFuture<R> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            onCollapsed.run();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw new RestDslException("Shared call failed", e.getCause(), RestDslException.Type.GENERAL_ERROR);
+            }
+        }
+
+        try {
+            R result = call.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * @return number of keys with a call in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
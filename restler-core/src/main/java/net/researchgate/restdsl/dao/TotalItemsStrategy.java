@@ -0,0 +1,23 @@
+package net.researchgate.restdsl.dao;
+
+/**
+ * How a {@link MongoBaseServiceDao} computes totalItems when the page alone is not enough to know it
+ */
+public enum TotalItemsStrategy {
+    /**
+     * Count after the page has been fetched
+     */
+    SEQUENTIAL,
+
+    /**
+     * Count while the page is being fetched. The count is abandoned if the page turns out to be enough, by then it
+     * has been sent already, so short last pages cost an extra count compared to {@link #SEQUENTIAL}
+     */
+    CONCURRENT,
+
+    /**
+     * Fetch the page and count in a single aggregation with $facet. The whole page must fit into one 16MB document.
+     * The sort runs ahead of the facet and can use an index, but all matching documents pass into the facet to be counted
+     */
+    SINGLE_ROUND_TRIP
+}
@@ -5,14 +5,16 @@ import com.google.common.base.Splitter;
 import com.mongodb.BasicDBObject;
 import com.mongodb.client.ListIndexesIterable;
 import dev.morphia.Datastore;
-import dev.morphia.mapping.Mapper;
-import dev.morphia.mapping.codec.pojo.EntityModel;
-import dev.morphia.mapping.codec.pojo.PropertyModel;
+import net.researchgate.restdsl.dao.MongoEntityFieldMapper;
+import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.types.FieldPathRegistry;
 import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -26,9 +28,12 @@ public class EntityIndexInfo<V> {
 
     private Set<String> indexesMap = new LinkedHashSet<>();
     private Set<String> indexPrefixMap = new LinkedHashSet<>();
+    // mongo keys of the indexes in indexesMap, to hint them
+    private Map<String, Document> indexKeys = new HashMap<>();
 
     public EntityIndexInfo(Datastore datastore, Class<V> entityClazz, ListIndexesIterable<Document> indexInfo) {
         List<String> indexStrings = new ArrayList<>();
+        FieldPathRegistry fieldPaths = new MongoEntityFieldMapper(datastore).getFieldPaths(entityClazz);
         for (Document doc : indexInfo) {
 
             Document keyObj = (Document) doc.get("key");
@@ -36,7 +41,7 @@ public class EntityIndexInfo<V> {
             for (Map.Entry<String, Object> e : keyObj.entrySet()) {
                 String val = e.getValue().toString();
                 String mongoIndexNameStr = e.getKey();
-                String entityFieldName = getJavaFieldNames(datastore, entityClazz, mongoIndexNameStr);
+                String entityFieldName = getJavaFieldNames(fieldPaths, mongoIndexNameStr);
                 if (entityFieldName == null) {
                     LOGGER.error("Cannot find the mapping from MongoDB index '" + mongoIndexNameStr + "' to Java entities, skipping...");
                     continue;
@@ -68,33 +73,18 @@ public class EntityIndexInfo<V> {
             LOGGER.info("Mapped MongoDB index for " + entityClazz.getName() + " '" + keyObj.toString() + "' to '" + morphiaIndex + "'  ");
 
             indexStrings.add(morphiaIndex);
+            indexKeys.putIfAbsent(morphiaIndex, keyObj);
         }
         computeMaps(indexStrings);
     }
 
-    private String getJavaFieldNames(Datastore datastore, Class<?> entityClazz, String mongoIndexName) {
-        List<String> comps = Splitter.on('.').splitToList(mongoIndexName);
-        List<String> javaComps = new ArrayList<>();
-        Class<?> currentClazz = entityClazz;
-
-        Mapper mapper = datastore.getMapper();
-        for (String comp : comps) {
-
-            EntityModel mc = mapper.getEntityModel(currentClazz);
-            PropertyModel mf = mc.getProperty(comp);
-            if (mf == null) {
-                return null;
-            }
-            javaComps.add(mf.getName());
-            //noinspection unchecked
-            if (mf.getType().isAssignableFrom(List.class)) {
-                currentClazz = mf.getNormalizedType();
-            } else {
-                currentClazz = mf.getType();
-            }
+    // null if a field of the index is not mapped
+    private String getJavaFieldNames(FieldPathRegistry fieldPaths, String mongoIndexName) {
+        try {
+            return fieldPaths.resolve(mongoIndexName).getPath();
+        } catch (RestDslException e) {
+            return null;
         }
-
-        return Joiner.on('.').join(javaComps);
     }
 
     private void computeMaps(List<String> indexStrings) {
@@ -121,4 +111,52 @@ public class EntityIndexInfo<V> {
         return indexPrefixMap;
     }
 
+    /**
+     * @param index an index as in {@link #getIndexesMap()}
+     * @return the index keys as stored in mongo, usable as a hint; null if there is no such index
+     */
+    public Document getIndexKey(String index) {
+        return indexKeys.get(index);
+    }
+
+    /**
+     * Picks the index that serves a query best, following the equality, sort, range rule: the longest run of
+     * equality fields first, then the sort fields in their order, then a range field.
+     *
+     * @param equalityFields fields matched against one or several values
+     * @param rangeFields    fields matched against a range or excluded values
+     * @param sortFields     fields of the order, without direction
+     * @return the index as in {@link #getIndexesMap()}, null if no index starts with any of the fields
+     */
+    public String selectIndex(Collection<String> equalityFields, Collection<String> rangeFields, List<String> sortFields) {
+        String best = null;
+        int bestScore = 0;
+        for (String index : indexesMap) {
+            int score = score(Splitter.on(',').splitToList(index.replace("-", "")), equalityFields, rangeFields, sortFields);
+            // on a tie the shorter index is cheaper to traverse
+            if (score > bestScore || (score == bestScore && best != null && index.length() < best.length())) {
+                best = index;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private static int score(List<String> components, Collection<String> equalityFields, Collection<String> rangeFields, List<String> sortFields) {
+        int i = 0;
+        int score = 0;
+        while (i < components.size() && equalityFields.contains(components.get(i))) {
+            score += 3;
+            i++;
+        }
+        for (int s = 0; s < sortFields.size() && i < components.size() && components.get(i).equals(sortFields.get(s)); s++) {
+            score += 2;
+            i++;
+        }
+        if (i < components.size() && rangeFields.contains(components.get(i))) {
+            score += 1;
+        }
+        return score;
+    }
+
 }
@@ -16,6 +16,7 @@ import java.util.Map;
 public class EntityInfo<V> {
     private final String idFieldName;
     private final Class<?> idFieldClazz;
+    private final String versionFieldName;
     private static final Map<Class<?>, EntityInfo<?>> CACHE = new HashMap<>();
 
     private final EntityFieldMapper mapper;
@@ -43,6 +44,7 @@ public class EntityInfo<V> {
             throw new RestDslException("No id field annotated on " + clazz.getCanonicalName(), RestDslException.Type.ENTITY_ERROR);
         }
         idFieldClazz = mapper.getIdFieldClazz(clazz);
+        versionFieldName = mapper.getVersionFieldName(clazz);
         this.mapper = mapper;
         this.entityClass = clazz;
     }
@@ -64,4 +66,15 @@ public class EntityInfo<V> {
         mapper.setIdValue(entityClass, entity, idValue);
     }
 
+    /**
+     * @return name of the version field, null if the entity is not versioned
+     */
+    public String getVersionFieldName() {
+        return versionFieldName;
+    }
+
+    public Long getVersionFieldValue(V entity) {
+        return versionFieldName == null ? null : mapper.getVersionValue(entityClass, entity);
+    }
+
 }
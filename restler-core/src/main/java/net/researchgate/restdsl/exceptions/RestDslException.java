@@ -20,7 +20,13 @@ public class RestDslException extends RuntimeException {
         PARAMS_ERROR,
 
         // Service query contains errors
-        QUERY_ERROR
+        QUERY_ERROR,
+
+        // Query exceeded its time limit
+        TIMEOUT,
+
+        // Entity was modified concurrently: its version does not match the expected one
+        CONFLICT
     }
 
     // default type
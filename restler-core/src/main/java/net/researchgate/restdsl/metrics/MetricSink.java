@@ -12,4 +12,13 @@ public interface MetricSink {
      * @param durationMs Measured time in milliseconds
      */
     void timing(MetricName name, long durationMs);
+
+    /**
+     * Increments a counter, e.g. for cache hits. Sinks that only collect timings may ignore it.
+     *
+     * @param name  Metric name and labels
+     * @param delta Amount to add to the counter
+     */
+    default void increment(MetricName name, long delta) {
+    }
 }
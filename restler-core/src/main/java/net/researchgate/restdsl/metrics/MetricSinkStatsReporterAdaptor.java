@@ -22,10 +22,15 @@ public class MetricSinkStatsReporterAdaptor implements MetricSink {
 
     @Override
     public void timing(MetricName name, long durationMs) {
-        delegate.timing(nameToKey(name), durationMs);
+        delegate.timing(nameToKey(name, ".%H"), durationMs);
     }
 
-    private String nameToKey(MetricName name) {
+    @Override
+    public void increment(MetricName name, long delta) {
+        delegate.increment(nameToKey(name, ""), Math.toIntExact(delta));
+    }
+
+    private String nameToKey(MetricName name, String suffix) {
         if (MongoBaseServiceDao.MONGO_SERVICE_QUERY_METRIC.equals(name.getName())) {
             String collectionName = name.getLabels().get("collectionName");
             String shape = name.getLabels().get("queryShape");
@@ -37,7 +42,7 @@ public class MetricSinkStatsReporterAdaptor implements MetricSink {
                     .stream()
                     .sorted(Map.Entry.comparingByKey())
                     .flatMap(e -> Stream.of(e.getKey(), e.getValue()))
-                    .collect(Collectors.joining(".", prefix + ".", ".%H"));
+                    .collect(Collectors.joining(".", prefix + ".", suffix));
         }
     }
 }
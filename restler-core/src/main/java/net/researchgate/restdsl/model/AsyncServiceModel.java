@@ -0,0 +1,87 @@
+package net.researchgate.restdsl.model;
+
+import net.researchgate.restdsl.dao.AsyncServiceDao;
+import net.researchgate.restdsl.dao.EntityFieldMapper;
+import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.queries.PatchContext;
+import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.EntityResult;
+import net.researchgate.restdsl.util.BeanUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking counterpart of {@link ServiceModel}, exposing full CRUD on an {@link AsyncServiceDao}.
+ *
+ * @param <V> Type of the entity
+ * @param <K> Type of the entity's id field
+ */
+public abstract class AsyncServiceModel<V, K> {
+    protected AsyncServiceDao<V, K> serviceDao;
+
+    public AsyncServiceModel(AsyncServiceDao<V, K> serviceDao) {
+        this.serviceDao = serviceDao;
+    }
+
+    public EntityFieldMapper getEntityMapper() {
+        return serviceDao.getEntityMapper();
+    }
+
+    protected AsyncServiceDao<V, K> getServiceDao() {
+        return serviceDao;
+    }
+
+    public CompletionStage<EntityResult<V>> get(K id) {
+        return serviceDao.get(ServiceQuery.byId(id));
+    }
+
+    public CompletionStage<V> getOne(K id) {
+        return serviceDao.getOne(ServiceQuery.byId(id));
+    }
+
+    public CompletionStage<EntityResult<V>> get(ServiceQuery<K> q) {
+        return serviceDao.get(q);
+    }
+
+    public CompletionStage<Long> count(ServiceQuery<K> q) {
+        return serviceDao.count(q);
+    }
+
+    public CompletionStage<Integer> delete(ServiceQuery<K> q) {
+        return serviceDao.delete(q);
+    }
+
+    public CompletionStage<V> save(V entity) {
+        return serviceDao.save(entity);
+    }
+
+    /**
+     * @see ServiceModel#patch(Object, PatchContext)
+     */
+    @SuppressWarnings("unchecked")
+    public CompletionStage<V> patch(V entity, PatchContext patchContext) {
+        K idField = (K) serviceDao.getEntityMapper().getIdValue(entity.getClass(), entity);
+        Long expectedVersion = patchContext.getExpectedVersion() != null ? patchContext.getExpectedVersion()
+                : serviceDao.getEntityMapper().getVersionValue(entity.getClass(), entity);
+
+        return getOne(idField).thenCompose(oldBean -> {
+            Map<String, Object> changes;
+            try {
+                changes = BeanUtils.deepDifferences(oldBean, entity, Collections.emptySet(), true, false, expectedVersion != null);
+            } catch (Exception e) {
+                throw new RestDslException("Unable to diff the provided entity with the db entity (class " +
+                        entity.getClass().getName() + ")", e, RestDslException.Type.ENTITY_ERROR);
+            }
+            ServiceModel.addUnsetFields(changes, patchContext);
+
+            if (changes.isEmpty()) {
+                return CompletableFuture.completedFuture(oldBean);
+            }
+            return serviceDao.patch(ServiceQuery.<K>builder().ids(Collections.singletonList(idField))
+                    .expectedVersion(expectedVersion).build(), changes);
+        });
+    }
+}
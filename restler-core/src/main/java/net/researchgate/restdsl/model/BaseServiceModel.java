@@ -1,5 +1,6 @@
 package net.researchgate.restdsl.model;
 
+import net.researchgate.restdsl.cache.QueryResultCache;
 import net.researchgate.restdsl.dao.BaseServiceDao;
 import net.researchgate.restdsl.dao.EntityFieldMapper;
 import net.researchgate.restdsl.dao.ServiceDao;
@@ -20,6 +21,7 @@ import net.researchgate.restdsl.results.EntityResult;
  */
 public abstract class BaseServiceModel<V, K> {
     protected BaseServiceDao<V, K> serviceDao;
+    private QueryResultCache<V, K> resultCache;
 
     public BaseServiceModel(BaseServiceDao<V, K> serviceDao) {
         this.serviceDao = serviceDao;
@@ -33,6 +35,15 @@ public abstract class BaseServiceModel<V, K> {
         return serviceDao;
     }
 
+    /**
+     * Caches the results of {@link #get(ServiceQuery)}, see {@link QueryResultCache}. Writes through the dao invalidate them.
+     */
+    protected void enableResultCache(QueryResultCache.Builder builder) {
+        QueryResultCache<V, K> cache = builder.build(getEntityMapper());
+        serviceDao.addWriteListener(cache::invalidate);
+        this.resultCache = cache;
+    }
+
     public EntityResult<V> get(K id) throws RestDslException {
         return serviceDao.get(ServiceQuery.byId(id));
     }
@@ -42,13 +53,38 @@ public abstract class BaseServiceModel<V, K> {
     }
 
     public EntityResult<V> get(ServiceQuery<K> q) throws RestDslException {
+        // cached results may predate the write of the consistency token
+        if (resultCache != null && q.getConsistencyToken() == null) {
+            return resultCache.get(q, serviceDao::get);
+        }
         return serviceDao.get(q);
     }
 
+    /**
+     * @see ServiceDao#stream(ServiceQuery)
+     */
+    public EntityResult<V> stream(ServiceQuery<K> q) throws RestDslException {
+        return serviceDao.stream(q);
+    }
+
+    /**
+     * @see ServiceDao#getRaw(ServiceQuery)
+     */
+    public EntityResult<?> getRaw(ServiceQuery<K> q) throws RestDslException {
+        return serviceDao.getRaw(q);
+    }
+
     public ServiceQueryInfo<K> getServiceQueryInfo(ServiceQuery<K> q) {
         return serviceDao.getServiceQueryInfo(q);
     }
 
+    /**
+     * @see ServiceDao#explain(ServiceQuery)
+     */
+    public ServiceQueryInfo<K> explain(ServiceQuery<K> q) throws RestDslException {
+        return serviceDao.explain(q);
+    }
+
     /**
      * Delete the entity by its id
      *
@@ -5,9 +5,12 @@ import net.researchgate.restdsl.domain.EntityInfo;
 import net.researchgate.restdsl.exceptions.RestDslException;
 import net.researchgate.restdsl.queries.PatchContext;
 import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.BulkWriteResult;
 import net.researchgate.restdsl.util.BeanUtils;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -39,31 +42,78 @@ public abstract class ServiceModel<V, K> extends BaseServiceModel<V, K> {
         return serviceDao.save(entity);
     }
 
+    /**
+     * @see PersistentServiceDao#saveAll(List)
+     */
+    public BulkWriteResult<K> saveAll(List<V> entities) {
+        return serviceDao.saveAll(entities);
+    }
+
+
+    /**
+     * Applies the changes with a single update by id, without reading and diffing the stored entity first,
+     * see {@link net.researchgate.restdsl.util.MergePatch}.
+     *
+     * @param changes changed fields by dotted java path, null values unset the field
+     * @return the patched entity, null if there is no entity with the id
+     * @throws RestDslException of type {@link RestDslException.Type#CONFLICT} if the entity does not have the
+     *                          version expected by the patch context
+     */
+    public V patch(K id, Map<String, Object> changes, PatchContext patchContext) throws RestDslException {
+        Map<String, Object> allChanges = new LinkedHashMap<>(changes);
+        addUnsetFields(allChanges, patchContext);
+        if (allChanges.isEmpty()) {
+            return getOne(id);
+        }
+        return serviceDao.patch(byId(id, patchContext.getExpectedVersion()), allChanges);
+    }
 
+    /**
+     * Diffs the entity with the stored one and writes the changed fields. A versioned entity is only patched if it
+     * still has the version of the patch context or, without one, the version sent with the entity.
+     */
     public V patch(V entity, PatchContext patchContext) throws RestDslException {
         K idField = (K) serviceDao.getEntityMapper().getIdValue(entity.getClass(), entity);
+        Long expectedVersion = patchContext.getExpectedVersion() != null ? patchContext.getExpectedVersion()
+                : serviceDao.getEntityMapper().getVersionValue(entity.getClass(), entity);
 
-        ServiceQuery<K> q = ServiceQuery.byId(idField);
+        ServiceQuery<K> q = byId(idField, expectedVersion);
         V oldBean = getOne(idField);
+        Map<String, Object> changes;
         try {
-            Map<String, Object> changes =
-                    BeanUtils.shallowDifferences(oldBean, entity, Collections.emptySet(), true, false);
-            for (String f : patchContext.getUnsetFields()) {
-                if (changes.containsKey(f)) {
-                    throw new RestDslException("Patched field '" + f + "' is also requested to be unset", RestDslException.Type.PARAMS_ERROR);
-                }
-                changes.put(f, null);
-            }
-
-            if (changes.isEmpty()) {
-                return oldBean;
-            }
-
-            return serviceDao.patch(q, changes);
+            // only the changed sub-fields of embedded entities are written, list elements by index only if the
+            // version check guarantees that the stored list is still the one read
+            changes = BeanUtils.deepDifferences(oldBean, entity, Collections.emptySet(), true, false, expectedVersion != null);
         } catch (Exception e) {
             throw new RestDslException("Unable to diff the provided entity with the db entity (class " +
                     entity.getClass().getName() + ")", e, RestDslException.Type.ENTITY_ERROR);
         }
+        addUnsetFields(changes, patchContext);
+
+        if (changes.isEmpty()) {
+            return oldBean;
+        }
+
+        return serviceDao.patch(q, changes);
+    }
+
+    private ServiceQuery<K> byId(K id, Long expectedVersion) {
+        return ServiceQuery.<K>builder().ids(Collections.singletonList(id)).expectedVersion(expectedVersion).build();
+    }
+
+    // changes are by dotted path, so an unset field must neither be changed itself nor contain or be inside a change
+    static void addUnsetFields(Map<String, Object> changes, PatchContext patchContext) throws RestDslException {
+        for (String f : patchContext.getUnsetFields()) {
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                String path = change.getKey();
+                boolean sameUnset = path.equals(f) && change.getValue() == null;
+                if (!sameUnset && (path.equals(f) || path.startsWith(f + ".") || f.startsWith(path + "."))) {
+                    throw new RestDslException("Patched field '" + path + "' conflicts with field '" + f + "' requested to be unset",
+                            RestDslException.Type.PARAMS_ERROR);
+                }
+            }
+            changes.put(f, null);
+        }
     }
 
 }
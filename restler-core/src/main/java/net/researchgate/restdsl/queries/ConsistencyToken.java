@@ -0,0 +1,109 @@
+package net.researchgate.restdsl.queries;
+
+import net.researchgate.restdsl.exceptions.RestDslException;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Opaque causal consistency token: the operation time and the cluster time of a write. Reads carrying the token
+ * run in a causally consistent session, so that a secondary serves them only once it has applied the write.
+ * <p>
+ * Writes of the current thread leave their token with {@link #setLastWrite(ConsistencyToken)}, from where it is
+ * handed to the client, see {@link net.researchgate.restdsl.resources.ConsistencyTokenFilter}.
+ */
+public final class ConsistencyToken {
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+    private static final ThreadLocal<ConsistencyToken> LAST_WRITE = new ThreadLocal<>();
+
+    private final BsonTimestamp operationTime;
+    private final BsonDocument clusterTime;
+
+    /**
+     * @param operationTime operation time of the write
+     * @param clusterTime   signed cluster time after the write, null if the deployment does not report it
+     */
+    public ConsistencyToken(BsonTimestamp operationTime, BsonDocument clusterTime) {
+        this.operationTime = Objects.requireNonNull(operationTime, "Operation time cannot be null");
+        this.clusterTime = clusterTime;
+    }
+
+    public BsonTimestamp getOperationTime() {
+        return operationTime;
+    }
+
+    public BsonDocument getClusterTime() {
+        return clusterTime;
+    }
+
+    /**
+     * @return the later of both tokens, null if both are null
+     */
+    public static ConsistencyToken latest(ConsistencyToken a, ConsistencyToken b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.operationTime.compareTo(b.operationTime) >= 0 ? a : b;
+    }
+
+    /**
+     * Remembers the token of a write of the current thread, keeping the latest one
+     */
+    public static void setLastWrite(ConsistencyToken token) {
+        LAST_WRITE.set(latest(LAST_WRITE.get(), token));
+    }
+
+    /**
+     * @return the token of the latest write of the current thread since the last call, null if there was none
+     */
+    public static ConsistencyToken takeLastWrite() {
+        ConsistencyToken token = LAST_WRITE.get();
+        LAST_WRITE.remove();
+        return token;
+    }
+
+    public String encode() {
+        BsonDocument doc = new BsonDocument("o", operationTime);
+        if (clusterTime != null) {
+            doc.append("c", clusterTime);
+        }
+        String json = doc.toJson(JSON_SETTINGS);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ConsistencyToken decode(String token) throws RestDslException {
+        try {
+            BsonDocument doc = BsonDocument.parse(new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8));
+            return new ConsistencyToken(doc.getTimestamp("o"), doc.containsKey("c") ? doc.getDocument("c") : null);
+        } catch (RuntimeException e) {
+            throw new RestDslException("Invalid consistency token '" + token + "'", e, RestDslException.Type.PARAMS_ERROR);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ConsistencyToken)) {
+            return false;
+        }
+        ConsistencyToken that = (ConsistencyToken) o;
+        return operationTime.equals(that.operationTime) && Objects.equals(clusterTime, that.clusterTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operationTime, clusterTime);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
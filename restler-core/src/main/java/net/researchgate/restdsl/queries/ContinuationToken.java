@@ -0,0 +1,67 @@
+package net.researchgate.restdsl.queries;
+
+import net.researchgate.restdsl.exceptions.RestDslException;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Opaque position for keyset pagination: the sort key values and the id of the last entity of a page.
+ * Values are kept as extended JSON so that their BSON types survive the round trip through the client.
+ */
+public final class ContinuationToken {
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private final String order;
+    private final List<Object> values;
+
+    /**
+     * @param order  the order of the query the token was created for
+     * @param values values of the order fields followed by the id
+     */
+    public ContinuationToken(String order, List<Object> values) {
+        this.order = order == null ? "" : order;
+        this.values = values;
+    }
+
+    public String getOrder() {
+        return order;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    public String encode() {
+        String json = new Document("o", order).append("v", values).toJson(JSON_SETTINGS);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ContinuationToken decode(String token) throws RestDslException {
+        try {
+            Document doc = Document.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+            return new ContinuationToken(doc.getString("o"), doc.getList("v", Object.class));
+        } catch (RuntimeException e) {
+            throw new RestDslException("Invalid continuation token '" + token + "'", e, RestDslException.Type.PARAMS_ERROR);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ContinuationToken)) {
+            return false;
+        }
+        ContinuationToken that = (ContinuationToken) o;
+        return order.equals(that.order) && Objects.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(order, values);
+    }
+}
@@ -0,0 +1,84 @@
+package net.researchgate.restdsl.queries;
+
+import net.researchgate.restdsl.exceptions.RestDslException;
+
+import java.util.Objects;
+
+/**
+ * How totalItems is counted: exact, estimated from collection metadata for unfiltered queries,
+ * or capped, i.e. counting stops at a limit and totalItems is a lower bound.
+ * String form is 'exact', 'estimated' or 'capped:N'.
+ */
+public final class CountMode {
+    public enum Type {
+        EXACT, ESTIMATED, CAPPED
+    }
+
+    public static final CountMode EXACT = new CountMode(Type.EXACT, 0);
+    public static final CountMode ESTIMATED = new CountMode(Type.ESTIMATED, 0);
+
+    private static final String CAPPED_PREFIX = "capped:";
+
+    private final Type type;
+    private final int cap;
+
+    private CountMode(Type type, int cap) {
+        this.type = type;
+        this.cap = cap;
+    }
+
+    public static CountMode capped(int cap) throws RestDslException {
+        if (cap <= 0) {
+            throw new RestDslException("Count cap must be positive, but was " + cap, RestDslException.Type.PARAMS_ERROR);
+        }
+        return new CountMode(Type.CAPPED, cap);
+    }
+
+    public static CountMode fromString(String value) throws RestDslException {
+        if ("exact".equals(value)) {
+            return EXACT;
+        }
+        if ("estimated".equals(value)) {
+            return ESTIMATED;
+        }
+        if (value != null && value.startsWith(CAPPED_PREFIX)) {
+            try {
+                return capped(Integer.parseInt(value.substring(CAPPED_PREFIX.length())));
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+        }
+        throw new RestDslException("Invalid countMode '" + value + "', expected one of 'exact', 'estimated' or 'capped:N'",
+                RestDslException.Type.PARAMS_ERROR);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return maximum number of items counted, only set for {@link Type#CAPPED}
+     */
+    public int getCap() {
+        return cap;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CountMode)) {
+            return false;
+        }
+        CountMode that = (CountMode) o;
+        return type == that.type && cap == that.cap;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, cap);
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.CAPPED ? CAPPED_PREFIX + cap : type.name().toLowerCase();
+    }
+}
@@ -13,6 +13,8 @@ public class PatchContext {
     public static final PatchContext DEFAULT_CONTEXT = new PatchContext();
 
     private Set<String> unsetFields = Collections.emptySet();
+    // version the entity must have to be patched, e.g. from If-Match; null to patch any version
+    private Long expectedVersion;
 
     private PatchContext() {
     }
@@ -33,6 +35,11 @@ public class PatchContext {
             return this;
         }
 
+        public Builder expectedVersion(Long expectedVersion) {
+            context.expectedVersion = expectedVersion;
+            return this;
+        }
+
         public PatchContext build() {
             return context;
         }
@@ -41,4 +48,8 @@ public class PatchContext {
     public Set<String> getUnsetFields() {
         return unsetFields;
     }
+
+    public Long getExpectedVersion() {
+        return expectedVersion;
+    }
 }
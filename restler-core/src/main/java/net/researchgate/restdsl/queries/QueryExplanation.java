@@ -0,0 +1,71 @@
+package net.researchgate.restdsl.queries;
+
+import java.util.List;
+
+/**
+ * How the database executed a query, normalized from its explain output in execution stats mode
+ */
+public class QueryExplanation {
+    private final List<String> winningPlan;
+    private final List<String> indexNames;
+    private final boolean collectionScan;
+    private final boolean blockingSort;
+    private final long keysExamined;
+    private final long docsExamined;
+    private final long returned;
+    private final long executionTimeMillis;
+
+    /**
+     * @param winningPlan stages of the winning plan from the root down, e.g. [LIMIT, FETCH, IXSCAN]
+     * @param indexNames  names of the indexes scanned by the winning plan
+     */
+    public QueryExplanation(List<String> winningPlan, List<String> indexNames, long keysExamined, long docsExamined,
+                            long returned, long executionTimeMillis) {
+        this.winningPlan = winningPlan;
+        this.indexNames = indexNames;
+        this.collectionScan = winningPlan.contains("COLLSCAN");
+        this.blockingSort = winningPlan.contains("SORT");
+        this.keysExamined = keysExamined;
+        this.docsExamined = docsExamined;
+        this.returned = returned;
+        this.executionTimeMillis = executionTimeMillis;
+    }
+
+    public List<String> getWinningPlan() {
+        return winningPlan;
+    }
+
+    public List<String> getIndexNames() {
+        return indexNames;
+    }
+
+    /**
+     * @return whether the plan reads the whole collection instead of an index
+     */
+    public boolean isCollectionScan() {
+        return collectionScan;
+    }
+
+    /**
+     * @return whether the plan sorts in memory instead of reading an index in order
+     */
+    public boolean isBlockingSort() {
+        return blockingSort;
+    }
+
+    public long getKeysExamined() {
+        return keysExamined;
+    }
+
+    public long getDocsExamined() {
+        return docsExamined;
+    }
+
+    public long getReturned() {
+        return returned;
+    }
+
+    public long getExecutionTimeMillis() {
+        return executionTimeMillis;
+    }
+}
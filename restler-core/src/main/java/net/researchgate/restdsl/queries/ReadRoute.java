@@ -0,0 +1,144 @@
+package net.researchgate.restdsl.queries;
+
+import com.google.common.base.Preconditions;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Which members of the replica set may serve the reads of a query: the read preference mode, tag sets tried in order,
+ * how stale a secondary may be and whether reads are hedged, i.e. sent to two members and answered by the faster one.
+ */
+public final class ReadRoute {
+    public enum Mode {
+        PRIMARY("primary"),
+        PRIMARY_PREFERRED("primaryPreferred"),
+        SECONDARY("secondary"),
+        SECONDARY_PREFERRED("secondaryPreferred"),
+        NEAREST("nearest");
+
+        private final String name;
+
+        Mode(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return name of the mode in the connection string
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    // MongoDB does not accept smaller bounds
+    private static final Duration MIN_MAX_STALENESS = Duration.ofSeconds(90);
+
+    private final Mode mode;
+    private final List<Map<String, String>> tagSets;
+    private final Duration maxStaleness;
+    private final boolean hedged;
+
+    private ReadRoute(Builder builder) {
+        this.mode = builder.mode;
+        this.tagSets = Collections.unmodifiableList(new ArrayList<>(builder.tagSets));
+        this.maxStaleness = builder.maxStaleness;
+        this.hedged = builder.hedged;
+    }
+
+    public static ReadRoute primary() {
+        return builder(Mode.PRIMARY).build();
+    }
+
+    public static Builder builder(Mode mode) {
+        return new Builder(mode);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public List<Map<String, String>> getTagSets() {
+        return tagSets;
+    }
+
+    /**
+     * @return how far a secondary may lag behind the primary to serve reads, null for no bound
+     */
+    public Duration getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public boolean isHedged() {
+        return hedged;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ReadRoute)) {
+            return false;
+        }
+        ReadRoute that = (ReadRoute) o;
+        return mode == that.mode && tagSets.equals(that.tagSets) && Objects.equals(maxStaleness, that.maxStaleness)
+                && hedged == that.hedged;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mode, tagSets, maxStaleness, hedged);
+    }
+
+    @Override
+    public String toString() {
+        return "ReadRoute{" +
+                "mode=" + mode +
+                ", tagSets=" + tagSets +
+                ", maxStaleness=" + maxStaleness +
+                ", hedged=" + hedged +
+                '}';
+    }
+
+    public static class Builder {
+        private final Mode mode;
+        private final List<Map<String, String>> tagSets = new ArrayList<>();
+        private Duration maxStaleness;
+        private boolean hedged;
+
+        private Builder(Mode mode) {
+            this.mode = Preconditions.checkNotNull(mode, "Mode cannot be null");
+        }
+
+        /**
+         * Adds a tag set, e.g. {nodeType: ANALYTICS}. Members matching an earlier tag set are preferred.
+         */
+        public Builder tagSet(Map<String, String> tags) {
+            tagSets.add(Collections.unmodifiableMap(new LinkedHashMap<>(tags)));
+            return this;
+        }
+
+        public Builder maxStaleness(Duration maxStaleness) {
+            Preconditions.checkArgument(maxStaleness == null || maxStaleness.compareTo(MIN_MAX_STALENESS) >= 0,
+                    "Max staleness must be at least %s, but was %s", MIN_MAX_STALENESS, maxStaleness);
+            this.maxStaleness = maxStaleness;
+            return this;
+        }
+
+        public Builder hedged(boolean hedged) {
+            this.hedged = hedged;
+            return this;
+        }
+
+        public ReadRoute build() {
+            if (mode == Mode.PRIMARY) {
+                Preconditions.checkArgument(tagSets.isEmpty() && maxStaleness == null && !hedged,
+                        "Reads from the primary cannot have tag sets, max staleness or hedging");
+            }
+            return new ReadRoute(this);
+        }
+    }
+}
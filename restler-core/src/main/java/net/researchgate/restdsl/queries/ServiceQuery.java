@@ -8,10 +8,15 @@ import com.google.common.collect.Multimap;
 import net.researchgate.restdsl.exceptions.RestDslException;
 import net.researchgate.restdsl.util.ThreadLocalDateFormat;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -28,6 +33,7 @@ public final class ServiceQuery<K> {
     private Integer originalLimit;
     private int offset = 0;
     private boolean countTotalItems = true;
+    private CountMode countMode = CountMode.EXACT;
     private String order;
     private Set<String> fields;
     private Collection<K> ids;
@@ -35,6 +41,22 @@ public final class ServiceQuery<K> {
     private boolean indexValidation = true;
     private String groupBy;
     private Boolean countOnly = false;
+    // upper bound of queries run in parallel for this query, e.g. one per groupBy key
+    private Integer maxParallelism;
+    // keyset pagination: continuation token of the previous page, empty for the first page
+    private String after;
+    // how long results of this query may be cached, from ServiceQueryParams; null if not configured
+    private Duration resultCacheTtl;
+    // time limit of the database operations for this query, from the request or ServiceQueryParams; null for no limit
+    private Duration maxTime;
+    // index to use, as in EntityIndexInfo#getIndexesMap(); null to let the dao choose
+    private String hint;
+    // members of the replica set to read from, from ServiceQueryParams; null to let the dao choose
+    private ReadRoute readRoute;
+    // causal consistency token of an earlier write the results have to reflect; null to read without a session
+    private ConsistencyToken consistencyToken;
+    // writes only: version the matched entity must have, see EntityInfo#getVersionFieldName(); null for any version
+    private Long expectedVersion;
 
     // field that ensures that all subelements of these fields must match in "sync"
     // it's like $elemMatch in Mongo https://docs.mongodb.com/v3.2/reference/operator/query/elemMatch/
@@ -47,6 +69,10 @@ public final class ServiceQuery<K> {
         return countTotalItems;
     }
 
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
     public int getLimit() {
         return limit;
     }
@@ -67,6 +93,18 @@ public final class ServiceQuery<K> {
         return countOnly;
     }
 
+    public String getAfter() {
+        return after;
+    }
+
+    public boolean isKeysetPagination() {
+        return after != null;
+    }
+
+    public Integer getMaxParallelism() {
+        return maxParallelism;
+    }
+
     public Set<String> getFields() {
         return fields;
     }
@@ -87,6 +125,71 @@ public final class ServiceQuery<K> {
         return queryShape;
     }
 
+    public Duration getResultCacheTtl() {
+        return resultCacheTtl;
+    }
+
+    public Duration getMaxTime() {
+        return maxTime;
+    }
+
+    public String getHint() {
+        return hint;
+    }
+
+    public ReadRoute getReadRoute() {
+        return readRoute;
+    }
+
+    public ConsistencyToken getConsistencyToken() {
+        return consistencyToken;
+    }
+
+    public Long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    /**
+     * @return a key that is equal for all queries returning the same result,
+     * regardless of the order in which ids, criteria and fields were given. Queries differing in time limit, hint,
+     * read route or index validation have different keys, since they may fail or read from another member.
+     */
+    public List<Object> getCacheKey() {
+        return Arrays.asList(
+                getCountKey(),
+                offset,
+                limit,
+                fields == null ? null : new HashSet<>(fields),
+                order,
+                groupBy,
+                countTotalItems,
+                countOnly,
+                after,
+                indexValidation,
+                readRoute,
+                hint,
+                maxTime);
+    }
+
+    /**
+     * @return a key that is equal for all queries matching the same entities and counting them the same way,
+     * regardless of offset, continuation token, limit, fields, order and the order in which ids and criteria were given
+     */
+    public List<Object> getCountKey() {
+        Map<String, Set<Object>> canonicalCriteria = null;
+        if (criteria != null) {
+            canonicalCriteria = new HashMap<>();
+            for (String key : criteria.keySet()) {
+                canonicalCriteria.put(key, new HashSet<>(criteria.get(key)));
+            }
+        }
+        return Arrays.asList(
+                ids == null ? null : new HashSet<>(ids),
+                canonicalCriteria,
+                syncMatch == null ? null : new HashSet<>(syncMatch),
+                countMode);
+    }
+
     public static <K> ServiceQuery<K> all() {
         return new ServiceQueryBuilder<K>().build();
     }
@@ -112,6 +215,45 @@ public final class ServiceQuery<K> {
     protected ServiceQuery() {
     }
 
+    private ServiceQuery(ServiceQuery<K> other) {
+        this.limit = other.limit;
+        this.originalLimit = other.originalLimit;
+        this.offset = other.offset;
+        this.countTotalItems = other.countTotalItems;
+        this.countMode = other.countMode;
+        this.order = other.order;
+        this.fields = other.fields;
+        this.ids = other.ids;
+        this.criteria = other.criteria == null ? null : LinkedHashMultimap.create(other.criteria);
+        this.indexValidation = other.indexValidation;
+        this.groupBy = other.groupBy;
+        this.countOnly = other.countOnly;
+        this.maxParallelism = other.maxParallelism;
+        this.after = other.after;
+        this.resultCacheTtl = other.resultCacheTtl;
+        this.maxTime = other.maxTime;
+        this.hint = other.hint;
+        this.readRoute = other.readRoute;
+        this.consistencyToken = other.consistencyToken;
+        this.expectedVersion = other.expectedVersion;
+        this.syncMatch = other.syncMatch;
+        this.queryShape = other.queryShape;
+    }
+
+    /**
+     * @return a copy of this query where the criterion for the key has exactly the given value; this query is not modified
+     */
+    public ServiceQuery<K> withCriterionReplaced(String key, Object value) {
+        ServiceQuery<K> copy = new ServiceQuery<>(this);
+        if (copy.criteria == null) {
+            copy.criteria = LinkedHashMultimap.create();
+        }
+        copy.criteria.removeAll(key);
+        copy.criteria.put(key, value);
+        copy.calculateQueryShape();
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         return o instanceof ServiceQuery<?> && toString().equals(o.toString());
@@ -184,11 +326,26 @@ public final class ServiceQuery<K> {
         }
 
 
+        public ServiceQueryBuilder<K> countMode(CountMode countMode) {
+            query.countMode = countMode == null ? CountMode.EXACT : countMode;
+            return this;
+        }
+
         public ServiceQueryBuilder<K> order(String order) {
             query.order = order;
             return this;
         }
 
+        /**
+         * Switches to keyset pagination.
+         *
+         * @param after continuation token returned as 'next' with the previous page, or an empty string for the first page
+         */
+        public ServiceQueryBuilder<K> after(String after) {
+            query.after = after;
+            return this;
+        }
+
         public ServiceQueryBuilder<K> groupBy(String groupBy) {
             query.groupBy = groupBy;
             return this;
@@ -208,6 +365,58 @@ public final class ServiceQuery<K> {
             return this;
         }
 
+        public ServiceQueryBuilder<K> maxParallelism(Integer maxParallelism) throws RestDslException {
+            if (maxParallelism != null && maxParallelism < 1) {
+                throw new RestDslException("Parallelism must be positive", RestDslException.Type.QUERY_ERROR);
+            }
+            query.maxParallelism = maxParallelism;
+            return this;
+        }
+
+        /**
+         * @param maxTime time limit of the database operations for this query, capped by {@link ServiceQueryParams#getMaxTime()}
+         */
+        public ServiceQueryBuilder<K> maxTime(Duration maxTime) throws RestDslException {
+            if (maxTime != null && (maxTime.isNegative() || maxTime.isZero())) {
+                throw new RestDslException("Max time must be positive", RestDslException.Type.QUERY_ERROR);
+            }
+            query.maxTime = maxTime;
+            return this;
+        }
+
+        /**
+         * @param hint index the database has to use, in the notation of the declared indexes, e.g. 'a,-b'
+         */
+        public ServiceQueryBuilder<K> hint(String hint) {
+            query.hint = hint;
+            return this;
+        }
+
+        /**
+         * @param readRoute members of the replica set to read from, takes precedence over the read routing rules of the dao
+         */
+        public ServiceQueryBuilder<K> readRoute(ReadRoute readRoute) {
+            query.readRoute = readRoute;
+            return this;
+        }
+
+        /**
+         * @param consistencyToken token of a write the results have to reflect, even if read from a secondary
+         */
+        public ServiceQueryBuilder<K> consistencyToken(ConsistencyToken consistencyToken) {
+            query.consistencyToken = consistencyToken;
+            return this;
+        }
+
+        /**
+         * @param expectedVersion version the entity must have to be written; the write fails with a
+         *                        {@link RestDslException.Type#CONFLICT} otherwise
+         */
+        public ServiceQueryBuilder<K> expectedVersion(Long expectedVersion) {
+            query.expectedVersion = expectedVersion;
+            return this;
+        }
+
         public ServiceQueryBuilder<K> countTotalItems(Boolean countTotalItems) {
             if (countTotalItems != null) {
                 query.countTotalItems = countTotalItems;
@@ -279,6 +488,20 @@ public final class ServiceQuery<K> {
             int curLimit = query.limit == null ? serviceQueryParams.getDefaultLimit() : query.limit;
             query.limit = curLimit > MAX_LIMIT || curLimit < 0 ? MAX_LIMIT : curLimit;
 
+            // RESULT CACHE
+            query.resultCacheTtl = serviceQueryParams.getResultCacheTtl();
+
+            // TIME LIMIT
+            Duration maxTime = serviceQueryParams.getMaxTime();
+            if (query.maxTime == null || (maxTime != null && maxTime.compareTo(query.maxTime) < 0)) {
+                query.maxTime = maxTime;
+            }
+
+            // READ ROUTE
+            if (query.readRoute == null) {
+                query.readRoute = serviceQueryParams.getReadRoute();
+            }
+
         }
     }
 
@@ -319,6 +542,18 @@ public final class ServiceQuery<K> {
             sb.append("order=").append(getOrder()).append("&");
         }
 
+        if (after != null) {
+            sb.append("after=").append(after).append("&");
+        }
+
+        if (!CountMode.EXACT.equals(countMode)) {
+            sb.append("countMode=").append(countMode).append("&");
+        }
+
+        if (hint != null) {
+            sb.append("hint=").append(hint).append("&");
+        }
+
         return sb.toString();
     }
 
@@ -367,6 +602,10 @@ public final class ServiceQuery<K> {
             sb.append(QS_FIELD_SEP).append("LIMIT");
         }
 
+        if (after != null) {
+            sb.append(QS_FIELD_SEP).append("AFTER");
+        }
+
         queryShape = sb.toString();
     }
 
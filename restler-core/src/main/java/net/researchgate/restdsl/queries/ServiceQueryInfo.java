@@ -7,11 +7,32 @@ public class ServiceQueryInfo<K> {
     private ServiceQuery<K> query;
     private String urlPart;
     private boolean safeQuery;
+    private String index;
+    private boolean indexHinted;
+    private QueryExplanation explanation;
 
     public ServiceQueryInfo(ServiceQuery<K> query, boolean safeQuery) {
+        this(query, safeQuery, null, false);
+    }
+
+    /**
+     * @param index       declared index the query is expected to use, null if none fits
+     * @param indexHinted whether the database is told to use the index instead of choosing one itself
+     */
+    public ServiceQueryInfo(ServiceQuery<K> query, boolean safeQuery, String index, boolean indexHinted) {
+        this(query, safeQuery, index, indexHinted, null);
+    }
+
+    /**
+     * @param explanation how the database executed the query, null if it was not run
+     */
+    public ServiceQueryInfo(ServiceQuery<K> query, boolean safeQuery, String index, boolean indexHinted, QueryExplanation explanation) {
         this.query = query;
         this.urlPart = query.toUrlPart();
         this.safeQuery = safeQuery;
+        this.index = index;
+        this.indexHinted = indexHinted;
+        this.explanation = explanation;
     }
 
     public ServiceQuery<?> getQuery() {
@@ -25,4 +46,16 @@ public class ServiceQueryInfo<K> {
     public boolean isSafeQuery() {
         return safeQuery;
     }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public boolean isIndexHinted() {
+        return indexHinted;
+    }
+
+    public QueryExplanation getExplanation() {
+        return explanation;
+    }
 }
@@ -2,6 +2,7 @@ package net.researchgate.restdsl.queries;
 
 import com.google.common.collect.Multimap;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -18,4 +19,25 @@ public interface ServiceQueryParams {
     int getDefaultLimit();
     Set<String> getDefaultFields();
     Multimap<String, Object> getDefaultCriteria();
+
+    /**
+     * @return how long query results may be kept in a result cache, null to use the cache's default
+     */
+    default Duration getResultCacheTtl() {
+        return null;
+    }
+
+    /**
+     * @return time limit of queries that do not request one, and upper bound of requested limits; null for no limit
+     */
+    default Duration getMaxTime() {
+        return null;
+    }
+
+    /**
+     * @return where queries of the resource are read from, null to leave it to the dao's read routing rules
+     */
+    default ReadRoute getReadRoute() {
+        return null;
+    }
 }
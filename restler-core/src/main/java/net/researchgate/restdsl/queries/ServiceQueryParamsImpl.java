@@ -3,6 +3,7 @@ package net.researchgate.restdsl.queries;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Set;
 
@@ -13,6 +14,9 @@ public class ServiceQueryParamsImpl implements ServiceQueryParams{
     private int defaultLimit = 10000;
     private Set<String> defaultFields;
     private Multimap<String, Object> defaultCriteria;
+    private Duration resultCacheTtl;
+    private Duration maxTime;
+    private ReadRoute readRoute;
 
     @Override
     public int getDefaultLimit() {
@@ -28,6 +32,22 @@ public class ServiceQueryParamsImpl implements ServiceQueryParams{
     public Multimap<String, Object> getDefaultCriteria() {
         return defaultCriteria;
     }
+
+    @Override
+    public Duration getResultCacheTtl() {
+        return resultCacheTtl;
+    }
+
+    @Override
+    public Duration getMaxTime() {
+        return maxTime;
+    }
+
+    @Override
+    public ReadRoute getReadRoute() {
+        return readRoute;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -61,6 +81,21 @@ public class ServiceQueryParamsImpl implements ServiceQueryParams{
             return this;
         }
 
+        public Builder resultCacheTtl(Duration resultCacheTtl) {
+            params.resultCacheTtl = resultCacheTtl;
+            return this;
+        }
+
+        public Builder maxTime(Duration maxTime) {
+            params.maxTime = maxTime;
+            return this;
+        }
+
+        public Builder readRoute(ReadRoute readRoute) {
+            params.readRoute = readRoute;
+            return this;
+        }
+
         public ServiceQueryParams build() {
             return params;
         }
@@ -73,6 +108,9 @@ public class ServiceQueryParamsImpl implements ServiceQueryParams{
                 "defaultLimit=" + defaultLimit +
                 ", defaultFields=" + defaultFields +
                 ", defaultCriteria=" + defaultCriteria +
+                ", resultCacheTtl=" + resultCacheTtl +
+                ", maxTime=" + maxTime +
+                ", readRoute=" + readRoute +
                 '}';
     }
 }
@@ -0,0 +1,175 @@
+package net.researchgate.restdsl.resources;
+
+import com.mongodb.BasicDBObject;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import net.researchgate.restdsl.annotations.PATCH;
+import net.researchgate.restdsl.domain.EntityInfo;
+import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.model.AsyncServiceModel;
+import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.queries.ServiceQueryParams;
+import net.researchgate.restdsl.types.TypeInfoUtil;
+import net.researchgate.restdsl.util.RequestUtil;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ConnectionCallback;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import static javax.ws.rs.core.Response.Status.CREATED;
+import static javax.ws.rs.core.Response.Status.OK;
+
+/**
+ * Non-blocking counterpart of {@link ServiceResource}. Requests are suspended while the database works on them,
+ * so the request thread is released right away and the response is resumed by the thread completing the query.
+ * Failures are resumed as exceptions and go through the regular exception mappers.
+ * <p>
+ * V - entity type
+ * K - entity primary key type
+ */
+public abstract class AsyncServiceResource<V, K> {
+    private final Class<V> entityClazz;
+    private final Class<K> idClazz;
+
+    protected final EntityInfo<V> entityInfo;
+    // for the time limit and If-Match headers of the current request
+    @Context
+    private HttpHeaders httpHeaders;
+    private final AsyncServiceModel<V, K> serviceModel;
+
+    public AsyncServiceResource(AsyncServiceModel<V, K> serviceModel, Class<V> entityClazz, Class<K> idClazz) {
+        this.serviceModel = serviceModel;
+        this.entityClazz = entityClazz;
+        this.idClazz = idClazz;
+        this.entityInfo = EntityInfo.get(serviceModel.getEntityMapper(), entityClazz);
+    }
+
+    @Operation(summary = "Retrieve entities using the generic researchgate 'restler' query-language: https://github.com/researchgate/restler#get")
+    @Parameter(name = "segment", in = ParameterIn.PATH, schema = @Schema(type = "string", example = "-"), description = "A rest-dsl query, See https://github.com/researchgate/restler#get")
+    @Path(BaseServiceResource.PATH_SEGMENT_PATTERN)
+    @GET
+    public void getEntityResult(@PathParam("segment") PathSegment segment, @Context UriInfo uriInfo,
+                                @Suspended AsyncResponse asyncResponse) throws RestDslException {
+        ServiceQuery<K> query = getQueryFromRequest(segment, uriInfo);
+        resume(asyncResponse, serviceModel.get(query));
+    }
+
+    @POST
+    @Operation(summary = "Create a new  entity according to the business-logic")
+    @ApiResponse(description = "Success case. Returns the created entity in the response body", responseCode = "201")
+    @ApiResponse(description = "Client failure. Returns an error message response body", responseCode = "4xx")
+    @ApiResponse(description = "Server failure. Returns an error message response body", responseCode = "5xx")
+    public void createEntity(V entity, @Context UriInfo uriInfo, @Suspended AsyncResponse asyncResponse) throws RestDslException {
+        validatePostEntity(entity);
+        resume(asyncResponse, serviceModel.save(entity), persisted -> Response.status(CREATED).entity(persisted).build());
+    }
+
+    @PATCH
+    public void patchEntity(V entity, @Context UriInfo uriInfo, @Suspended AsyncResponse asyncResponse) throws RestDslException {
+        validatePatchEntity(entity);
+        resume(asyncResponse, serviceModel.patch(entity, RequestUtil.getPatchContext(uriInfo, httpHeaders)));
+    }
+
+    @Path(BaseServiceResource.PATH_SEGMENT_PATTERN)
+    @PUT
+    public void updateEntity(@PathParam("segment") String id, V entity, @Context UriInfo uriInfo,
+                             @Suspended AsyncResponse asyncResponse) throws RestDslException {
+        K key = getId(id);
+        if (key == null) {
+            throw new RestDslException("Key cannot be null", RestDslException.Type.PARAMS_ERROR);
+        }
+        validatePut(key, entity);
+        Long expectedVersion = RequestUtil.getExpectedVersion(httpHeaders);
+        if (expectedVersion != null && !expectedVersion.equals(entityInfo.getVersionFieldValue(entity))) {
+            // the version of the entity is checked when saving, it must be the one of If-Match
+            throw new RestDslException("Entity version " + entityInfo.getVersionFieldValue(entity) +
+                    " does not match the expected version " + expectedVersion, RestDslException.Type.CONFLICT);
+        }
+        entityInfo.setIdFieldValue(entity, key);
+        resume(asyncResponse, serviceModel.save(entity), persisted -> Response.status(OK).entity(persisted).build());
+    }
+
+    /*
+    Deletes entities via a rest-dsl query, see ServiceResource#delete
+     */
+    @Operation(summary = "Use with caution! Deletes all entities, that matches the provided query. ", deprecated = true)
+    @Path(BaseServiceResource.PATH_SEGMENT_PATTERN)
+    @DELETE
+    @Produces("application/json;charset=UTF-8")
+    public void delete(@PathParam("segment") @Parameter(description = "A restDsl query. Ideally provide a single, explicit id. Otherwise ensure, that the query matches only the intended entities") PathSegment segment,
+                       @Context UriInfo uriInfo, @Suspended AsyncResponse asyncResponse) throws RestDslException {
+        ServiceQuery<K> query = getQueryFromRequest(segment, uriInfo);
+        resume(asyncResponse, serviceModel.delete(query),
+                deleted -> Response.ok().entity(new BasicDBObject("deleted", deleted).toString()).build());
+    }
+
+    protected void validatePostEntity(V entity) throws RestDslException {
+        // override if you need extra validation
+    }
+
+    protected void validatePatchEntity(V entity) throws RestDslException {
+        K val = entityInfo.getIdFieldValue(entity);
+        if (val == null) {
+            throw new RestDslException("Id must be provided when patching an entity, but was null", RestDslException.Type.ENTITY_ERROR);
+        }
+    }
+
+    protected void validatePut(K key, V entity) throws RestDslException {
+        K val = entityInfo.getIdFieldValue(entity);
+        if (val != null && !val.equals(key)) {
+            throw new RestDslException("Id either should not be provided or be equal to the one in the entity, " +
+                    "but was: " + val + " vs " + key, RestDslException.Type.ENTITY_ERROR);
+        }
+    }
+
+    protected K getId(String id) throws RestDslException {
+        return TypeInfoUtil.getValue(id, idClazz);
+    }
+
+    protected ServiceQuery<K> getQueryFromRequest(PathSegment segment, UriInfo uriInfo) throws RestDslException {
+        return RequestUtil.parseRequest(entityClazz, idClazz, segment, uriInfo, httpHeaders, getServiceQueryParams(), serviceModel.getEntityMapper());
+    }
+
+    protected ServiceQueryParams getServiceQueryParams() {
+        return ServiceQueryParams.DEFAULT_QUERY_PARAMS;
+    }
+
+    protected static void resume(AsyncResponse asyncResponse, CompletionStage<?> stage) {
+        resume(asyncResponse, stage, Function.identity());
+    }
+
+    /**
+     * Resumes the response with the mapped result of the stage, or with the exception the stage failed with.
+     * The stage is cancelled if the client disconnects before. Stages of a {@link net.researchgate.restdsl.dao.MongoAsyncServiceDao}
+     * then also cancel their driver subscriptions, so that no further results are fetched; queries already sent to
+     * the database keep running until they complete or exceed their time limit.
+     */
+    protected static <T> void resume(AsyncResponse asyncResponse, CompletionStage<T> stage, Function<? super T, ?> toResponse) {
+        asyncResponse.register((ConnectionCallback) disconnected -> stage.toCompletableFuture().cancel(true));
+        stage.whenComplete((result, e) -> {
+            if (e == null) {
+                asyncResponse.resume(toResponse.apply(result));
+            } else {
+                asyncResponse.resume(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        });
+    }
+}
@@ -19,6 +19,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.UriInfo;
 import java.lang.reflect.ParameterizedType;
@@ -38,6 +39,9 @@ public abstract class BaseServiceResource<V, K> {
     private final Class<K> idClazz;
 
     protected final EntityInfo<V> entityInfo;
+    // for the headers of the current request, e.g. its time limit
+    @Context
+    private HttpHeaders httpHeaders;
     private final BaseServiceModel<V, K> serviceModel;
 
     /* Matches "/" followed by as little as possible to the end or the next non-encoded slash. */
@@ -74,13 +78,35 @@ public abstract class BaseServiceResource<V, K> {
     @Parameter(name = "offset", in = ParameterIn.QUERY, schema = @Schema(type = "integer", format = "int32"), description = "Skip this many records. Use this together with limit to implement pagination.")
     @Parameter(name = "order", in = ParameterIn.QUERY, schema = @Schema(type = "string"), description = "Sort the result by this field in ascending order. The field can be prefixed with '-' to sort in descending order")
     @Parameter(name = "countTotalItems", in = ParameterIn.QUERY, schema = @Schema(type = "boolean"), description = "whether to count the total items. Setting this to 'false' will remove the 'list.totalItems' property and may improve response times (true by default)")
+    @Parameter(name = "countMode", in = ParameterIn.QUERY, schema = @Schema(type = "string", example = "capped:10000"), description = "How to count the total items: 'exact' (default), 'estimated' from collection metadata for queries without criteria, or 'capped:N' to stop counting at N and flag 'list.totalItemsCapped'")
+    @Parameter(name = "hint", in = ParameterIn.QUERY, schema = @Schema(type = "string", example = "authorId,-createdAt"), description = "Index the database has to use, one of the declared indexes")
     @Parameter(name = "groupBy", in = ParameterIn.QUERY, description = "Group by a certain field. use with caution. groupBy can be forbidden by the dao, in order to prevent too much load on the database.")
     @Parameter(name = "indexValidation", in = ParameterIn.QUERY, schema = @Schema(type = "boolean"), description = "Use with caution during development! Setting this to true disables the safeguard of ensuring, that the request is can effeciently be supported by the database, meaning a usable index exists. (true by default)")
     @Path(PATH_SEGMENT_PATTERN)
     @GET
     public EntityResult<V> getEntityResult(@PathParam("segment") PathSegment segment, @Context UriInfo uriInfo) throws RestDslException {
         ServiceQuery<K> query = getQueryFromRequest(segment, uriInfo);
-        return serviceModel.get(query);
+        return isStreamingEnabled() ? serviceModel.stream(query) : serviceModel.get(query);
+    }
+
+    @Operation(summary = "Like the query, but writes the stored documents without decoding them into entities if the resource enables raw reads, see https://github.com/researchgate/restler#raw-reads")
+    @Parameter(name = "segment", in = ParameterIn.PATH, schema = @Schema(type = "string", example = "-"), description = "A rest-dsl query, See https://github.com/researchgate/restler#get")
+    @Parameter(name = "fields", in = ParameterIn.QUERY, description = "Only return this list of comma-separated fields. Use '*' to return all", example = "*")
+    @Parameter(name = "limit", in = ParameterIn.QUERY, schema = @Schema(type = "integer", format = "int32"), description = "Limit the number of returned records")
+    @Parameter(name = "offset", in = ParameterIn.QUERY, schema = @Schema(type = "integer", format = "int32"), description = "Skip this many records. Use this together with limit to implement pagination.")
+    @Parameter(name = "order", in = ParameterIn.QUERY, schema = @Schema(type = "string"), description = "Sort the result by this field in ascending order. The field can be prefixed with '-' to sort in descending order")
+    @Parameter(name = "countTotalItems", in = ParameterIn.QUERY, schema = @Schema(type = "boolean"), description = "whether to count the total items. Setting this to 'false' will remove the 'list.totalItems' property and may improve response times (true by default)")
+    @Parameter(name = "countMode", in = ParameterIn.QUERY, schema = @Schema(type = "string", example = "capped:10000"), description = "How to count the total items: 'exact' (default), 'estimated' from collection metadata for queries without criteria, or 'capped:N' to stop counting at N and flag 'list.totalItemsCapped'")
+    @Parameter(name = "hint", in = ParameterIn.QUERY, schema = @Schema(type = "string", example = "authorId,-createdAt"), description = "Index the database has to use, one of the declared indexes")
+    @Parameter(name = "groupBy", in = ParameterIn.QUERY, description = "Group by a certain field. use with caution. groupBy can be forbidden by the dao, in order to prevent too much load on the database.")
+    @Parameter(name = "indexValidation", in = ParameterIn.QUERY, schema = @Schema(type = "boolean"), description = "Use with caution during development! Setting this to true disables the safeguard of ensuring, that the request is can effeciently be supported by the database, meaning a usable index exists. (true by default)")
+    @Path(PATH_SEGMENT_PATTERN + "/raw")
+    @GET
+    public EntityResult<?> getRawEntityResult(@PathParam("segment") PathSegment segment, @Context UriInfo uriInfo) throws RestDslException {
+        if (!isRawReadEnabled()) {
+            return getEntityResult(segment, uriInfo);
+        }
+        return serviceModel.getRaw(getQueryFromRequest(segment, uriInfo));
     }
 
     @Operation(summary = "Returns a human readable description of the generated database operations. This is intended for client to develop and debug rest-dsl queries")
@@ -90,6 +116,8 @@ public abstract class BaseServiceResource<V, K> {
     @Parameter(name = "offset", in = ParameterIn.QUERY, schema = @Schema(type = "integer", format = "int32"), description = "Skip this many records. Use this together with limit to implement pagination.")
     @Parameter(name = "order", in = ParameterIn.QUERY, schema = @Schema(type = "string"), description = "Sort the result by this field in ascending order. The field can be prefixed with '-' to sort in descending order")
     @Parameter(name = "countTotalItems", in = ParameterIn.QUERY, schema = @Schema(type = "boolean"), description = "whether to count the total items. Setting this to 'false' will remove the 'list.totalItems' property and may improve response times (true by default)")
+    @Parameter(name = "countMode", in = ParameterIn.QUERY, schema = @Schema(type = "string", example = "capped:10000"), description = "How to count the total items: 'exact' (default), 'estimated' from collection metadata for queries without criteria, or 'capped:N' to stop counting at N and flag 'list.totalItemsCapped'")
+    @Parameter(name = "hint", in = ParameterIn.QUERY, schema = @Schema(type = "string", example = "authorId,-createdAt"), description = "Index the database has to use, one of the declared indexes")
     @Parameter(name = "groupBy", in = ParameterIn.QUERY, description = "Group by a certain field. use with caution. groupBy can be forbidden by the dao, in order to prevent too much load on the database.")
     @Parameter(name = "indexValidation", in = ParameterIn.QUERY, schema = @Schema(type = "boolean"), description = "Use with caution during development! Setting this to true disables the safeguard of ensuring, that the request is can effeciently be supported by the database, meaning a usable index exists. (true by default)")
     @Path(PATH_SEGMENT_PATTERN + "/info")
@@ -99,6 +127,24 @@ public abstract class BaseServiceResource<V, K> {
         return serviceModel.getServiceQueryInfo(query);
     }
 
+    @Operation(summary = "Like info, but also runs the query and returns how the database executed it: winning plan, keys and documents examined, returned items and time. This is intended for client to develop and debug rest-dsl queries")
+    @Parameter(name = "segment", in = ParameterIn.PATH, schema = @Schema(type = "string", example = "-"), description = "A rest-dsl query, See https://github.com/researchgate/restler#get")
+    @Parameter(name = "fields", in = ParameterIn.QUERY, description = "Only return this list of comma-separated fields. Use '*' to return all", example = "*")
+    @Parameter(name = "limit", in = ParameterIn.QUERY, schema = @Schema(type = "integer", format = "int32"), description = "Limit the number of returned records")
+    @Parameter(name = "offset", in = ParameterIn.QUERY, schema = @Schema(type = "integer", format = "int32"), description = "Skip this many records. Use this together with limit to implement pagination.")
+    @Parameter(name = "order", in = ParameterIn.QUERY, schema = @Schema(type = "string"), description = "Sort the result by this field in ascending order. The field can be prefixed with '-' to sort in descending order")
+    @Parameter(name = "countTotalItems", in = ParameterIn.QUERY, schema = @Schema(type = "boolean"), description = "whether to count the total items. Setting this to 'false' will remove the 'list.totalItems' property and may improve response times (true by default)")
+    @Parameter(name = "countMode", in = ParameterIn.QUERY, schema = @Schema(type = "string", example = "capped:10000"), description = "How to count the total items: 'exact' (default), 'estimated' from collection metadata for queries without criteria, or 'capped:N' to stop counting at N and flag 'list.totalItemsCapped'")
+    @Parameter(name = "hint", in = ParameterIn.QUERY, schema = @Schema(type = "string", example = "authorId,-createdAt"), description = "Index the database has to use, one of the declared indexes")
+    @Parameter(name = "groupBy", in = ParameterIn.QUERY, description = "Group by a certain field. use with caution. groupBy can be forbidden by the dao, in order to prevent too much load on the database.")
+    @Parameter(name = "indexValidation", in = ParameterIn.QUERY, schema = @Schema(type = "boolean"), description = "Use with caution during development! Setting this to true disables the safeguard of ensuring, that the request is can effeciently be supported by the database, meaning a usable index exists. (true by default)")
+    @Path(PATH_SEGMENT_PATTERN + "/explain")
+    @GET
+    public ServiceQueryInfo<K> getQueryExplanation(@PathParam("segment") PathSegment segment, @Context UriInfo uriInfo) throws RestDslException {
+        ServiceQuery<K> query = getQueryFromRequest(segment, uriInfo);
+        return serviceModel.explain(query);
+    }
+
 // This method is intentionally commented out, in order to not to expose deletes to clients by default.
 // The following stub is a starting point to copyPaste into your subclass
 //
@@ -124,10 +170,34 @@ public abstract class BaseServiceResource<V, K> {
     }
 
     protected ServiceQuery<K> getQueryFromRequest(PathSegment segment, UriInfo uriInfo) throws RestDslException {
-        return RequestUtil.parseRequest(entityClazz, idClazz, segment, uriInfo, getServiceQueryParams(), serviceModel.getEntityMapper());
+        return RequestUtil.parseRequest(entityClazz, idClazz, segment, uriInfo, httpHeaders, getServiceQueryParams(), serviceModel.getEntityMapper());
+    }
+
+    /**
+     * @return headers of the current request, null outside of a request
+     */
+    protected HttpHeaders getHttpHeaders() {
+        return httpHeaders;
     }
 
 
+    /**
+     * Override to write list results to the response while the database cursor is iterated, instead of reading
+     * the whole page into memory first. totalItems is then written after the items.
+     */
+    protected boolean isStreamingEnabled() {
+        return false;
+    }
+
+    /**
+     * Override to let {@link #getRawEntityResult} write stored documents to the response without decoding them into
+     * entities, if the dao supports it, see {@link net.researchgate.restdsl.dao.MongoBaseServiceDao#enableRawReads}.
+     * Results are streamed.
+     */
+    protected boolean isRawReadEnabled() {
+        return false;
+    }
+
     protected ServiceQueryParams getServiceQueryParams() {
         return ServiceQueryParams.DEFAULT_QUERY_PARAMS;
     }
@@ -0,0 +1,35 @@
+package net.researchgate.restdsl.resources;
+
+import net.researchgate.restdsl.queries.ConsistencyToken;
+import net.researchgate.restdsl.util.RequestUtil;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Returns the consistency token of the writes of a request in the {@value RequestUtil#CONSISTENCY_TOKEN_HEADER}
+ * response header. Clients send it back with later reads to see their writes, even if these are served by a secondary.
+ * <p>
+ * Requires daos with consistency tokens enabled, see {@link net.researchgate.restdsl.dao.MongoBaseServiceDao#enableConsistencyTokens()},
+ * and resource methods that write on the thread of the request.
+ */
+@Provider
+public class ConsistencyTokenFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        // drop tokens left behind by an earlier request of the thread
+        ConsistencyToken.takeLastWrite();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        ConsistencyToken token = ConsistencyToken.takeLastWrite();
+        if (token != null) {
+            responseContext.getHeaders().putSingle(RequestUtil.CONSISTENCY_TOKEN_HEADER, token.encode());
+        }
+    }
+}
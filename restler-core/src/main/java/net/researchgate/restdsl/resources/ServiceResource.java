@@ -1,6 +1,7 @@
 package net.researchgate.restdsl.resources;
 
 import com.mongodb.BasicDBObject;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -8,9 +9,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import net.researchgate.restdsl.annotations.PATCH;
 import net.researchgate.restdsl.exceptions.RestDslException;
 import net.researchgate.restdsl.model.ServiceModel;
+import net.researchgate.restdsl.queries.PatchContext;
 import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.BulkWriteResult;
+import net.researchgate.restdsl.util.MergePatch;
 import net.researchgate.restdsl.util.RequestUtil;
 
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -21,6 +26,8 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
+import java.util.List;
+import java.util.Map;
 
 import static javax.ws.rs.core.Response.Status.CREATED;
 import static javax.ws.rs.core.Response.Status.OK;
@@ -31,11 +38,15 @@ import static javax.ws.rs.core.Response.Status.OK;
  * If you don't want all of these, extend BaseServiceResource yourself and include what you want.
  */
 public abstract class ServiceResource<V, K> extends BaseServiceResource<V, K> {
+    private static final ObjectMapper MERGE_PATCH_MAPPER = new ObjectMapper();
+
     private final ServiceModel<V, K> serviceModel;
+    private final Class<V> entityClazz;
 
     public ServiceResource(ServiceModel<V, K> serviceModel, Class<V> entityClazz, Class<K> idClazz) {
         super(serviceModel, entityClazz, idClazz);
         this.serviceModel = serviceModel;
+        this.entityClazz = entityClazz;
     }
 
     @POST
@@ -49,10 +60,60 @@ public abstract class ServiceResource<V, K> extends BaseServiceResource<V, K> {
         return Response.status(CREATED).entity(persisted).build();
     }
 
+    @POST
+    @Path("/bulk")
+    @Operation(summary = "Create or replace many entities in bulk. Entities without id are created, the others replaced by id")
+    @ApiResponse(description = "Success case. Returns the outcome per entity in request order, entities fail independently", responseCode = "200")
+    @ApiResponse(description = "Client failure, e.g. an invalid entity. Nothing was written. Returns an error message response body", responseCode = "4xx")
+    @ApiResponse(description = "Server failure. Returns an error message response body", responseCode = "5xx")
+    public BulkWriteResult<K> createEntities(List<V> entities, @Context UriInfo uriInfo) throws RestDslException {
+        if (entities == null || entities.isEmpty()) {
+            throw new RestDslException("Bulk request must contain at least one entity", RestDslException.Type.PARAMS_ERROR);
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            V entity = entities.get(i);
+            if (entity == null) {
+                throw new RestDslException("Entity at index " + i + " is null", RestDslException.Type.ENTITY_ERROR);
+            }
+            validatePostEntity(entity);
+        }
+        return serviceModel.saveAll(entities);
+    }
+
     @PATCH
     public V patchEntity(V entity, @Context UriInfo uriInfo) throws RestDslException {
         validatePatchEntity(entity);
-        return serviceModel.patch(entity, RequestUtil.getPatchContext(uriInfo));
+        return serviceModel.patch(entity, RequestUtil.getPatchContext(uriInfo, getHttpHeaders()));
+    }
+
+    @Path(PATH_SEGMENT_PATTERN)
+    @PATCH
+    @Consumes(MergePatch.MEDIA_TYPE)
+    @Operation(summary = "Patch the entity with a JSON Merge Patch (RFC 7396), without reading it first. Null values unset fields")
+    @ApiResponse(description = "Success case. Returns the patched entity, no content if there is no entity with the id", responseCode = "200")
+    @ApiResponse(description = "Client failure. Returns an error message response body", responseCode = "4xx")
+    @ApiResponse(description = "Server failure. Returns an error message response body", responseCode = "5xx")
+    public V mergePatchEntity(@PathParam("segment") String id, Map<String, Object> mergePatch, @Context UriInfo uriInfo) throws RestDslException {
+        K key = getId(id);
+        if (key == null) {
+            throw new RestDslException("Key cannot be null", RestDslException.Type.PARAMS_ERROR);
+        }
+        if (mergePatch == null) {
+            throw new RestDslException("Merge patch must be a JSON object", RestDslException.Type.ENTITY_ERROR);
+        }
+        Map<String, Object> changes = MergePatch.toChanges(mergePatch, entityClazz, getMergePatchMapper());
+        validateMergePatch(key, changes);
+        PatchContext patchContext = RequestUtil.getPatchContext(uriInfo, getHttpHeaders());
+        String versionField = entityInfo.getVersionFieldName();
+        Number patchVersion = versionField == null ? null : (Number) changes.get(versionField);
+        if (patchContext.getExpectedVersion() == null && patchVersion != null && patchVersion.longValue() != 0) {
+            // a version in the patch is the one the client read, it is incremented by the patch. 0 is no version
+            patchContext = PatchContext.builder()
+                    .unsetFields(patchContext.getUnsetFields())
+                    .expectedVersion(patchVersion.longValue())
+                    .build();
+        }
+        return serviceModel.patch(key, changes, patchContext);
     }
 
     @Path(PATH_SEGMENT_PATTERN)
@@ -63,6 +124,12 @@ public abstract class ServiceResource<V, K> extends BaseServiceResource<V, K> {
             throw new RestDslException("Key cannot be null", RestDslException.Type.PARAMS_ERROR);
         }
         validatePut(key, entity);
+        Long expectedVersion = RequestUtil.getExpectedVersion(getHttpHeaders());
+        if (expectedVersion != null && !expectedVersion.equals(entityInfo.getVersionFieldValue(entity))) {
+            // the version of the entity is checked when saving, it must be the one of If-Match
+            throw new RestDslException("Entity version " + entityInfo.getVersionFieldValue(entity) +
+                    " does not match the expected version " + expectedVersion, RestDslException.Type.CONFLICT);
+        }
         entityInfo.setIdFieldValue(entity, key);
         V persisted = serviceModel.save(entity);
         return Response.status(OK).entity(persisted).build();
@@ -94,6 +161,23 @@ public abstract class ServiceResource<V, K> extends BaseServiceResource<V, K> {
         }
     }
 
+    /**
+     * @param changes changed fields by dotted java path, null for fields to unset
+     */
+    protected void validateMergePatch(K key, Map<String, Object> changes) throws RestDslException {
+        if (changes.containsKey(entityInfo.getIdFieldName())) {
+            throw new RestDslException("Id cannot be patched", RestDslException.Type.ENTITY_ERROR);
+        }
+    }
+
+    /**
+     * Override to convert merge patch values with the mapper of the application, e.g. for its date format.
+     * Jackson annotations of the entity apply either way.
+     */
+    protected ObjectMapper getMergePatchMapper() {
+        return MERGE_PATCH_MAPPER;
+    }
+
     protected void validatePut(K key, V entity) throws RestDslException {
         K val = entityInfo.getIdFieldValue(entity);
         if (val != null && !val.equals(key)) {
@@ -0,0 +1,91 @@
+package net.researchgate.restdsl.results;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import net.researchgate.restdsl.exceptions.RestDslException;
+
+/**
+ * Outcome of one entity of a bulk write, see {@link BulkWriteResult}
+ *
+ * @param <K> Type of the entity's id field
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"index", "id", "status", "errorType", "error"})
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkItemResult<K> {
+    public enum Status {
+        CREATED,
+        UPDATED,
+        FAILED
+    }
+
+    // position of the entity in the request
+    private int index;
+    private K id;
+    private Status status;
+    private RestDslException.Type errorType;
+    private String error;
+
+    // for Jackson
+    protected BulkItemResult() {
+    }
+
+    private BulkItemResult(int index, K id, Status status, RestDslException.Type errorType, String error) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.errorType = errorType;
+        this.error = error;
+    }
+
+    public static <K> BulkItemResult<K> created(int index, K id) {
+        return new BulkItemResult<>(index, id, Status.CREATED, null, null);
+    }
+
+    public static <K> BulkItemResult<K> updated(int index, K id) {
+        return new BulkItemResult<>(index, id, Status.UPDATED, null, null);
+    }
+
+    /**
+     * @param id    id of the entity, null if it has none yet
+     * @param cause the error, reported with its type if it is a {@link RestDslException}
+     */
+    public static <K> BulkItemResult<K> failed(int index, K id, RuntimeException cause) {
+        RestDslException.Type type = cause instanceof RestDslException
+                ? ((RestDslException) cause).getType()
+                : RestDslException.Type.GENERAL_ERROR;
+        return new BulkItemResult<>(index, id, Status.FAILED, type, cause.getMessage());
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public K getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public RestDslException.Type getErrorType() {
+        return errorType;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkItemResult{" +
+                "index=" + index +
+                ", id=" + id +
+                ", status=" + status +
+                ", errorType=" + errorType +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,57 @@
+package net.researchgate.restdsl.results;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcomes of a bulk write, one per entity of the request in request order. Entities fail independently of each other.
+ *
+ * @param <K> Type of the entity's id field
+ */
+@JsonPropertyOrder({"created", "updated", "failed", "items"})
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkWriteResult<K> {
+    private List<BulkItemResult<K>> items;
+
+    // for Jackson
+    protected BulkWriteResult() {
+    }
+
+    public BulkWriteResult(List<BulkItemResult<K>> items) {
+        Preconditions.checkNotNull(items, "Items list cannot be null");
+        this.items = new ArrayList<>(items);
+        this.items.sort(Comparator.comparingInt(BulkItemResult::getIndex));
+    }
+
+    public List<BulkItemResult<K>> getItems() {
+        return items;
+    }
+
+    public int getCreated() {
+        return count(BulkItemResult.Status.CREATED);
+    }
+
+    public int getUpdated() {
+        return count(BulkItemResult.Status.UPDATED);
+    }
+
+    public int getFailed() {
+        return count(BulkItemResult.Status.FAILED);
+    }
+
+    private int count(BulkItemResult.Status status) {
+        return (int) items.stream().filter(item -> item.getStatus() == status).count();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkWriteResult{" +
+                "items=" + items +
+                '}';
+    }
+}
@@ -12,20 +12,35 @@ import java.util.List;
  * Entity list - ordered plain collection of entities
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
-@JsonPropertyOrder({"items", "totalItems"})
+@JsonPropertyOrder({"items", "totalItems", "totalItemsCapped", "next"})
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class EntityList<T> implements EntityContainer<T>{
     private List<T> items;
     private final Long totalItems;
+    // true if counting stopped at the cap of the count mode, totalItems is then a lower bound
+    private Boolean totalItemsCapped;
+    // continuation token for the next page of a keyset paginated query
+    private String next;
 
-    private EntityList() {
+    // for Jackson and lists that produce their items lazily
+    protected EntityList() {
         this.totalItems = null;
     }
 
     public EntityList(List<T> items, Long totalItems) {
+        this(items, totalItems, null);
+    }
+
+    public EntityList(List<T> items, Long totalItems, String next) {
+        this(items, totalItems, null, next);
+    }
+
+    public EntityList(List<T> items, Long totalItems, Boolean totalItemsCapped, String next) {
         Preconditions.checkNotNull(items, "Items list cannot be null");
         this.items = items;
         this.totalItems = totalItems;
+        this.totalItemsCapped = totalItemsCapped;
+        this.next = next;
     }
 
     @Override
@@ -41,4 +56,12 @@ public class EntityList<T> implements EntityContainer<T>{
     public Long getTotalItems() {
         return totalItems;
     }
+
+    public Boolean getTotalItemsCapped() {
+        return totalItemsCapped;
+    }
+
+    public String getNext() {
+        return next;
+    }
 }
@@ -0,0 +1,182 @@
+package net.researchgate.restdsl.results;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Entity list that is written to the response while a database cursor is iterated, so that a request never holds
+ * the whole result in memory. The cursor is opened lazily and consumed once: either by serialization, or by
+ * {@link #getItems()} for java callers, which materializes the items.
+ * totalItems and next are only known after the last item, so they are written after the items.
+ */
+@JsonSerialize(using = StreamingEntityListSerializer.class)
+public class StreamingEntityList<T> extends EntityList<T> {
+    private final Supplier<? extends Iterator<T>> cursorSupplier;
+    private final TrailerFactory<T> trailerFactory;
+    private final Closeable onComplete;
+    // not a monitor: it is held while the cursor is iterated and written, which would pin a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private List<T> items;
+    private Long totalItems;
+    private Boolean totalItemsCapped;
+    private String next;
+    private boolean consumed;
+
+    /**
+     * @param cursorSupplier opens the cursor, which is closed after iteration if it is {@link Closeable}
+     * @param trailerFactory computes totalItems and next once all items were iterated
+     * @param onComplete     closed after iteration, e.g. to report timings; may be null
+     */
+    public StreamingEntityList(Supplier<? extends Iterator<T>> cursorSupplier, TrailerFactory<T> trailerFactory, Closeable onComplete) {
+        this.cursorSupplier = Preconditions.checkNotNull(cursorSupplier, "Cursor supplier cannot be null");
+        this.trailerFactory = Preconditions.checkNotNull(trailerFactory, "Trailer factory cannot be null");
+        this.onComplete = onComplete;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return getItems().iterator();
+    }
+
+    @Override
+    public List<T> getItems() {
+        lock.lock();
+        try {
+            if (items == null) {
+                List<T> materialized = new ArrayList<>();
+                try {
+                    stream(materialized::add);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                items = materialized;
+            }
+            return items;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Long getTotalItems() {
+        lock.lock();
+        try {
+            if (!consumed) {
+                getItems();
+            }
+            return totalItems;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Boolean getTotalItemsCapped() {
+        lock.lock();
+        try {
+            if (!consumed) {
+                getItems();
+            }
+            return totalItemsCapped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String getNext() {
+        lock.lock();
+        try {
+            if (!consumed) {
+                getItems();
+            }
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void stream(ItemWriter<T> writer) throws IOException {
+        lock.lock();
+        try {
+            if (items != null) {
+                for (T item : items) {
+                    writer.write(item);
+                }
+                return;
+            }
+            Preconditions.checkState(!consumed, "Streamed entity list was already consumed");
+            consumed = true;
+
+            int itemCount = 0;
+            T last = null;
+            try {
+                Iterator<T> cursor = cursorSupplier.get();
+                try {
+                    while (cursor.hasNext()) {
+                        last = cursor.next();
+                        writer.write(last);
+                        itemCount++;
+                    }
+                } finally {
+                    if (cursor instanceof Closeable) {
+                        ((Closeable) cursor).close();
+                    }
+                }
+                Trailer trailer = trailerFactory.create(itemCount, last);
+                totalItems = trailer.totalItems;
+                totalItemsCapped = trailer.totalItemsCapped;
+                next = trailer.next;
+            } finally {
+                if (onComplete != null) {
+                    onComplete.close();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    interface ItemWriter<T> {
+        void write(T item) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface TrailerFactory<T> {
+        /**
+         * @param itemCount number of iterated items
+         * @param lastItem  the last iterated item, null if there were none
+         */
+        Trailer create(int itemCount, T lastItem);
+    }
+
+    /**
+     * Fields of the list that are written after its items
+     */
+    public static final class Trailer {
+        private final Long totalItems;
+        private final Boolean totalItemsCapped;
+        private final String next;
+
+        public Trailer(Long totalItems, String next) {
+            this(totalItems, null, next);
+        }
+
+        public Trailer(Long totalItems, Boolean totalItemsCapped, String next) {
+            this.totalItems = totalItems;
+            this.totalItemsCapped = totalItemsCapped;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package net.researchgate.restdsl.results;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link StreamingEntityList} in the same shape as an {@link EntityList}, item by item as they come from the cursor
+ */
+public class StreamingEntityListSerializer extends StdSerializer<StreamingEntityList<?>> {
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public StreamingEntityListSerializer() {
+        super((Class) StreamingEntityList.class);
+    }
+
+    @Override
+    public void serialize(StreamingEntityList<?> value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        gen.writeArrayFieldStart("items");
+        writeItems(value, gen, provider);
+        gen.writeEndArray();
+        if (value.getTotalItems() != null) {
+            gen.writeNumberField("totalItems", value.getTotalItems());
+        }
+        if (value.getTotalItemsCapped() != null) {
+            gen.writeBooleanField("totalItemsCapped", value.getTotalItemsCapped());
+        }
+        if (value.getNext() != null) {
+            gen.writeStringField("next", value.getNext());
+        }
+        gen.writeEndObject();
+    }
+
+    private static <T> void writeItems(StreamingEntityList<T> list, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        list.stream(item -> provider.defaultSerializeValue(item, gen));
+    }
+}
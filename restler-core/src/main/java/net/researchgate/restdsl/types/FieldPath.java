@@ -0,0 +1,77 @@
+package net.researchgate.restdsl.types;
+
+import java.util.function.Function;
+
+/**
+ * A dotted path to a field of an entity, resolved once by {@link FieldPathRegistry}: the type of its values, the
+ * names stored in mongo and the conversion of query values to that type.
+ */
+public final class FieldPath {
+    private final String path;
+    private final String mongoPath;
+    private final Class<?> type;
+    private final Class<?> parentType;
+    private final boolean list;
+    private final Function<String, ?> valueConverter;
+
+    FieldPath(String path, String mongoPath, Class<?> type, Class<?> parentType, boolean list) {
+        this.path = path;
+        this.mongoPath = mongoPath;
+        this.type = type;
+        this.parentType = parentType;
+        this.list = list;
+        this.valueConverter = TypeInfoUtil.getValueConverter(type);
+    }
+
+    /**
+     * @return the path by java field names
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the path by the field names stored in mongo
+     */
+    public String getMongoPath() {
+        return mongoPath;
+    }
+
+    /**
+     * @return the type of the field, of its elements for lists
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the class declaring the field
+     */
+    public Class<?> getParentType() {
+        return parentType;
+    }
+
+    /**
+     * @return whether the field is a list, see {@link #getType()}
+     */
+    public boolean isList() {
+        return list;
+    }
+
+    /**
+     * Converts a query value to the type of the field like {@link TypeInfoUtil#getValue(String, Class)}
+     */
+    public Object convert(String value) {
+        return valueConverter.apply(value);
+    }
+
+    @Override
+    public String toString() {
+        return "FieldPath{" +
+                "path='" + path + '\'' +
+                ", mongoPath='" + mongoPath + '\'' +
+                ", type=" + type.getName() +
+                ", list=" + list +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+package net.researchgate.restdsl.types;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import net.researchgate.restdsl.dao.EntityFieldMapper;
+import net.researchgate.restdsl.exceptions.RestDslException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Field paths of an entity, each resolved once through the {@link EntityFieldMapper} instead of walking the mapped
+ * model segment by segment on every request. Paths may be given by java or by mongo field names.
+ * <p>
+ * A registry belongs to the mapper it resolves with, see {@link EntityFieldMapper#getFieldPaths(Class)}.
+ */
+public final class FieldPathRegistry {
+    // bumped by new converters, which outdate the converters of resolved paths
+    private static final AtomicInteger CONVERTERS_VERSION = new AtomicInteger();
+
+    private final EntityFieldMapper mapper;
+    private final Class<?> entityClazz;
+    // resolved paths only, unknown fields fail on every resolve
+    private final Map<String, FieldPath> paths = new ConcurrentHashMap<>();
+    private volatile int convertersVersion = CONVERTERS_VERSION.get();
+
+    public FieldPathRegistry(EntityFieldMapper mapper, Class<?> entityClazz) {
+        this.mapper = mapper;
+        this.entityClazz = entityClazz;
+    }
+
+    static void clear() {
+        CONVERTERS_VERSION.incrementAndGet();
+    }
+
+    /**
+     * @param fieldExpression dotted path by java or mongo field names, e.g. 'stats.followerCnt'
+     * @throws RestDslException if a field of the path does not exist, as thrown by the mapper
+     */
+    public FieldPath resolve(String fieldExpression) throws RestDslException {
+        int currentConverters = CONVERTERS_VERSION.get();
+        if (convertersVersion != currentConverters) {
+            paths.clear();
+            convertersVersion = currentConverters;
+        }
+        FieldPath fieldPath = paths.get(fieldExpression);
+        if (fieldPath == null) {
+            fieldPath = doResolve(fieldExpression);
+            paths.putIfAbsent(fieldExpression, fieldPath);
+        }
+        return fieldPath;
+    }
+
+    private FieldPath doResolve(String fieldExpression) {
+        List<String> javaNames = new ArrayList<>();
+        List<String> mongoNames = new ArrayList<>();
+        Class<?> clazz = entityClazz;
+        Class<?> parentClazz = null;
+        boolean list = false;
+        for (String fieldName : Splitter.on('.').split(fieldExpression)) {
+            Class<?> nestedClazz = mapper.getFieldType(clazz, fieldName);
+            javaNames.add(mapper.getJavaFieldName(clazz, fieldName));
+            mongoNames.add(mapper.getMappedFieldName(clazz, fieldName));
+            parentClazz = clazz;
+            //TODO: better type checking
+            list = nestedClazz.isAssignableFrom(List.class);
+            clazz = list ? mapper.getNormalizedType(clazz, fieldName) : nestedClazz;
+        }
+        return new FieldPath(Joiner.on('.').join(javaNames), Joiner.on('.').join(mongoNames), clazz, parentClazz, list);
+    }
+}
@@ -0,0 +1,221 @@
+package net.researchgate.restdsl.util;
+
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Getters and setters of the bean properties of a class, as found by the {@link Introspector}. They are introspected
+ * once per class and compiled into functions with {@link LambdaMetafactory}, so that reading and writing a property
+ * costs about as much as calling the method directly, instead of an introspection and a reflective invoke per call.
+ * <p>
+ * Methods that cannot be compiled, e.g. of classes in modules not open to restler, are invoked reflectively. This is
+ * logged once per class at debug level.
+ */
+final class BeanAccessors {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BeanAccessors.class);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    // held by the class itself, so that the accessors do not keep classes of other class loaders alive
+    private static final ClassValue<BeanAccessors> CACHE = new ClassValue<BeanAccessors>() {
+        @Override
+        protected BeanAccessors computeValue(Class<?> clazz) {
+            try {
+                return new BeanAccessors(clazz);
+            } catch (IntrospectionException e) {
+                throw new IntrospectionFailure(e);
+            }
+        }
+    };
+
+    private final List<Property> properties;
+    private final Map<String, Property> propertiesByName;
+
+    private BeanAccessors(Class<?> clazz) throws IntrospectionException {
+        List<Property> properties = new ArrayList<>();
+        Map<String, Property> propertiesByName = new HashMap<>();
+        List<String> reflectiveProperties = new ArrayList<>();
+        Exception compileFailure = null;
+        for (PropertyDescriptor descriptor : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+            Property property = new Property(descriptor);
+            properties.add(property);
+            propertiesByName.put(property.getName(), property);
+            if (property.compileFailure != null) {
+                reflectiveProperties.add(property.getName());
+                compileFailure = property.compileFailure;
+            }
+        }
+        if (compileFailure != null) {
+            LOGGER.debug("Accessors of properties {} of {} could not be compiled and are invoked reflectively",
+                    reflectiveProperties, clazz.getName(), compileFailure);
+        }
+        this.properties = Collections.unmodifiableList(properties);
+        this.propertiesByName = propertiesByName;
+    }
+
+    static BeanAccessors of(Class<?> clazz) throws IntrospectionException {
+        try {
+            return CACHE.get(clazz);
+        } catch (IntrospectionFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return all properties in the order of the Introspector, also those without getter or setter
+     */
+    List<Property> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the property, null if the class has none with the name
+     */
+    Property getProperty(String name) {
+        return propertiesByName.get(name);
+    }
+
+    // carries the checked exception out of ClassValue.computeValue
+    private static final class IntrospectionFailure extends RuntimeException {
+        private IntrospectionFailure(IntrospectionException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IntrospectionException getCause() {
+            return (IntrospectionException) super.getCause();
+        }
+    }
+
+    static final class Property {
+        private final String name;
+        private final Class<?> type;
+        private final Method readMethod;
+        private final Method writeMethod;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        // why the getter or setter is invoked reflectively, null if both are compiled
+        private final Exception compileFailure;
+
+        private Property(PropertyDescriptor descriptor) {
+            this.name = descriptor.getName();
+            this.type = descriptor.getPropertyType();
+            this.readMethod = descriptor.getReadMethod();
+            this.writeMethod = descriptor.getWriteMethod();
+            Function<Object, Object> getter = null;
+            BiConsumer<Object, Object> setter = null;
+            Exception compileFailure = null;
+            try {
+                getter = readMethod == null ? null : compileGetter(readMethod);
+                setter = writeMethod == null ? null : compileSetter(writeMethod);
+            } catch (ReflectiveOperationException | LambdaConversionException | RuntimeException e) {
+                compileFailure = e;
+            }
+            this.getter = getter;
+            this.setter = setter;
+            this.compileFailure = compileFailure;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        boolean isReadable() {
+            return readMethod != null;
+        }
+
+        boolean isWritable() {
+            return writeMethod != null;
+        }
+
+        Method getWriteMethod() {
+            return writeMethod;
+        }
+
+        Object get(Object bean) throws IllegalAccessException, InvocationTargetException {
+            if (getter == null) {
+                return readMethod.invoke(bean);
+            }
+            try {
+                return getter.apply(bean);
+            } catch (RuntimeException e) {
+                // as thrown by Method.invoke
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        void set(Object bean, Object value) throws IllegalAccessException, InvocationTargetException {
+            if (setter == null) {
+                writeMethod.invoke(bean, value);
+                return;
+            }
+            try {
+                setter.accept(bean, value);
+            } catch (RuntimeException e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Function<Object, Object> compileGetter(Method method)
+                throws ReflectiveOperationException, LambdaConversionException {
+            MethodHandles.Lookup lookup = lookupFor(method.getDeclaringClass());
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), handle, handle.type().wrap());
+            return (Function<Object, Object>) newInstance(site);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static BiConsumer<Object, Object> compileSetter(Method method)
+                throws ReflectiveOperationException, LambdaConversionException {
+            MethodHandles.Lookup lookup = lookupFor(method.getDeclaringClass());
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), handle,
+                    handle.type().wrap().changeReturnType(void.class));
+            return (BiConsumer<Object, Object>) newInstance(site);
+        }
+
+        // the factory of a lambda without captured values only returns its instance, errors are not swallowed
+        private static Object newInstance(CallSite site) {
+            try {
+                return site.getTarget().invoke();
+            } catch (Throwable e) {
+                Throwables.throwIfUnchecked(e);
+                throw new IllegalStateException("Unable to create the accessor", e);
+            }
+        }
+
+        // private access so that methods of non-public beans can be compiled too
+        private static MethodHandles.Lookup lookupFor(Class<?> clazz) {
+            try {
+                return MethodHandles.privateLookupIn(clazz, LOOKUP);
+            } catch (IllegalAccessException e) {
+                return LOOKUP;
+            }
+        }
+    }
+}
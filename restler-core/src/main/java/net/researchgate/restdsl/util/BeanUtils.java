@@ -2,14 +2,10 @@ package net.researchgate.restdsl.util;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
-import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -17,6 +13,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -55,33 +52,27 @@ public final class BeanUtils {
      */
     public static <T> boolean merge(T target, T from, Set<String> mergeProperties, Predicate<PropertyChange> copyPredicate) throws Exception {
         LOGGER.debug("* merging target '{}' with data from '{}'", target, from);
-        BeanInfo beanInfo = Introspector.getBeanInfo(target.getClass());
+        BeanAccessors accessors = BeanAccessors.of(target.getClass());
 
         boolean updated = false;
 
         // Iterate over all the attributes
-        for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
-            String propertyName = descriptor.getName();
+        for (BeanAccessors.Property property : accessors.getProperties()) {
+            String propertyName = property.getName();
             if (mergeProperties != null && !mergeProperties.contains(propertyName)) {
                 // LOGGER.debug("+ skipping property '{}' which is not in mergeProperties", propertyName);
                 continue;
             }
 
-            Method readMethod = descriptor.getReadMethod();
-            Method writeMethod = descriptor.getWriteMethod();
-            if (readMethod == null || writeMethod == null) {
-                // LOGGER.debug("+ skipping property '{}' with getter '{}' and setter '{}'", new Object[] {
-                // propertyName, readMethod, writeMethod });
+            if (!property.isReadable() || !property.isWritable()) {
                 continue;
             }
 
-            // LOGGER.debug("+ merging property '{}': getter='{}', setter='{}'", new Object[] { propertyName,
-            // readMethod, writeMethod });
-            Object originalValue = readMethod.invoke(target);
-            Object newValue = readMethod.invoke(from);
+            Object originalValue = property.get(target);
+            Object newValue = property.get(from);
 
             if (copyPredicate.apply(new PropertyChange(propertyName, originalValue, newValue))) {
-                writeMethod.invoke(target, newValue);
+                property.set(target, newValue);
                 updated = true;
             }
         }
@@ -89,33 +80,26 @@ public final class BeanUtils {
     }
 
     public static <T> boolean deepMerge(T target, T from, Map<String, MergeConfig> mergeProperties) throws Exception {
-        BeanInfo beanInfo = Introspector.getBeanInfo(target.getClass());
+        BeanAccessors accessors = BeanAccessors.of(target.getClass());
 
         boolean updated = false;
 
         boolean includeAllKeys = mergeProperties.containsKey("*");
 
         // Iterate over all the attributes
-        for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
-            String propertyName = descriptor.getName();
+        for (BeanAccessors.Property property : accessors.getProperties()) {
+            String propertyName = property.getName();
             if (!includeAllKeys && !mergeProperties.keySet().contains(propertyName)) {
                 // LOGGER.debug("+ skipping property '{}' which is not in mergeProperties", propertyName);
                 continue;
             }
 
-
-            Method readMethod = descriptor.getReadMethod();
-            Method writeMethod = descriptor.getWriteMethod();
-            if (readMethod == null || writeMethod == null) {
-                // LOGGER.debug("+ skipping property '{}' with getter '{}' and setter '{}'", new Object[] {
-                // propertyName, readMethod, writeMethod });
+            if (!property.isReadable() || !property.isWritable()) {
                 continue;
             }
 
-            // LOGGER.debug("+ merging property '{}': getter='{}', setter='{}'", new Object[] { propertyName,
-            // readMethod, writeMethod });
-            Object originalValue = readMethod.invoke(target);
-            Object newValue = readMethod.invoke(from);
+            Object originalValue = property.get(target);
+            Object newValue = property.get(from);
 
 
             MergeConfig propertyConfig = mergeProperties.get(propertyName);
@@ -128,7 +112,7 @@ public final class BeanUtils {
                     }
                 }
                 else {
-                    writeMethod.invoke(target, newValue);
+                    property.set(target, newValue);
                     updated = true;
                 }
             }
@@ -264,28 +248,32 @@ public final class BeanUtils {
         if (property.contains(".")) {
             // We need to recurse down to the final object
             String props[] = property.split("\\.");
-            Method method = obj.getClass().getMethod(getGetterMethodName(props[0], false));
-            Object value = method.invoke(obj);
+            Object value = getReadableProperty(obj, props[0]).get(obj);
             if (value == null) {
                 return null;
             }
             return retrieveObjectValue(value, property.substring(props[0].length() + 1));
         } else {
-            Method method = obj.getClass().getMethod(getGetterMethodName(property, false));
-            return method.invoke(obj);
+            return getReadableProperty(obj, property).get(obj);
         }
     }
 
-    public static Method getWriteMethod(Object obj, String propertyName) throws IntrospectionException {
-        BeanInfo beanInfo = Introspector.getBeanInfo(obj.getClass());
-
-        for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
-            if (descriptor.getName().equals(propertyName)) {
-                return descriptor.getWriteMethod();
-            }
+    private static BeanAccessors.Property getReadableProperty(Object obj, String propertyName) throws NoSuchMethodException {
+        BeanAccessors.Property property;
+        try {
+            property = BeanAccessors.of(obj.getClass()).getProperty(propertyName);
+        } catch (IntrospectionException e) {
+            property = null;
         }
+        if (property == null || !property.isReadable()) {
+            throw new NoSuchMethodException(obj.getClass().getName() + "." + getGetterMethodName(propertyName, false) + "()");
+        }
+        return property;
+    }
 
-        return null;
+    public static Method getWriteMethod(Object obj, String propertyName) throws IntrospectionException {
+        BeanAccessors.Property property = BeanAccessors.of(obj.getClass()).getProperty(propertyName);
+        return property == null ? null : property.getWriteMethod();
     }
 
     /*
@@ -306,15 +294,17 @@ public final class BeanUtils {
             InvocationTargetException, IntrospectionException {
 
         if (!property.contains(".")) {
-            Method method = getWriteMethod(obj, property);
-            method.setAccessible(true);
-            return method.invoke(obj, newValue);
+            BeanAccessors.Property writable = BeanAccessors.of(obj.getClass()).getProperty(property);
+            if (writable == null || !writable.isWritable()) {
+                throw new NoSuchMethodException(obj.getClass().getName() + "." + getSetterMethodName(property));
+            }
+            writable.set(obj, newValue);
+            return null;
         }
 
         // We need to recurse down to the final object
         String props[] = property.split("\\.");
-        Method method = obj.getClass().getMethod(getGetterMethodName(props[0], false));
-        Object value = method.invoke(obj);
+        Object value = getReadableProperty(obj, props[0]).get(obj);
         if (value == null) {
             return null;
         }
@@ -358,8 +348,7 @@ public final class BeanUtils {
         if (property.contains(".")) {
             // We need to recurse down to the final object
             String props[] = property.split("\\.");
-            Method method = obj.getClass().getMethod(getGetterMethodName(props[0], false));
-            Object value = method.invoke(obj);
+            Object value = getReadableProperty(obj, props[0]).get(obj);
             if (value == null) {
                 return null;
             }
@@ -405,8 +394,7 @@ public final class BeanUtils {
 
         // We need to recurse down to the final object
         String props[] = property.split("\\.");
-        Method method = obj.getClass().getMethod(BeanUtils.getGetterMethodName(props[0], false));
-        Object value = method.invoke(obj);
+        Object value = getReadableProperty(obj, props[0]).get(obj);
         if (value == null) {
             return;
         }
@@ -473,14 +461,17 @@ public final class BeanUtils {
         }
         T returnValue = null;
         try {
-            PropertyDescriptor descriptor = new PropertyDescriptor(propertyName, instance.getClass());
-            Method readMethod = descriptor.getReadMethod();
-            if (readMethod == null) {
+            BeanAccessors.Property property = BeanAccessors.of(instance.getClass()).getProperty(propertyName);
+            if (property == null || !property.isWritable()) {
+                // read-write properties only, as with a PropertyDescriptor
+                throw new IntrospectionException("Method not found: " + getSetterMethodName(propertyName));
+            }
+            if (!property.isReadable()) {
                 throw new IllegalStateException("Property '" + propertyName + "' of " + instance.getClass().getName() + " is NOT readable!");
             }
-            if (requiredType.isAssignableFrom(readMethod.getReturnType())) {
+            if (requiredType.isAssignableFrom(property.getType())) {
                 try {
-                    Object propertyValue = readMethod.invoke(instance);
+                    Object propertyValue = property.get(instance);
                     returnValue = requiredType.cast(propertyValue);
                 } catch (Exception e) {
                     e.printStackTrace(); // unable to invoke readMethod
@@ -506,15 +497,13 @@ public final class BeanUtils {
      */
     public static <T> Set<String> getNonNullFields(T bean, Set<String> ignoreFields) throws IntrospectionException, IllegalArgumentException, IllegalAccessException,
             InvocationTargetException {
-        BeanInfo beanInfo = Introspector.getBeanInfo(bean.getClass());
         Set<String> nonNullFields = new HashSet<>();
-        for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
-            String propertyName = descriptor.getName();
-            Method readMethod = descriptor.getReadMethod();
-            if (ignoreFields.contains(propertyName) || readMethod == null) {
+        for (BeanAccessors.Property property : BeanAccessors.of(bean.getClass()).getProperties()) {
+            String propertyName = property.getName();
+            if (ignoreFields.contains(propertyName) || !property.isReadable()) {
                 continue;
             }
-            Object value = readMethod.invoke(bean);
+            Object value = property.get(bean);
             if (value != null) {
                 nonNullFields.add(propertyName);
             }
@@ -551,29 +540,23 @@ public final class BeanUtils {
         LOGGER.debug("* calculating shallow differences between oldBean='{}' and newBean='{}'", oldBean, newBean);
 
         Map<String, Object> changes = new HashMap<>();
-        BeanInfo beanInfo = Introspector.getBeanInfo(oldBean.getClass());
+        BeanAccessors accessors = BeanAccessors.of(oldBean.getClass());
 
         // Iterate over all the attributes
-        for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
-            String propertyName = descriptor.getName();
+        for (BeanAccessors.Property property : accessors.getProperties()) {
+            String propertyName = property.getName();
             boolean contains = properties.contains(propertyName);
             if ((contains && ignore) || (!contains && !ignore)) {
                 // LOGGER.debug("+ skipping property '{}' which is in properties", propertyName);
                 continue;
             }
 
-            Method readMethod = descriptor.getReadMethod();
-            Method writeMethod = descriptor.getWriteMethod();
-            if (readMethod == null || writeMethod == null) {
-                // LOGGER.debug("+ skipping property '{}' with getter '{}' and setter '{}'", new Object[] {
-                // propertyName, readMethod, writeMethod });
+            if (!property.isReadable() || !property.isWritable()) {
                 continue;
             }
 
-            // LOGGER.debug("+ comparing property '{}': getter='{}', setter='{}'", new Object[] { propertyName,
-            // readMethod, writeMethod });
-            Object oldValue = readMethod.invoke(oldBean);
-            Object newValue = readMethod.invoke(newBean);
+            Object oldValue = property.get(oldBean);
+            Object newValue = property.get(newBean);
 
             if (ignoreNewNulls && newValue == null) {
                 continue;
@@ -602,6 +585,83 @@ public final class BeanUtils {
         return changes;
     }
 
+    /*
+     * Computes the differences of read/write properties between oldBean and newBean like shallowDifferences, but descends
+     * into embedded beans: changes are reported by dotted path of the changed leaf, e.g. 'stats.followerCnt', so that
+     * updates touch only what changed. Lists, maps and values of JDK or BSON types are reported as a whole.
+     *
+     * @param oldBean
+     * @param newBean
+     * @param ignoreProperties top level properties to skip
+     * @param ignoreNewNulls skip null properties of newBean, also of embedded beans; elements of lists are compared as they are
+     * @param ignoreEmptyCollections (set to true if null should be considered the same as an empty collection)
+     * @return new values by dotted path, null values for properties that became null
+     */
+    public static <T> Map<String, Object> deepDifferences(T oldBean, T newBean, Set<String> ignoreProperties, boolean ignoreNewNulls, boolean ignoreEmptyCollections) throws IntrospectionException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+        return deepDifferences(oldBean, newBean, ignoreProperties, ignoreNewNulls, ignoreEmptyCollections, false);
+    }
+
+    /*
+     * Like deepDifferences, but with listsByIndex lists of the same size are compared element by element and changed
+     * elements reported by index, e.g. 'additionalStats.2.value'. An index only addresses the same element as long as
+     * the stored list did not change since oldBean was read, so only set listsByIndex if the write checks the version
+     * of oldBean.
+     */
+    public static <T> Map<String, Object> deepDifferences(T oldBean, T newBean, Set<String> ignoreProperties, boolean ignoreNewNulls, boolean ignoreEmptyCollections,
+                                                          boolean listsByIndex) throws IntrospectionException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+        LOGGER.debug("* calculating deep differences between oldBean='{}' and newBean='{}'", oldBean, newBean);
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        collectDeepDifferences(oldBean, newBean, "", ignoreProperties, ignoreNewNulls, ignoreEmptyCollections, listsByIndex, changes);
+        return changes;
+    }
+
+    private static void collectDeepDifferences(Object oldBean, Object newBean, String prefix, Set<String> ignoreProperties, boolean ignoreNewNulls,
+                                               boolean ignoreEmptyCollections, boolean listsByIndex, Map<String, Object> changes) throws IntrospectionException, IllegalAccessException, InvocationTargetException {
+        Map<String, Object> beanChanges = shallowDifferences(oldBean, newBean, ignoreProperties, ignoreNewNulls, ignoreEmptyCollections);
+        if (beanChanges.isEmpty()) {
+            return;
+        }
+        for (BeanAccessors.Property property : BeanAccessors.of(oldBean.getClass()).getProperties()) {
+            String propertyName = property.getName();
+            if (!beanChanges.containsKey(propertyName)) {
+                continue;
+            }
+            Object oldValue = property.get(oldBean);
+            collectValueDifferences(oldValue, beanChanges.get(propertyName), prefix + propertyName, ignoreNewNulls, ignoreEmptyCollections, listsByIndex, changes);
+        }
+    }
+
+    private static void collectValueDifferences(Object oldValue, Object newValue, String path, boolean ignoreNewNulls, boolean ignoreEmptyCollections,
+                                                boolean listsByIndex, Map<String, Object> changes) throws IntrospectionException, IllegalAccessException, InvocationTargetException {
+        if (isEmbeddedBean(oldValue, newValue)) {
+            collectDeepDifferences(oldValue, newValue, path + ".", Collections.emptySet(), ignoreNewNulls, ignoreEmptyCollections, listsByIndex, changes);
+        } else if (listsByIndex && oldValue instanceof List && newValue instanceof List && ((List<?>) oldValue).size() == ((List<?>) newValue).size()) {
+            List<?> oldList = (List<?>) oldValue;
+            List<?> newList = (List<?>) newValue;
+            for (int i = 0; i < newList.size(); i++) {
+                if (!Objects.equal(oldList.get(i), newList.get(i))) {
+                    // an element is replaced as given, its null fields included
+                    collectValueDifferences(oldList.get(i), newList.get(i), path + "." + i, false, ignoreEmptyCollections, true, changes);
+                }
+            }
+        } else {
+            changes.put(path, newValue);
+        }
+    }
+
+    // beans of the same class that are neither values, collections nor maps
+    private static boolean isEmbeddedBean(Object oldValue, Object newValue) {
+        if (oldValue == null || newValue == null || oldValue.getClass() != newValue.getClass()) {
+            return false;
+        }
+        Class<?> clazz = newValue.getClass();
+        String name = clazz.getName();
+        return !clazz.isPrimitive() && !clazz.isArray() && !clazz.isEnum() && !(newValue instanceof Enum)
+                && !(newValue instanceof Collection) && !(newValue instanceof Map)
+                && !name.startsWith("java.") && !name.startsWith("javax.") && !name.startsWith("org.bson.");
+    }
+
     /*
      * Patches bean (left hand side) with all not-null values from patches (right hand side).
      * Takes into account only read-write properties that are not in ignoreProperties.
@@ -618,35 +678,29 @@ public final class BeanUtils {
     public static <T> void patch(T bean, T patches, Set<String> ignoreProperties) throws IntrospectionException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
         LOGGER.debug("* patching bean='{}' with not-null values from patches='{}'", bean, patches);
 
-        BeanInfo beanInfo = Introspector.getBeanInfo(bean.getClass());
+        BeanAccessors accessors = BeanAccessors.of(bean.getClass());
 
         // Iterate over all the attributes
-        for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
-            String propertyName = descriptor.getName();
+        for (BeanAccessors.Property property : accessors.getProperties()) {
+            String propertyName = property.getName();
             if (ignoreProperties.contains(propertyName)) {
                 // LOGGER.debug("+ skipping property '{}' which is in ignoreProperties", propertyName);
                 continue;
             }
 
-            Method readMethod = descriptor.getReadMethod();
-            Method writeMethod = descriptor.getWriteMethod();
-            if (readMethod == null || writeMethod == null) {
-                // LOGGER.debug("+ skipping property '{}' with getter '{}' and setter '{}'", new Object[] {
-                // propertyName, readMethod, writeMethod });
+            if (!property.isReadable() || !property.isWritable()) {
                 continue;
             }
 
-            // LOGGER.debug("+ comparing property '{}': getter='{}', setter='{}'", new Object[] { propertyName,
-            // readMethod, writeMethod });
-            Object oldValue = readMethod.invoke(bean);
-            Object newValue = readMethod.invoke(patches);
+            Object oldValue = property.get(bean);
+            Object newValue = property.get(patches);
 
             if (newValue == null) {
                 continue;
             }
 
             if (!Objects.equal(oldValue, newValue)) {
-                writeMethod.invoke(bean, newValue);
+                property.set(bean, newValue);
             }
         }
     }
@@ -684,40 +738,31 @@ public final class BeanUtils {
      * @throws Exception
      */
     public static <T> void deepCopy(T target, T from) throws Exception {
-        BeanInfo beanFromInfo = Introspector.getBeanInfo(from.getClass());
-        BeanInfo beanToInfo = Introspector.getBeanInfo(target.getClass());
-
-        Map<String, PropertyDescriptor> toPropertyDescriptors = Maps.newHashMap();
-        for (PropertyDescriptor descriptor : beanToInfo.getPropertyDescriptors()) {
-            toPropertyDescriptors.put(descriptor.getName(), descriptor);
-        }
+        BeanAccessors toAccessors = BeanAccessors.of(target.getClass());
 
-        for (PropertyDescriptor descriptor : beanFromInfo.getPropertyDescriptors()) {
+        for (BeanAccessors.Property fromProperty : BeanAccessors.of(from.getClass()).getProperties()) {
 
-            PropertyDescriptor toPropertyDesc = toPropertyDescriptors.get(descriptor.getName());
-            if (toPropertyDesc == null) {
+            BeanAccessors.Property toProperty = toAccessors.getProperty(fromProperty.getName());
+            if (toProperty == null) {
                 continue;
             }
 
-            Method fromReadMethod = descriptor.getReadMethod();
-            Method toWriteMethod = toPropertyDesc.getWriteMethod();
-            Method toReadMethod = toPropertyDesc.getReadMethod();
-            if (fromReadMethod == null || toWriteMethod == null) {
+            if (!fromProperty.isReadable() || !toProperty.isWritable()) {
                 continue;
             }
 
-            Object newValue = fromReadMethod.invoke(from);
+            Object newValue = fromProperty.get(from);
             if (newValue == null) {
                 continue;
             }
 
-            if (fromReadMethod.getReturnType().isAssignableFrom(toReadMethod.getReturnType())) {
-                toWriteMethod.invoke(target, newValue);
+            if (fromProperty.getType().isAssignableFrom(toProperty.getType())) {
+                toProperty.set(target, newValue);
             } else {
                 // The types are not compatible so create a new instance of the target type and apply the deep merge using that
-                Object instance = toReadMethod.getReturnType().newInstance();
+                Object instance = toProperty.getType().newInstance();
                 deepCopy(instance, newValue);
-                toWriteMethod.invoke(target, instance);
+                toProperty.set(target, instance);
             }
         }
     }
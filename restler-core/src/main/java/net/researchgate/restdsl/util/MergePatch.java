@@ -0,0 +1,85 @@
+package net.researchgate.restdsl.util;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import net.researchgate.restdsl.exceptions.RestDslException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Translates JSON Merge Patch documents (RFC 7396) into field changes of an entity, keyed by dotted java paths as
+ * expected by {@link net.researchgate.restdsl.dao.PersistentServiceDao#patch}.
+ * <p>
+ * Nested objects are merged field by field, null values unset the field and all other values, including arrays,
+ * replace the stored value. Values are converted to the types of the entity with the given mapper, so that
+ * e.g. dates and ObjectIds are stored with their BSON types.
+ */
+public final class MergePatch {
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private MergePatch() {
+    }
+
+    /**
+     * @param mergePatch the patch as read by Jackson into maps, lists and scalars
+     * @return changed fields by dotted java path, null for fields to unset
+     */
+    public static Map<String, Object> toChanges(Map<String, Object> mergePatch, Class<?> entityClazz, ObjectMapper mapper) throws RestDslException {
+        Object typed;
+        try {
+            typed = mapper.convertValue(mergePatch, entityClazz);
+        } catch (IllegalArgumentException e) {
+            throw new RestDslException("Cannot apply merge patch to " + entityClazz.getSimpleName() + ": " + e.getMessage(),
+                    e, RestDslException.Type.ENTITY_ERROR);
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        collectChanges(mergePatch, typed, "", mapper, changes);
+        return changes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectChanges(Map<String, Object> patch, Object typed, String prefix, ObjectMapper mapper,
+                                       Map<String, Object> changes) {
+        Map<String, BeanPropertyDefinition> properties = typed instanceof Map ? null : getProperties(typed.getClass(), mapper);
+        for (Map.Entry<String, Object> e : patch.entrySet()) {
+            String name = e.getKey();
+            Object typedValue;
+            if (properties == null) {
+                typedValue = ((Map<String, Object>) typed).get(name);
+            } else {
+                BeanPropertyDefinition property = properties.get(name);
+                // the typed value is read back through the getter
+                AnnotatedMember getter = property == null ? null : property.getAccessor();
+                if (getter == null) {
+                    throw new RestDslException("Field '" + prefix + name + "' of " + typed.getClass().getSimpleName() +
+                            " cannot be patched", RestDslException.Type.ENTITY_ERROR);
+                }
+                name = property.getInternalName();
+                typedValue = getter.getValue(typed);
+            }
+
+            String path = prefix + name;
+            if (e.getValue() == null) {
+                changes.put(path, null);
+            } else if (e.getValue() instanceof Map && typedValue != null) {
+                // an empty object changes nothing
+                collectChanges((Map<String, Object>) e.getValue(), typedValue, path + ".", mapper, changes);
+            } else {
+                changes.put(path, typedValue);
+            }
+        }
+    }
+
+    // by JSON name
+    private static Map<String, BeanPropertyDefinition> getProperties(Class<?> clazz, ObjectMapper mapper) {
+        BeanDescription description = mapper.getSerializationConfig().introspect(mapper.constructType(clazz));
+        Map<String, BeanPropertyDefinition> properties = new LinkedHashMap<>();
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            properties.put(property.getName(), property);
+        }
+        return properties;
+    }
+}
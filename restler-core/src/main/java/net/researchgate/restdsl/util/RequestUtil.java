@@ -8,25 +8,36 @@ import dev.morphia.mapping.Mapper;
 import net.researchgate.restdsl.dao.EntityFieldMapper;
 import net.researchgate.restdsl.domain.EntityInfo;
 import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.queries.ConsistencyToken;
+import net.researchgate.restdsl.queries.CountMode;
 import net.researchgate.restdsl.queries.PatchContext;
 import net.researchgate.restdsl.queries.ServiceQuery;
 import net.researchgate.restdsl.queries.ServiceQueryParams;
+import net.researchgate.restdsl.types.FieldPath;
 import net.researchgate.restdsl.types.TypeInfoUtil;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.tuple.Pair;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.UriInfo;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Utilities for dealing with requests
  */
 public class RequestUtil {
+    /**
+     * Request header with the time limit of the query in milliseconds, see {@link ServiceQuery#getMaxTime()}
+     */
+    public static final String MAX_TIME_HEADER = "X-Request-Timeout-Ms";
+    public static final String CONSISTENCY_TOKEN_HEADER = "X-Consistency-Token";
 
     public static Integer getInt(String key, UriInfo uriInfo) throws RestDslException {
         MultivaluedMap<String, String> map = uriInfo.getQueryParameters();
@@ -74,21 +85,91 @@ public class RequestUtil {
     }
 
     public static PatchContext getPatchContext(UriInfo uriInfo) throws RestDslException {
+        return getPatchContext(uriInfo, null);
+    }
+
+    /**
+     * @return context with the fields to unset and the version of the If-Match header
+     */
+    public static PatchContext getPatchContext(UriInfo uriInfo, HttpHeaders headers) throws RestDslException {
         Set<String> unsetFields = getToSet("unsetFields", uriInfo);
-        return unsetFields == null ? PatchContext.DEFAULT_CONTEXT : PatchContext.builder().unsetFields(unsetFields).build();
+        Long expectedVersion = getExpectedVersion(headers);
+        if (unsetFields == null && expectedVersion == null) {
+            return PatchContext.DEFAULT_CONTEXT;
+        }
+        return PatchContext.builder()
+                .unsetFields(unsetFields == null ? Collections.emptySet() : unsetFields)
+                .expectedVersion(expectedVersion)
+                .build();
+    }
+
+    /**
+     * @return entity version of the If-Match header, e.g. "3" or W/"3", null if the header is missing
+     */
+    public static Long getExpectedVersion(HttpHeaders headers) throws RestDslException {
+        String value = headers == null ? null : headers.getHeaderString(HttpHeaders.IF_MATCH);
+        if (value == null) {
+            return null;
+        }
+        String version = StringUtils.removeStart(value.trim(), "W/");
+        version = StringUtils.removeEnd(StringUtils.removeStart(version, "\""), "\"");
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            throw new RestDslException("Cannot parse entity version from header '" + HttpHeaders.IF_MATCH + "': " + value,
+                    RestDslException.Type.PARAMS_ERROR);
+        }
+    }
 
+    /**
+     * @return time limit of the {@value #MAX_TIME_HEADER} header, null if the header is missing
+     */
+    public static Duration getMaxTime(HttpHeaders headers) throws RestDslException {
+        String value = headers == null ? null : headers.getHeaderString(MAX_TIME_HEADER);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new RestDslException("Cannot parse milliseconds from header '" + MAX_TIME_HEADER + "'", RestDslException.Type.PARAMS_ERROR);
+        }
+    }
+
+    /**
+     * @return token of the {@value #CONSISTENCY_TOKEN_HEADER} header, null if the header is missing
+     */
+    public static ConsistencyToken getConsistencyToken(HttpHeaders headers) throws RestDslException {
+        String value = headers == null ? null : headers.getHeaderString(CONSISTENCY_TOKEN_HEADER);
+        return value == null || value.isBlank() ? null : ConsistencyToken.decode(value);
     }
 
     public static <K, V> ServiceQuery<K> parseRequest(Class<V> entityClazz, Class<K> idClazz, PathSegment segment, UriInfo uriInfo, ServiceQueryParams defaultParams, EntityFieldMapper mapper) throws RestDslException {
+        return parseRequest(entityClazz, idClazz, segment, uriInfo, null, defaultParams, mapper);
+    }
+
+    /**
+     * @param headers request headers, may be null
+     */
+    public static <K, V> ServiceQuery<K> parseRequest(Class<V> entityClazz, Class<K> idClazz, PathSegment segment, UriInfo uriInfo, HttpHeaders headers, ServiceQueryParams defaultParams, EntityFieldMapper mapper) throws RestDslException {
         ServiceQuery.ServiceQueryBuilder<K> builder = ServiceQuery.builder();
 
         builder.offset(getInt("offset", uriInfo));
         builder.limit(getInt("limit", uriInfo));
         builder.fields(getToList("fields", uriInfo));
         builder.order(uriInfo.getQueryParameters().getFirst("order"));
+        builder.after(getString("after", uriInfo));
         builder.indexValidation(getBoolean("indexValidation", uriInfo));
         builder.countTotalItems(getBoolean("countTotalItems", uriInfo));
+        String countMode = getString("countMode", uriInfo);
+        if (countMode != null) {
+            builder.countMode(CountMode.fromString(countMode));
+        }
         builder.groupBy(getString("groupBy", uriInfo));
+        builder.maxParallelism(getInt("maxParallelism", uriInfo));
+        builder.maxTime(getMaxTime(headers));
+        builder.consistencyToken(getConsistencyToken(headers));
+        builder.hint(getString("hint", uriInfo));
         builder.withServiceQueryParams(defaultParams);
         builder.syncMatch(getToList("syncMatch", uriInfo));
 
@@ -103,20 +184,16 @@ public class RequestUtil {
                 }
                 ServiceQueryUtil.ParsedQueryField parsedQueryField = ServiceQueryUtil.parseQueryField(fieldNameWithCriteria);
                 String fieldNameWithoutConditions = parsedQueryField.getFieldName();
-                Pair<Class<?>, Class<?>> pairOfFieldClazzAndParentClazz =
-                        TypeInfoUtil.getFieldExpressionClazz(mapper, entityClazz, fieldNameWithoutConditions);
-
-                Class<?> fieldClazz = pairOfFieldClazzAndParentClazz.getLeft();
+                FieldPath fieldPath = mapper.getFieldPaths(entityClazz).resolve(fieldNameWithoutConditions);
 
-                List<Object> criteriaList = Lists.newArrayList(Iterables.transform(splitValues,
-                        input -> TypeInfoUtil.getValue(input, fieldClazz)));
+                List<Object> criteriaList = Lists.newArrayList(Iterables.transform(splitValues, fieldPath::convert));
 
                 builder.withCriteria(parsedQueryField.getFullCriteria(), criteriaList);
             }
         }
         if (!StringUtils.isEmpty(segment.getPath()) && !segment.getPath().startsWith("-")) {
-            builder.ids(Lists.transform(Splitter.on(',').splitToList(segment.getPath()),
-                    input -> TypeInfoUtil.getValue(input, idClazz)));
+            Function<String, K> idConverter = TypeInfoUtil.getValueConverter(idClazz);
+            builder.ids(Lists.transform(Splitter.on(',').splitToList(segment.getPath()), idConverter::apply));
         }
 
         return builder.build();
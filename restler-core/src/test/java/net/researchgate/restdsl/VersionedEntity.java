@@ -0,0 +1,46 @@
+package net.researchgate.restdsl;
+
+import dev.morphia.annotations.Entity;
+import dev.morphia.annotations.Id;
+import dev.morphia.annotations.Version;
+
+@Entity(value = "versionedEntities", useDiscriminator = false)
+public class VersionedEntity {
+    @Id
+    Long id;
+    String value;
+    @Version
+    long version;
+
+    public VersionedEntity() {
+    }
+
+    public VersionedEntity(Long id, String value) {
+        this.id = id;
+        this.value = value;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
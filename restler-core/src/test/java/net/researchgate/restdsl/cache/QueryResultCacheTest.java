@@ -0,0 +1,89 @@
+package net.researchgate.restdsl.cache;
+
+import net.researchgate.restdsl.TestEntity;
+import net.researchgate.restdsl.dao.EntityFieldMapper;
+import net.researchgate.restdsl.queries.ReadRoute;
+import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.EntityResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class QueryResultCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<ServiceQuery<Long>, EntityResult<TestEntity>> loader = q -> {
+        loads.incrementAndGet();
+        return new EntityResult<>(List.of(new TestEntity(1L, "a"), new TestEntity(2L, "b")), 2L);
+    };
+    private EntityFieldMapper entityMapper;
+
+    @Before
+    public void setUp() {
+        entityMapper = Mockito.mock(EntityFieldMapper.class);
+        Mockito.when(entityMapper.getIdValue(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> ((TestEntity) invocation.getArgument(1)).getId());
+    }
+
+    @Test
+    public void testGet_admitsRepeatedQueries() {
+        QueryResultCache<TestEntity, Long> cache = QueryResultCache.builder().build(entityMapper);
+        ServiceQuery<Long> q = ServiceQuery.<Long>builder().limit(10).build();
+
+        cache.get(q, loader);
+        assertEquals(0, cache.size());
+        EntityResult<TestEntity> admitted = cache.get(q, loader);
+        assertEquals(1, cache.size());
+        assertSame(admitted, cache.get(ServiceQuery.<Long>builder().limit(10).build(), loader));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testGet_queriesExecutedDifferentlyAreCachedApart() {
+        QueryResultCache<TestEntity, Long> cache = QueryResultCache.builder().admissionWindow(0, Duration.ZERO).build(entityMapper);
+        cache.get(ServiceQuery.<Long>builder().limit(10).build(), loader);
+        cache.get(ServiceQuery.<Long>builder().limit(10).readRoute(ReadRoute.builder(ReadRoute.Mode.SECONDARY).build()).build(), loader);
+        cache.get(ServiceQuery.<Long>builder().limit(10).maxTime(Duration.ofSeconds(1)).build(), loader);
+        cache.get(ServiceQuery.<Long>builder().limit(10).indexValidation(false).build(), loader);
+        assertEquals(4, cache.size());
+
+        cache.get(ServiceQuery.<Long>builder().limit(10).readRoute(ReadRoute.builder(ReadRoute.Mode.SECONDARY).build()).build(), loader);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testInvalidate_byContainedId() {
+        QueryResultCache<TestEntity, Long> cache = QueryResultCache.builder().admissionWindow(0, Duration.ZERO).build(entityMapper);
+        ServiceQuery<Long> q = ServiceQuery.<Long>builder().limit(10).build();
+        cache.get(q, loader);
+
+        cache.invalidate(List.of(3L));
+        assertEquals(1, cache.size());
+        cache.invalidate(List.of(2L));
+        assertEquals(0, cache.size());
+
+        cache.get(q, loader);
+        cache.invalidate(null);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testGet_zeroTtlIsNotCached() {
+        QueryResultCache<TestEntity, Long> cache = QueryResultCache.builder()
+                .admissionWindow(0, Duration.ZERO)
+                .defaultTtl(Duration.ZERO)
+                .build(entityMapper);
+        ServiceQuery<Long> q = ServiceQuery.<Long>builder().limit(10).build();
+        cache.get(q, loader);
+        cache.get(q, loader);
+        assertEquals(0, cache.size());
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,95 @@
+package net.researchgate.restdsl.dao;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ByIdBatchLoaderTest {
+    private final ConcurrentLinkedQueue<Collection<Integer>> batches = new ConcurrentLinkedQueue<>();
+    private final Function<Collection<Integer>, Map<Integer, String>> batchQuery = ids -> {
+        batches.add(ids);
+        return ids.stream().filter(id -> id > 0).collect(Collectors.toMap(id -> id, id -> "v" + id));
+    };
+
+    @Test
+    public void testLoad_collectsConcurrentLookups() {
+        ByIdBatchLoader<String, Integer> loader = new ByIdBatchLoader<>(batchQuery, Duration.ofMillis(200), 100);
+        List<String> results = loadConcurrently(loader, List.of(1, 2, 3, 4, 5, 6, 7, 8));
+
+        assertEquals(List.of("v1", "v2", "v3", "v4", "v5", "v6", "v7", "v8"), results);
+        assertTrue("Expected fewer batches than lookups, but got " + batches, batches.size() < 8);
+    }
+
+    @Test
+    public void testLoad_respectsMaxBatchSize() {
+        ByIdBatchLoader<String, Integer> loader = new ByIdBatchLoader<>(batchQuery, Duration.ofMillis(200), 2);
+        loadConcurrently(loader, List.of(1, 2, 3, 4, 5, 6));
+
+        for (Collection<Integer> batch : batches) {
+            assertTrue("Batch too large: " + batch, batch.size() <= 2);
+        }
+    }
+
+    @Test
+    public void testLoad_missingEntityIsNull() {
+        ByIdBatchLoader<String, Integer> loader = new ByIdBatchLoader<>(batchQuery, Duration.ZERO, 10);
+        assertNull(loader.load(-1));
+        assertEquals("v1", loader.load(1));
+    }
+
+    @Test
+    public void testLoad_failurePropagatesToCallers() {
+        ByIdBatchLoader<String, Integer> loader = new ByIdBatchLoader<>(ids -> {
+            throw new IllegalStateException("unavailable");
+        }, Duration.ZERO, 10);
+        assertThrows(IllegalStateException.class, () -> loader.load(1));
+    }
+
+    @Test
+    public void testLoad_errorCompletesAllCallers() {
+        ByIdBatchLoader<String, Integer> loader = new ByIdBatchLoader<>(ids -> {
+            throw new AssertionError("broken");
+        }, Duration.ofMillis(200), 100);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<CompletableFuture<String>> lookups = List.of(
+                    CompletableFuture.supplyAsync(() -> loader.load(1), executor),
+                    CompletableFuture.supplyAsync(() -> loader.load(2), executor));
+            for (CompletableFuture<String> lookup : lookups) {
+                CompletionException e = assertThrows(CompletionException.class, lookup::join);
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<String> loadConcurrently(ByIdBatchLoader<String, Integer> loader, List<Integer> ids) {
+        ExecutorService executor = Executors.newFixedThreadPool(ids.size());
+        try {
+            List<CompletableFuture<String>> lookups = new ArrayList<>();
+            for (Integer id : ids) {
+                lookups.add(CompletableFuture.supplyAsync(() -> loader.load(id), executor));
+            }
+            return lookups.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package net.researchgate.restdsl.dao;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import dev.morphia.Datastore;
+import dev.morphia.Morphia;
+import net.researchgate.restdsl.GroupByEntity;
+import net.researchgate.restdsl.dao.ServiceDaoTest.TestWithDateDao;
+import net.researchgate.restdsl.queries.CountMode;
+import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.results.EntityList;
+import net.researchgate.restdsl.results.EntityMultimap;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.List;
+import java.util.Map;
+
+import static net.researchgate.restdsl.dao.ServiceDaoTest.getDates;
+import static net.researchgate.restdsl.dao.ServiceDaoTest.getIds;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link GroupByStrategy#AGGREGATION}, which needs MongoDB 5.0, while {@link ServiceDaoTest} covers the default
+ * strategy on the oldest supported server
+ */
+public class GroupByAggregationTest {
+
+    public static GenericContainer mongoDBContainer = new GenericContainer("mongo:5.0").withExposedPorts(27017);
+
+    private static Datastore datastore;
+    private static MongoClient client;
+    private static com.mongodb.reactivestreams.client.MongoClient asyncClient;
+
+    @BeforeClass
+    public static void setUp() {
+        mongoDBContainer.start();
+        final String uri = "mongodb://" + mongoDBContainer.getHost() + ":" + mongoDBContainer.getMappedPort(27017);
+        client = MongoClients.create(uri);
+        asyncClient = com.mongodb.reactivestreams.client.MongoClients.create(uri);
+        datastore = Morphia.createDatastore(client, "testDatabase");
+        ServiceDaoTest.insertGroupByEntities(datastore);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        client.close();
+        asyncClient.close();
+        mongoDBContainer.stop();
+    }
+
+    @Test
+    public void testGroupBy_perKeyStrategy_sameResultAsAggregation() {
+        final TestWithDateDao aggregationDao = newAggregationDao();
+        final TestWithDateDao perKeyDao = new TestWithDateDao(datastore);
+
+        final List<String> groups = List.of("test05", "test07", "DOES_NOT_EXIST");
+        for (Integer limit : List.of(0, 2, 10)) {
+            final ServiceQuery<Long> q = ServiceQuery.<Long>builder()
+                    .withCriteria("group", groups)
+                    .order("-date")
+                    .groupBy("group")
+                    .offset(1)
+                    .limit(limit)
+                    .build();
+            Map<Object, EntityList<GroupByEntity>> expected = perKeyDao.get(q).getMultimap().getItems();
+            EntityMultimap<GroupByEntity> actual = aggregationDao.get(q).getMultimap();
+
+            assertEquals(expected.keySet(), actual.getItems().keySet());
+            for (String group : groups) {
+                assertEquals(expected.get(group).getTotalItems(), actual.getItems().get(group).getTotalItems());
+                assertEquals(getDates(expected.get(group)), getDates(actual.getItems().get(group)));
+            }
+            assertEquals(Long.valueOf(12L), actual.getTotalItems());
+        }
+    }
+
+    @Test
+    public void testGroupBy_cappedCountPerGroup() {
+        final TestWithDateDao aggregationDao = newAggregationDao();
+        final TestWithDateDao perKeyDao = new TestWithDateDao(datastore);
+
+        final ServiceQuery<Long> q = ServiceQuery.<Long>builder()
+                .withCriteria("group", List.of("test05", "test07"))
+                .order("-date")
+                .groupBy("group")
+                .countMode(CountMode.capped(6))
+                .limit(2)
+                .build();
+        for (TestWithDateDao dao : List.of(aggregationDao, perKeyDao)) {
+            Map<Object, EntityList<GroupByEntity>> groups = dao.get(q).getMultimap().getItems();
+            assertEquals(Long.valueOf(5L), groups.get("test05").getTotalItems());
+            assertNull(groups.get("test05").getTotalItemsCapped());
+            assertEquals(Long.valueOf(6L), groups.get("test07").getTotalItems());
+            assertEquals(Boolean.TRUE, groups.get("test07").getTotalItemsCapped());
+            assertEquals(2, groups.get("test07").getItems().size());
+        }
+    }
+
+    @Test
+    public void testGroupBy_projectionWithoutOrderField() {
+        final TestWithDateDao dao = newAggregationDao();
+        final ServiceQuery<Long> ordered = ServiceQuery.<Long>builder()
+                .withCriteria("group", List.of("test05", "test07"))
+                .order("-date")
+                .groupBy("group")
+                .limit(2)
+                .build();
+        final ServiceQuery<Long> projected = ServiceQuery.<Long>builder()
+                .withCriteria("group", List.of("test05", "test07"))
+                .order("-date")
+                .groupBy("group")
+                .fields(List.of("id"))
+                .limit(2)
+                .build();
+
+        Map<Object, EntityList<GroupByEntity>> expected = dao.get(ordered).getMultimap().getItems();
+        Map<Object, EntityList<GroupByEntity>> actual = dao.get(projected).getMultimap().getItems();
+        for (String group : List.of("test05", "test07")) {
+            assertEquals(getIds(expected.get(group)), getIds(actual.get(group)));
+            assertEquals(2, actual.get(group).getItems().size());
+            assertNull(actual.get(group).getItems().get(0).getDate());
+        }
+    }
+
+    @Test
+    public void testGroupBy_asyncDao_sameResultAsBlockingDao() {
+        final TestWithDateDao dao = newAggregationDao();
+        final MongoAsyncServiceDao<GroupByEntity, Long> asyncDao = new MongoAsyncServiceDao<>(dao, asyncClient);
+
+        final List<String> groups = List.of("test05", "test07", "DOES_NOT_EXIST");
+        for (Integer limit : List.of(0, 2)) {
+            final ServiceQuery<Long> q = ServiceQuery.<Long>builder()
+                    .withCriteria("group", groups)
+                    .order("-date")
+                    .groupBy("group")
+                    .offset(1)
+                    .limit(limit)
+                    .build();
+            EntityMultimap<GroupByEntity> expected = dao.get(q).getMultimap();
+            EntityMultimap<GroupByEntity> actual = asyncDao.get(q).toCompletableFuture().join().getMultimap();
+
+            assertEquals(expected.getItems().keySet(), actual.getItems().keySet());
+            for (String group : groups) {
+                assertEquals(expected.getItems().get(group).getTotalItems(), actual.getItems().get(group).getTotalItems());
+                assertEquals(getDates(expected.getItems().get(group)), getDates(actual.getItems().get(group)));
+            }
+            assertEquals(Long.valueOf(12L), actual.getTotalItems());
+        }
+    }
+
+    private static TestWithDateDao newAggregationDao() {
+        TestWithDateDao dao = new TestWithDateDao(datastore);
+        dao.setGroupByStrategy(GroupByStrategy.AGGREGATION);
+        return dao;
+    }
+}
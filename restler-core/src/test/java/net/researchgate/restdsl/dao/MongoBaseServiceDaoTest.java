@@ -1,12 +1,24 @@
 package net.researchgate.restdsl.dao;
 
+import com.mongodb.ReadPreference;
+import com.mongodb.Tag;
+import com.mongodb.TagSet;
+import com.mongodb.TaggableReadPreference;
 import dev.morphia.query.Sort;
+import net.researchgate.restdsl.queries.ReadRoute;
 import org.junit.Test;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class MongoBaseServiceDaoTest {
 
@@ -52,6 +64,46 @@ public class MongoBaseServiceDaoTest {
         assertSort(sorts[1], "field2", false);
     }
 
+    @Test
+    public void testToReadPreference() {
+        assertEquals(ReadPreference.primary(), MongoBaseServiceDao.toReadPreference(ReadRoute.primary()));
+
+        ReadRoute analytics = ReadRoute.builder(ReadRoute.Mode.SECONDARY)
+                .tagSet(Map.of("nodeType", "ANALYTICS"))
+                .maxStaleness(Duration.ofSeconds(120))
+                .build();
+        TaggableReadPreference readPreference = (TaggableReadPreference) MongoBaseServiceDao.toReadPreference(analytics);
+        assertEquals("secondary", readPreference.getName());
+        assertEquals(List.of(new TagSet(new Tag("nodeType", "ANALYTICS"))), readPreference.getTagSetList());
+        assertEquals(Long.valueOf(120), readPreference.getMaxStaleness(TimeUnit.SECONDS));
+        assertNull(readPreference.getHedgeOptions());
+
+        ReadRoute hedged = ReadRoute.builder(ReadRoute.Mode.NEAREST).hedged(true).build();
+        assertTrue(((TaggableReadPreference) MongoBaseServiceDao.toReadPreference(hedged)).getHedgeOptions().isEnabled());
+    }
+
+    @Test
+    public void testReadRoutingRules_mostSpecificRuleWins() {
+        ReadRoute shapeRoute = ReadRoute.builder(ReadRoute.Mode.SECONDARY).build();
+        ReadRoute collectionRoute = ReadRoute.builder(ReadRoute.Mode.SECONDARY_PREFERRED).build();
+        ReadRoute defaultRoute = ReadRoute.primary();
+        ReadRoutingRules rules = ReadRoutingRules.builder()
+                .defaultRoute(defaultRoute)
+                .collection("accounts", collectionRoute)
+                .queryShape("accounts", "groupBy-rating", shapeRoute)
+                .build();
+
+        assertSame(shapeRoute, rules.getRoute("accounts", "groupBy-rating"));
+        assertSame(collectionRoute, rules.getRoute("accounts", "id"));
+        assertSame(defaultRoute, rules.getRoute("publications", "groupBy-rating"));
+        assertNull(ReadRoutingRules.builder().build().getRoute("accounts", "id"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadRoute_primaryWithTags_throws() {
+        ReadRoute.builder(ReadRoute.Mode.PRIMARY).tagSet(Map.of("nodeType", "ANALYTICS")).build();
+    }
+
     // Helper that uses reflection to assert that a Sort object targets the
     // expected field and has the specified direction
     // @throws Exception if the Sort class structure is not as expected or if the
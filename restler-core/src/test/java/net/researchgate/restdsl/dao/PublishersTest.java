@@ -0,0 +1,73 @@
+package net.researchgate.restdsl.dao;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PublishersTest {
+
+    @Test
+    public void testToList_collectsItems() {
+        assertEquals(List.of(1, 2), Publishers.toList(new TestPublisher<>(List.of(1, 2))).join());
+        assertEquals(Integer.valueOf(1), Publishers.first(new TestPublisher<>(List.of(1, 2))).join());
+    }
+
+    @Test
+    public void testCancel_ofDependentStageCancelsSubscription() {
+        TestPublisher<Integer> publisher = new TestPublisher<>(null);
+        CompletableFuture<String> stage = Publishers.first(publisher).thenApply(String::valueOf);
+
+        stage.cancel(true);
+
+        assertTrue(publisher.cancelled.get());
+    }
+
+    @Test
+    public void testCancel_ofComposedStageCancelsInnerSubscription() {
+        TestPublisher<Integer> inner = new TestPublisher<>(null);
+        CompletableFuture<Integer> stage = Publishers.first(new TestPublisher<>(List.of(1)))
+                .thenCompose(ignored -> Publishers.first(inner));
+        assertFalse(inner.cancelled.get());
+
+        stage.cancel(true);
+
+        assertTrue(inner.cancelled.get());
+    }
+
+    // publishes the items on request, never completes without items
+    private static final class TestPublisher<T> implements Publisher<T> {
+        private final List<T> items;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private TestPublisher(List<T> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super T> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    if (items != null && !cancelled.get()) {
+                        items.forEach(subscriber::onNext);
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+}
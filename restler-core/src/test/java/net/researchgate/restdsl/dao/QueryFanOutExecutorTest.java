@@ -0,0 +1,87 @@
+package net.researchgate.restdsl.dao;
+
+import net.researchgate.restdsl.exceptions.RestDslException;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class QueryFanOutExecutorTest {
+
+    @Test
+    public void testExecute_keepsKeyOrder() {
+        Map<Integer, String> result = QueryFanOutExecutor.withParallelism(4)
+                .execute(List.of(5, 3, 1, 4, 2), i -> "v" + i);
+        assertEquals(List.of(5, 3, 1, 4, 2), List.copyOf(result.keySet()));
+        assertEquals("v4", result.get(4));
+    }
+
+    @Test
+    public void testExecute_respectsRequestedParallelism() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        QueryFanOutExecutor.withParallelism(8).execute(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), i -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(20);
+            inFlight.decrementAndGet();
+            return i;
+        }, 3);
+        assertTrue("Max in flight was " + maxInFlight.get(), maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void testExecute_runsInParallel() {
+        CountDownLatch allStarted = new CountDownLatch(3);
+        Map<Integer, Boolean> result = QueryFanOutExecutor.withParallelism(3).execute(List.of(1, 2, 3), i -> {
+            allStarted.countDown();
+            try {
+                return allStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertEquals(Map.of(1, true, 2, true, 3, true), result);
+    }
+
+    @Test
+    public void testExecute_propagatesFailure() {
+        RestDslException e = assertThrows(RestDslException.class, () -> QueryFanOutExecutor.withParallelism(2)
+                .execute(List.of(1, 2, 3), i -> {
+                    if (i == 2) {
+                        throw new RestDslException("failed", RestDslException.Type.QUERY_ERROR);
+                    }
+                    return i;
+                }));
+        assertEquals(RestDslException.Type.QUERY_ERROR, e.getType());
+    }
+
+    @Test(timeout = 10000)
+    public void testExecute_nestedFanOutsDoNotWaitForQueuedHelpers() throws Exception {
+        // a single thread pool busy with the outer fan-out, so inner helpers stay queued
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+        try {
+            QueryFanOutExecutor executor = new QueryFanOutExecutor(pool, 4);
+            Map<Integer, Integer> result = executor.submit(() -> executor.execute(List.of(1, 2, 3), i -> i * 2)).get();
+            assertEquals(Map.of(1, 2, 2, 4, 3, 6), result);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
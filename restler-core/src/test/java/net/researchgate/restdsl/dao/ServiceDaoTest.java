@@ -1,5 +1,6 @@
 package net.researchgate.restdsl.dao;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
@@ -10,54 +11,79 @@ import dev.morphia.Datastore;
 import dev.morphia.Morphia;
 import net.researchgate.restdsl.GroupByEntity;
 import net.researchgate.restdsl.TestEntity;
+import net.researchgate.restdsl.VersionedEntity;
 import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.metrics.MetricName;
 import net.researchgate.restdsl.metrics.MetricSink;
 import net.researchgate.restdsl.metrics.NoOpMetricSink;
+import net.researchgate.restdsl.model.ServiceModel;
+import net.researchgate.restdsl.queries.ConsistencyToken;
+import net.researchgate.restdsl.queries.CountMode;
+import net.researchgate.restdsl.queries.PatchContext;
+import net.researchgate.restdsl.queries.QueryExplanation;
 import net.researchgate.restdsl.queries.ServiceQuery;
+import net.researchgate.restdsl.queries.ServiceQueryInfo;
+import net.researchgate.restdsl.results.BulkItemResult;
+import net.researchgate.restdsl.results.BulkWriteResult;
 import net.researchgate.restdsl.results.EntityList;
 import net.researchgate.restdsl.results.EntityMultimap;
 import net.researchgate.restdsl.results.EntityResult;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
-import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MongoDBContainer;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.Period;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static io.smallrye.common.constraint.Assert.assertNotNull;
 import static java.lang.String.format;
+import static net.researchgate.restdsl.exceptions.RestDslException.Type.CONFLICT;
+import static net.researchgate.restdsl.exceptions.RestDslException.Type.PARAMS_ERROR;
 import static net.researchgate.restdsl.exceptions.RestDslException.Type.QUERY_ERROR;
+import static net.researchgate.restdsl.exceptions.RestDslException.Type.TIMEOUT;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.fail;
 
 public class ServiceDaoTest {
 
-    public static GenericContainer mongoDBContainer = new GenericContainer("mongo:4.4").withExposedPorts(27017);
+    // a single node replica set, as causally consistent sessions need one, with fail points for timeouts
+    public static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:4.4")
+            .withCommand("--replSet", "docker-rs", "--setParameter", "enableTestCommands=1");
 
     private static Datastore fakedDatastore;
     private static MongoClient client;
+    private static com.mongodb.reactivestreams.client.MongoClient asyncClient;
 
     @BeforeClass
     public static void setUp() {
         mongoDBContainer.start();
 
-        ConnectionString uri = new ConnectionString("mongodb://" + mongoDBContainer.getHost() + ":" + mongoDBContainer.getMappedPort(27017));
+        ConnectionString uri = new ConnectionString(mongoDBContainer.getConnectionString());
         MongoClientSettings clientSettings = MongoClientSettings.builder()
                 .applyConnectionString(uri)
                 .build();
 
         client = MongoClients.create(clientSettings);
+        asyncClient = com.mongodb.reactivestreams.client.MongoClients.create(clientSettings);
         fakedDatastore = Morphia.createDatastore(client, "testDatabase");
         final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class);
 
@@ -65,8 +91,13 @@ public class ServiceDaoTest {
         TestEntity dbEntity = dao.save(new TestEntity(1L, "test"));
         dao.delete(dbEntity.getId());
 
-        fakedDatastore.getCollection(GroupByEntity.class).createIndex(Document.parse("{ group: 1 }"));
-        final TestWithDateDao daoWithDate = new TestWithDateDao(fakedDatastore);
+        insertGroupByEntities(fakedDatastore);
+    }
+
+    // groups test01 to test19, group N with N entities dated one day apart from 2025-01-01
+    static void insertGroupByEntities(Datastore datastore) {
+        datastore.getCollection(GroupByEntity.class).createIndex(Document.parse("{ group: 1 }"));
+        final TestWithDateDao daoWithDate = new TestWithDateDao(datastore);
         final Instant start = LocalDate.of(2025, 1, 1)
                 .atStartOfDay(ZoneOffset.UTC)
                 .toInstant();
@@ -94,6 +125,7 @@ public class ServiceDaoTest {
     @AfterClass
     public static void tearDown() {
         client.close();
+        asyncClient.close();
         mongoDBContainer.stop();
     }
 
@@ -170,11 +202,18 @@ public class ServiceDaoTest {
         assertEquals(Long.valueOf(9L), multimap.getTotalItems());
     }
 
-    private static Date utcDate(int year, int month, int day) {
+    static List<ObjectId> getIds(EntityList<GroupByEntity> list) {
+        return list.getItems()
+                .stream()
+                .map(GroupByEntity::getId)
+                .collect(Collectors.toList());
+    }
+
+    static Date utcDate(int year, int month, int day) {
         return Date.from(LocalDate.of(year, month, day).atStartOfDay(ZoneOffset.UTC).toInstant());
     }
 
-    private static List<Date> getDates(EntityList<GroupByEntity> list) {
+    static List<Date> getDates(EntityList<GroupByEntity> list) {
         return list.getItems()
                 .stream()
                 .map(GroupByEntity::getDate)
@@ -217,6 +256,33 @@ public class ServiceDaoTest {
         assertThrows(RestDslException.class, () -> dao.save(new TestEntity(3L, "nonUniqueValue")));
     }
 
+    @Test
+    public void testSaveAll_reportsOutcomePerEntity() {
+        fakedDatastore.getCollection(TestEntity.class)
+                .createIndex(new Document("value", 1), new IndexOptions().unique(true));
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class);
+        dao.setBulkWriteBatchSize(2);
+        dao.save(new TestEntity(1L, "existing"));
+
+        BulkWriteResult<Long> result = dao.saveAll(List.of(
+                new TestEntity(1L, "replaced"),
+                new TestEntity(2L, "new"),
+                new TestEntity(3L, "new"),
+                new TestEntity(4L, "other")));
+
+        assertEquals(List.of(BulkItemResult.Status.UPDATED, BulkItemResult.Status.CREATED,
+                        BulkItemResult.Status.FAILED, BulkItemResult.Status.CREATED),
+                result.getItems().stream().map(BulkItemResult::getStatus).collect(Collectors.toList()));
+        assertEquals(List.of(0, 1, 2, 3), result.getItems().stream().map(BulkItemResult::getIndex).collect(Collectors.toList()));
+        assertEquals(RestDslException.Type.DUPLICATE_KEY, result.getItems().get(2).getErrorType());
+        assertEquals(Long.valueOf(3L), result.getItems().get(2).getId());
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getFailed());
+        assertEquals("replaced", dao.getOne(ServiceQuery.byId(1L)).getValue());
+        assertNull(dao.getOne(ServiceQuery.byId(3L)));
+    }
+
     @Test
     public void testMultiSortOrder() {
         final TestWithDateDao dao = new TestWithDateDao(fakedDatastore);
@@ -249,6 +315,471 @@ public class ServiceDaoTest {
         assertEquals(utcDate(2025, 1, 1), items.get(5).getDate());
     }
 
+    @Test
+    public void testTotalItemsStrategies_sameResult() {
+        final ServiceQuery<Long> fullPage = ServiceQuery.<Long>builder()
+                .order("group,-date")
+                .offset(5)
+                .limit(6)
+                .build();
+        final ServiceQuery<Long> lastPage = ServiceQuery.<Long>builder()
+                .withCriteria("group", List.of("test04"))
+                .order("-date")
+                .offset(2)
+                .limit(6)
+                .build();
+
+        final TestWithDateDao sequentialDao = new TestWithDateDao(fakedDatastore);
+        for (TotalItemsStrategy strategy : TotalItemsStrategy.values()) {
+            final TestWithDateDao dao = new TestWithDateDao(fakedDatastore);
+            dao.setTotalItemsStrategy(strategy);
+            for (ServiceQuery<Long> q : List.of(fullPage, lastPage)) {
+                EntityResult<GroupByEntity> expected = sequentialDao.get(q);
+                EntityResult<GroupByEntity> actual = dao.get(q);
+                assertEquals(strategy.name(), expected.getTotalItems(), actual.getTotalItems());
+                assertEquals(strategy.name(), getDates(expected.getList()), getDates(actual.getList()));
+            }
+        }
+        assertEquals(Long.valueOf(190L), sequentialDao.get(fullPage).getTotalItems());
+        assertEquals(Long.valueOf(4L), sequentialDao.get(lastPage).getTotalItems());
+    }
+
+    @Test
+    public void testKeysetPagination_sameResultAsOffset() {
+        final TestWithDateDao dao = new TestWithDateDao(fakedDatastore);
+        final List<GroupByEntity> expected = dao.get(ServiceQuery.<Long>builder()
+                .order("group,-date")
+                .limit(190)
+                .build()).asList();
+
+        final List<GroupByEntity> actual = new ArrayList<>();
+        String after = "";
+        int pages = 0;
+        while (after != null) {
+            EntityList<GroupByEntity> page = dao.get(ServiceQuery.<Long>builder()
+                    .order("group,-date")
+                    .after(after)
+                    .limit(25)
+                    .build()).getList();
+            actual.addAll(page.getItems());
+            assertEquals(Long.valueOf(expected.size()), page.getTotalItems());
+            after = page.getNext();
+            pages++;
+        }
+
+        assertEquals(8, pages);
+        assertEquals(expected.stream().map(GroupByEntity::getId).collect(Collectors.toList()),
+                actual.stream().map(GroupByEntity::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testKeysetPagination_invalidQueries() {
+        final TestWithDateDao dao = new TestWithDateDao(fakedDatastore);
+        final String next = dao.get(ServiceQuery.<Long>builder().order("group").after("").limit(5).build()).getList().getNext();
+        assertNotNull(next);
+
+        RestDslException withOffset = assertThrows(RestDslException.class, () -> dao.get(ServiceQuery.<Long>builder()
+                .after(next).offset(5).limit(5).build()));
+        assertEquals(QUERY_ERROR, withOffset.getType());
+
+        RestDslException otherOrder = assertThrows(RestDslException.class, () -> dao.get(ServiceQuery.<Long>builder()
+                .order("-date").after(next).limit(5).build()));
+        assertEquals(PARAMS_ERROR, otherOrder.getType());
+    }
+
+    @Test
+    public void testCountModes() {
+        final TestWithDateDao dao = new TestWithDateDao(fakedDatastore);
+        for (TotalItemsStrategy strategy : TotalItemsStrategy.values()) {
+            dao.setTotalItemsStrategy(strategy);
+
+            EntityList<GroupByEntity> exact = dao.get(ServiceQuery.<Long>builder().limit(10).build()).getList();
+            assertEquals(Long.valueOf(190L), exact.getTotalItems());
+            assertNull(exact.getTotalItemsCapped());
+
+            EntityList<GroupByEntity> estimated = dao.get(ServiceQuery.<Long>builder()
+                    .countMode(CountMode.ESTIMATED).limit(10).build()).getList();
+            assertEquals(Long.valueOf(190L), estimated.getTotalItems());
+
+            EntityList<GroupByEntity> capped = dao.get(ServiceQuery.<Long>builder()
+                    .countMode(CountMode.capped(50)).limit(10).build()).getList();
+            assertEquals(strategy.name(), Long.valueOf(50L), capped.getTotalItems());
+            assertEquals(strategy.name(), Boolean.TRUE, capped.getTotalItemsCapped());
+
+            EntityList<GroupByEntity> belowCap = dao.get(ServiceQuery.<Long>builder()
+                    .withCriteria("group", List.of("test04"))
+                    .countMode(CountMode.capped(50)).limit(2).build()).getList();
+            assertEquals(strategy.name(), Long.valueOf(4L), belowCap.getTotalItems());
+            assertNull(strategy.name(), belowCap.getTotalItemsCapped());
+        }
+    }
+
+    @Test
+    public void testCountCache_invalidatedByWrites() {
+        final Map<String, Long> cacheAccesses = new ConcurrentHashMap<>();
+        final MetricSink metricSink = new MetricSink() {
+            @Override
+            public void timing(MetricName name, long durationMs) {
+            }
+
+            @Override
+            public void increment(MetricName name, long delta) {
+                if (MongoBaseServiceDao.MONGO_SERVICE_COUNT_CACHE_METRIC.equals(name.getName())) {
+                    cacheAccesses.merge(name.getLabels().get("result"), delta, Long::sum);
+                }
+            }
+        };
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class, metricSink, false);
+        dao.enableCountCache(Duration.ofMinutes(1), 100);
+        dao.save(new TestEntity(1L, "a"));
+        dao.save(new TestEntity(2L, "b"));
+
+        final ServiceQuery<Long> q = ServiceQuery.<Long>builder().limit(1).build();
+        assertEquals(Long.valueOf(2L), dao.get(q).getTotalItems());
+        assertEquals(Long.valueOf(2L), dao.get(ServiceQuery.<Long>builder().limit(1).offset(1).build()).getTotalItems());
+        assertEquals(Long.valueOf(1L), cacheAccesses.get("miss"));
+        assertEquals(Long.valueOf(1L), cacheAccesses.get("hit"));
+
+        dao.save(new TestEntity(3L, "c"));
+        assertEquals(Long.valueOf(3L), dao.get(q).getTotalItems());
+        dao.delete(3L);
+        assertEquals(Long.valueOf(2L), dao.get(q).getTotalItems());
+        assertEquals(Long.valueOf(3L), cacheAccesses.get("miss"));
+    }
+
+    @Test
+    public void testConsistencyTokens_readOfTokenSeesWriteInCausalSession() {
+        final Map<String, Long> cacheAccesses = new ConcurrentHashMap<>();
+        final MetricSink metricSink = new MetricSink() {
+            @Override
+            public void timing(MetricName name, long durationMs) {
+            }
+
+            @Override
+            public void increment(MetricName name, long delta) {
+                if (MongoBaseServiceDao.MONGO_SERVICE_COUNT_CACHE_METRIC.equals(name.getName())) {
+                    cacheAccesses.merge(name.getLabels().get("result"), delta, Long::sum);
+                }
+            }
+        };
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class, metricSink, false);
+        dao.enableConsistencyTokens();
+        dao.enableCountCache(Duration.ofMinutes(1), 100);
+        ConsistencyToken.takeLastWrite();
+
+        dao.save(new TestEntity(1L, "a"));
+        final ConsistencyToken first = ConsistencyToken.takeLastWrite();
+        dao.save(new TestEntity(2L, "b"));
+        final ConsistencyToken token = ConsistencyToken.takeLastWrite();
+        assertNotNull(first);
+        assertNotNull(token);
+        assertEquals(token, ConsistencyToken.latest(first, token));
+        assertNull(ConsistencyToken.takeLastWrite());
+
+        final EntityList<TestEntity> read = dao.get(ServiceQuery.<Long>builder().consistencyToken(token).limit(1).build()).getList();
+        assertEquals(Long.valueOf(2L), read.getTotalItems());
+        assertEquals("b", dao.getOne(ServiceQuery.<Long>builder().ids(List.of(2L)).consistencyToken(token).build()).getValue());
+        // counts of reads in a causal session bypass the count cache, which reports every other access
+        assertNull(cacheAccesses.get("miss"));
+        assertNull(cacheAccesses.get("hit"));
+
+        dao.get(ServiceQuery.<Long>builder().limit(1).build());
+        assertEquals(Long.valueOf(1L), cacheAccesses.get("miss"));
+    }
+
+    @Test
+    public void testConsistencyTokens_disabledWritesLeaveNoToken() {
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class);
+        ConsistencyToken.takeLastWrite();
+
+        dao.save(new TestEntity(1L, "a"));
+
+        assertNull(ConsistencyToken.takeLastWrite());
+    }
+
+    @Test
+    public void testTimeout_reportedByQueryShape() {
+        final Map<String, Long> timeouts = new ConcurrentHashMap<>();
+        final MetricSink metricSink = new MetricSink() {
+            @Override
+            public void timing(MetricName name, long durationMs) {
+            }
+
+            @Override
+            public void increment(MetricName name, long delta) {
+                if (MongoBaseServiceDao.MONGO_SERVICE_TIMEOUT_METRIC.equals(name.getName())) {
+                    timeouts.merge(name.getLabels().get("queryShape"), delta, Long::sum);
+                }
+            }
+        };
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class, metricSink, false);
+        dao.save(new TestEntity(1L, "a"));
+        final ServiceQuery<Long> q = ServiceQuery.<Long>builder()
+                .ids(List.of(1L))
+                .maxTime(Duration.ofSeconds(10))
+                .build();
+
+        // every operation with a time limit exceeds it, independent of the server load
+        setMaxTimeAlwaysTimeOut("alwaysOn");
+        try {
+            RestDslException e = assertThrows(RestDslException.class, () -> dao.get(q));
+            assertEquals(TIMEOUT, e.getType());
+            e = assertThrows(RestDslException.class, () -> dao.patch(q, Map.of("value", "b")));
+            assertEquals(TIMEOUT, e.getType());
+        } finally {
+            setMaxTimeAlwaysTimeOut("off");
+        }
+
+        assertEquals(Map.of(q.getQueryShape(), 2L), timeouts);
+        assertEquals("a", dao.getOne(q).getValue());
+    }
+
+    private static void setMaxTimeAlwaysTimeOut(String mode) {
+        client.getDatabase("admin").runCommand(new Document("configureFailPoint", "maxTimeAlwaysTimeOut").append("mode", mode));
+    }
+
+    @Test
+    public void testQueryPlanCache_bindsValuesOfSameShape() {
+        final Map<String, Long> planCacheAccesses = new ConcurrentHashMap<>();
+        final TestWithDateDao dao = new TestWithDateDao(fakedDatastore, new MetricSink() {
+            @Override
+            public void timing(MetricName name, long durationMs) {
+            }
+
+            @Override
+            public void increment(MetricName name, long delta) {
+                if (MongoBaseServiceDao.MONGO_SERVICE_QUERY_PLAN_CACHE_METRIC.equals(name.getName())) {
+                    planCacheAccesses.merge(name.getLabels().get("lookup"), delta, Long::sum);
+                }
+            }
+        });
+
+        for (int group = 3; group < 6; group++) {
+            final ServiceQuery<Long> q = ServiceQuery.<Long>builder()
+                    .withCriteria("group", List.of(format("test%02d", group)))
+                    .order("-date")
+                    .build();
+            assertEquals(Long.valueOf(group), dao.get(q).getTotalItems());
+        }
+        assertEquals(Long.valueOf(1L), planCacheAccesses.get("miss"));
+
+        // several values compile to a different filter
+        final ServiceQuery<Long> q = ServiceQuery.<Long>builder()
+                .withCriteria("group", List.of("test03", "test04"))
+                .order("-date")
+                .build();
+        assertEquals(Long.valueOf(7L), dao.get(q).getTotalItems());
+        assertEquals(Long.valueOf(2L), planCacheAccesses.get("miss"));
+    }
+
+    @Test
+    public void testAsyncDao_sameResultAsBlockingDao() {
+        final TestWithDateDao dao = new TestWithDateDao(fakedDatastore);
+        final MongoAsyncServiceDao<GroupByEntity, Long> asyncDao = new MongoAsyncServiceDao<>(dao, asyncClient);
+        final ServiceQuery<Long> q = ServiceQuery.<Long>builder()
+                .withCriteria("group", List.of("test03", "test04"))
+                .order("-date")
+                .offset(2)
+                .limit(3)
+                .build();
+
+        EntityResult<GroupByEntity> expected = dao.get(q);
+        EntityResult<GroupByEntity> actual = asyncDao.get(q).toCompletableFuture().join();
+        assertEquals(Long.valueOf(7L), actual.getTotalItems());
+        assertEquals(expected.getTotalItems(), actual.getTotalItems());
+        assertEquals(getDates(expected.getList()), getDates(actual.getList()));
+        assertEquals(Long.valueOf(7L), asyncDao.count(q).toCompletableFuture().join());
+    }
+
+    @Test
+    public void testAsyncDao_writes() {
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class);
+        final MongoAsyncServiceDao<TestEntity, Long> asyncDao = new MongoAsyncServiceDao<>(dao, asyncClient);
+
+        asyncDao.save(new TestEntity(5L, "saved")).toCompletableFuture().join();
+        assertEquals("saved", dao.getOne(ServiceQuery.byId(5L)).getValue());
+
+        TestEntity patched = asyncDao.patch(ServiceQuery.byId(5L), Map.of("value", "patched")).toCompletableFuture().join();
+        assertEquals("patched", patched.getValue());
+        assertEquals("patched", asyncDao.getOne(ServiceQuery.byId(5L)).toCompletableFuture().join().getValue());
+
+        assertEquals(Integer.valueOf(1), asyncDao.delete(ServiceQuery.byId(5L)).toCompletableFuture().join());
+        assertNull(dao.getOne(ServiceQuery.byId(5L)));
+    }
+
+    @Test
+    public void testAsyncDao_rejectsConsistencyTokens() {
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class);
+        final MongoAsyncServiceDao<TestEntity, Long> asyncDao = new MongoAsyncServiceDao<>(dao, asyncClient);
+        dao.enableConsistencyTokens();
+        dao.save(new TestEntity(1L, "a"));
+        final ServiceQuery<Long> q = ServiceQuery.<Long>builder()
+                .ids(List.of(1L))
+                .consistencyToken(ConsistencyToken.takeLastWrite())
+                .build();
+
+        CompletionException e = assertThrows(CompletionException.class, () -> asyncDao.get(q).toCompletableFuture().join());
+        assertEquals(PARAMS_ERROR, ((RestDslException) e.getCause()).getType());
+        e = assertThrows(CompletionException.class, () -> asyncDao.getOne(q).toCompletableFuture().join());
+        assertEquals(PARAMS_ERROR, ((RestDslException) e.getCause()).getType());
+        e = assertThrows(CompletionException.class, () -> asyncDao.count(q).toCompletableFuture().join());
+        assertEquals(PARAMS_ERROR, ((RestDslException) e.getCause()).getType());
+    }
+
+    @Test
+    public void testVersionedEntity_writesCheckTheVersion() {
+        fakedDatastore.getCollection(VersionedEntity.class).deleteMany(new Document());
+        final VersionedDao dao = new VersionedDao(fakedDatastore);
+        final ServiceModel<VersionedEntity, Long> model = new ServiceModel<>(dao);
+
+        assertEquals(1L, dao.save(new VersionedEntity(1L, "a")).getVersion());
+
+        // matched by id and version in the update
+        VersionedEntity patched = dao.patch(byIdAndVersion(1L, 1L), Map.of("value", "b"));
+        assertEquals("b", patched.getValue());
+        assertEquals(2L, patched.getVersion());
+
+        // a stale version conflicts, a missing entity does not
+        RestDslException e = assertThrows(RestDslException.class, () -> dao.patch(byIdAndVersion(1L, 1L), Map.of("value", "c")));
+        assertEquals(CONFLICT, e.getType());
+        assertEquals("b", dao.getOne(ServiceQuery.byId(1L)).getValue());
+        assertNull(dao.patch(byIdAndVersion(2L, 1L), Map.of("value", "c")));
+
+        // a primitive version missing from the entity is 0 and expects no version
+        patched = model.patch(new VersionedEntity(1L, "d"), PatchContext.DEFAULT_CONTEXT);
+        assertEquals("d", patched.getValue());
+        assertEquals(3L, patched.getVersion());
+
+        VersionedEntity stale = new VersionedEntity(1L, "e");
+        stale.setVersion(2L);
+        assertEquals(CONFLICT, assertThrows(RestDslException.class, () -> dao.save(stale)).getType());
+    }
+
+    @Test
+    public void testVersionedEntity_asyncWritesCheckTheVersion() {
+        fakedDatastore.getCollection(VersionedEntity.class).deleteMany(new Document());
+        final VersionedDao dao = new VersionedDao(fakedDatastore);
+        final MongoAsyncServiceDao<VersionedEntity, Long> asyncDao = new MongoAsyncServiceDao<>(dao, asyncClient);
+
+        VersionedEntity saved = asyncDao.save(new VersionedEntity(1L, "a")).toCompletableFuture().join();
+        assertEquals(1L, saved.getVersion());
+        assertEquals(1L, dao.getOne(ServiceQuery.byId(1L)).getVersion());
+
+        VersionedEntity patched = asyncDao.patch(byIdAndVersion(1L, 1L), Map.of("value", "b")).toCompletableFuture().join();
+        assertEquals(2L, patched.getVersion());
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> asyncDao.patch(byIdAndVersion(1L, 1L), Map.of("value", "c")).toCompletableFuture().join());
+        assertEquals(CONFLICT, ((RestDslException) e.getCause()).getType());
+        assertNull(asyncDao.patch(byIdAndVersion(2L, 1L), Map.of("value", "c")).toCompletableFuture().join());
+
+        assertEquals(3L, asyncDao.save(patched).toCompletableFuture().join().getVersion());
+        VersionedEntity stale = new VersionedEntity(1L, "d");
+        stale.setVersion(2L);
+        e = assertThrows(CompletionException.class, () -> asyncDao.save(stale).toCompletableFuture().join());
+        assertEquals(CONFLICT, ((RestDslException) e.getCause()).getType());
+        assertEquals(3L, dao.getOne(ServiceQuery.byId(1L)).getVersion());
+    }
+
+    private static ServiceQuery<Long> byIdAndVersion(long id, long version) {
+        return ServiceQuery.<Long>builder().ids(List.of(id)).expectedVersion(version).build();
+    }
+
+    @Test
+    public void testIndexSelectionAndHints() {
+        fakedDatastore.getCollection(TestEntity.class).createIndex(Document.parse("{ value: 1 }"));
+        fakedDatastore.getCollection(TestEntity.class).createIndex(Document.parse("{ value: 1, _id: -1 }"));
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class);
+        for (long i = 1; i <= 3; i++) {
+            dao.save(new TestEntity(i, "hinted"));
+        }
+
+        final ServiceQuery<Long> q = ServiceQuery.<Long>builder().withCriteria("value", List.of("hinted")).order("-id").build();
+        ServiceQueryInfo<Long> info = dao.getServiceQueryInfo(q);
+        assertEquals("value,-id", info.getIndex());
+        Assert.assertFalse(info.isIndexHinted());
+
+        final ServiceQuery<Long> hinted = ServiceQuery.<Long>builder().withCriteria("value", List.of("hinted")).order("-id").hint("value").build();
+        info = dao.getServiceQueryInfo(hinted);
+        assertEquals("value", info.getIndex());
+        Assert.assertTrue(info.isIndexHinted());
+        assertEquals(List.of(3L, 2L, 1L), dao.get(hinted).getList().getItems().stream().map(TestEntity::getId).collect(Collectors.toList()));
+
+        dao.pinIndex(q.getQueryShape(), "value");
+        assertEquals("value", dao.getServiceQueryInfo(q).getIndex());
+        Assert.assertTrue(dao.getServiceQueryInfo(q).isIndexHinted());
+        assertEquals(Long.valueOf(3L), dao.get(q).getTotalItems());
+
+        assertThrows(IllegalArgumentException.class, () -> dao.pinIndex(q.getQueryShape(), "missing"));
+        RestDslException unknownHint = assertThrows(RestDslException.class, () -> dao.get(ServiceQuery.<Long>builder()
+                .withCriteria("value", List.of("hinted")).hint("missing").build()));
+        assertEquals(QUERY_ERROR, unknownHint.getType());
+    }
+
+    @Test
+    public void testExplain() {
+        fakedDatastore.getCollection(TestEntity.class).createIndex(Document.parse("{ value: 1 }"));
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class);
+        for (long i = 1; i <= 5; i++) {
+            dao.save(new TestEntity(i, i % 2 == 0 ? "even" : "odd"));
+        }
+
+        QueryExplanation indexed = dao.explain(ServiceQuery.<Long>builder().withCriteria("value", List.of("odd")).build()).getExplanation();
+        Assert.assertFalse(indexed.isCollectionScan());
+        Assert.assertTrue(indexed.getWinningPlan().contains("IXSCAN"));
+        assertEquals(List.of("value_1"), indexed.getIndexNames());
+        assertEquals(3, indexed.getReturned());
+        assertEquals(3, indexed.getDocsExamined());
+
+        QueryExplanation sorted = dao.explain(ServiceQuery.<Long>builder()
+                .withCriteria("value", List.of("odd")).order("-id").hint("value").build()).getExplanation();
+        Assert.assertTrue(sorted.isBlockingSort());
+
+        Assert.assertNull(dao.getServiceQueryInfo(ServiceQuery.byId(1L)).getExplanation());
+    }
+
+    @Test
+    public void testRawReads_sameJsonAsEntities() throws Exception {
+        final TestServiceDao dao = new TestServiceDao(fakedDatastore, TestEntity.class);
+        for (long i = 1; i <= 5; i++) {
+            dao.save(new TestEntity(i, "raw" + i));
+        }
+        final ObjectMapper mapper = new ObjectMapper();
+        final ServiceQuery<Long> q = ServiceQuery.<Long>builder().order("-id").limit(3).build();
+        final ServiceQuery<Long> projected = ServiceQuery.<Long>builder().fields(List.of("value")).offset(1).build();
+
+        Assert.assertFalse(dao.getRaw(q).getList().getItems().get(0) instanceof RawEntity);
+
+        dao.enableRawReads(BsonJsonTranscoder.builder(fakedDatastore.getMapper(), TestEntity.class).build());
+        assertEquals(mapper.writeValueAsString(dao.get(q)), mapper.writeValueAsString(dao.getRaw(q)));
+        assertEquals(mapper.writeValueAsString(dao.get(projected)), mapper.writeValueAsString(dao.getRaw(projected)));
+
+        dao.enableRawReads(BsonJsonTranscoder.builder(fakedDatastore.getMapper(), TestEntity.class)
+                .fieldWriter("value", (reader, gen) -> gen.writeString(reader.readString().toUpperCase()))
+                .build());
+        assertEquals("{\"list\":{\"items\":[{\"id\":5,\"value\":\"RAW5\"}],\"totalItems\":5}}",
+                mapper.writeValueAsString(dao.getRaw(ServiceQuery.<Long>builder().order("-id").limit(1).build())));
+    }
+
+    @Test
+    public void testRawReads_formattedDate() throws Exception {
+        final TestWithDateDao dao = new TestWithDateDao(fakedDatastore);
+        final ObjectMapper mapper = new ObjectMapper();
+        final ServiceQuery<Long> q = ServiceQuery.<Long>builder()
+                .withCriteria("group", List.of("test01"))
+                .fields(List.of("date"))
+                .build();
+
+        dao.enableRawReads(BsonJsonTranscoder.builder(fakedDatastore.getMapper(), GroupByEntity.class)
+                .fieldWriter("date", BsonValueWriter.formattedDate("yyyy-MM-dd'T'HH:mm:ss.SSSXXX"))
+                .build());
+        Assert.assertTrue(mapper.writeValueAsString(dao.getRaw(q)).contains("\"date\":\"2025-01-01T00:00:00.000Z\""));
+
+        dao.enableRawReads(BsonJsonTranscoder.builder(fakedDatastore.getMapper(), GroupByEntity.class)
+                .fieldWriter("date", BsonValueWriter.formattedDate("yyyy-MM-dd'T'HH:mm:ss.SSSXXX", ZoneId.of("Europe/Berlin")))
+                .build());
+        Assert.assertTrue(mapper.writeValueAsString(dao.getRaw(q)).contains("\"date\":\"2025-01-01T01:00:00.000+01:00\""));
+    }
+
     static class TestServiceDao extends MongoServiceDao<TestEntity, Long> {
         public TestServiceDao(Datastore datastore, Class<TestEntity> entityClazz) {
             super(datastore, entityClazz);
@@ -259,9 +790,19 @@ public class ServiceDaoTest {
         }
     }
 
+    static class VersionedDao extends MongoServiceDao<VersionedEntity, Long> {
+        public VersionedDao(Datastore datastore) {
+            super(datastore, VersionedEntity.class);
+        }
+    }
+
     static class TestWithDateDao extends MongoServiceDao<GroupByEntity, Long> {
         public TestWithDateDao(Datastore datastore) {
             super(datastore, GroupByEntity.class);
         }
+
+        public TestWithDateDao(Datastore datastore, MetricSink metricSink) {
+            super(datastore, GroupByEntity.class, metricSink);
+        }
     }
 }
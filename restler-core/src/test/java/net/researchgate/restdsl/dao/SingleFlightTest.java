@@ -0,0 +1,63 @@
+package net.researchgate.restdsl.dao;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testExecute_concurrentCallersShareResult() throws Exception {
+        AtomicInteger collapsed = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>(collapsed::incrementAndGet);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> singleFlight.execute("q", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return new Object();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> singleFlight.execute("q", () -> {
+            calls.incrementAndGet();
+            return new Object();
+        }));
+        while (collapsed.get() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    public void testExecute_failureIsNotKept() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(() -> {
+        });
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("q", () -> {
+            throw new IllegalStateException("unavailable");
+        }));
+        assertEquals("ok", singleFlight.execute("q", () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,6 +3,8 @@ package net.researchgate.restdsl.model;
 import net.researchgate.restdsl.TestEntity;
 import net.researchgate.restdsl.dao.PersistentServiceDao;
 import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.queries.PatchContext;
+import net.researchgate.restdsl.queries.ServiceQuery;
 import net.researchgate.restdsl.results.EntityResult;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -10,6 +12,10 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static net.researchgate.restdsl.validation.RestlerPreconditions.ensureNotModified;
 import static net.researchgate.restdsl.validation.RestlerPreconditions.ensureNotNull;
@@ -84,6 +90,43 @@ public class ServiceModelTest {
         }
     }
 
+    @Test
+    public void testPatchById_singleUpdateWithoutRead() {
+        TestEntity patched = new TestEntity(5L, "new");
+        Mockito.when(mockedDao.patch(Mockito.any(), Mockito.any())).thenReturn(patched);
+
+        TestEntity result = model.patch(5L, Map.of("value", "new"),
+                PatchContext.builder().unsetFields(Set.of("other")).build());
+
+        assertEquals(patched, result);
+        Map<String, Object> expectedChanges = new HashMap<>();
+        expectedChanges.put("value", "new");
+        expectedChanges.put("other", null);
+        Mockito.verify(mockedDao).patch(Mockito.argThat((ServiceQuery<Long> q) -> List.copyOf(q.getIdList()).equals(List.of(5L))), Mockito.eq(expectedChanges));
+        Mockito.verify(mockedDao, Mockito.never()).getOne(Mockito.any());
+    }
+
+    @Test
+    public void testPatchById_patchedFieldAlsoUnset_throws() {
+        try {
+            model.patch(5L, Map.of("value", "new"), PatchContext.builder().unsetFields(Set.of("value")).build());
+            fail();
+        } catch (RestDslException e) {
+            assertEquals(RestDslException.Type.PARAMS_ERROR, e.getType());
+        }
+        Mockito.verify(mockedDao, Mockito.never()).patch(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testPatchById_expectedVersionInQuery() {
+        Mockito.when(mockedDao.patch(Mockito.any(), Mockito.any())).thenReturn(new TestEntity(5L, "new"));
+
+        model.patch(5L, Map.of("value", "new"), PatchContext.builder().expectedVersion(3L).build());
+
+        Mockito.verify(mockedDao).patch(Mockito.argThat((ServiceQuery<Long> q) ->
+                List.copyOf(q.getIdList()).equals(List.of(5L)) && Long.valueOf(3).equals(q.getExpectedVersion())), Mockito.any());
+    }
+
     @Test
     @Ignore // to catch null id arguments instead of
     public void testGet() throws Exception {
@@ -11,7 +11,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static org.junit.Assert.assertEquals;
@@ -197,6 +199,26 @@ public class EntityResultSerializationTest {
         itemValueVerifier.accept(deserialized.getItems().get(0));
     }
 
+    // ---- StreamingEntityList: same json as EntityList ----
+
+    @Test
+    public void streamingEntityList_sameJsonAsEntityList() throws Exception {
+        List<Object> items = Arrays.asList(singleItem, singleItem);
+        AtomicBoolean completed = new AtomicBoolean();
+        StreamingEntityList<Object> streaming = new StreamingEntityList<>(items::iterator,
+                (itemCount, last) -> new StreamingEntityList.Trailer((long) itemCount, "token"),
+                () -> completed.set(true));
+
+        String json = mapper.writeValueAsString(new EntityResult<>(streaming));
+        String expected = mapper.writeValueAsString(new EntityResult<>(new EntityList<>(items, 2L, "token")));
+        assertEquals(expected, json);
+        assertTrue("completion must be signalled", completed.get());
+
+        EntityResult<Object> deserialized = mapper.readValue(json, new TypeReference<>(){});
+        assertEquals(2L, (long) deserialized.getTotalItems());
+        deserialized.getList().getItems().forEach(itemValueVerifier);
+    }
+
     // ---- EntityMap: round-trip ----
 
     @Test
@@ -0,0 +1,75 @@
+package net.researchgate.restdsl.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.Map;
+
+public class BeanAccessorsTest {
+
+    @Test
+    public void testAccessors_readAndWritePrimitivesOfNonPublicBean() throws Exception {
+        BeanAccessors accessors = BeanAccessors.of(Counter.class);
+        Counter counter = new Counter();
+
+        accessors.getProperty("count").set(counter, 5);
+        accessors.getProperty("active").set(counter, true);
+
+        Assert.assertEquals(5, accessors.getProperty("count").get(counter));
+        Assert.assertEquals(true, accessors.getProperty("active").get(counter));
+        Assert.assertSame(accessors, BeanAccessors.of(Counter.class));
+        Assert.assertFalse(accessors.getProperty("class").isWritable());
+        Assert.assertNull(accessors.getProperty("missing"));
+    }
+
+    @Test(expected = InvocationTargetException.class)
+    public void testAccessors_exceptionOfGetterWrapped() throws Exception {
+        Counter counter = new Counter();
+        counter.setCount(-1);
+
+        BeanAccessors.of(Counter.class).getProperty("label").get(counter);
+    }
+
+    @Test
+    public void testBeanUtils_patchAndDiffThroughAccessors() throws Exception {
+        Counter bean = new Counter();
+        Counter patches = new Counter();
+        patches.setCount(3);
+        patches.setActive(true);
+
+        BeanUtils.patch(bean, patches, Collections.emptySet());
+
+        Assert.assertEquals(Map.of(), BeanUtils.shallowDifferences(bean, patches));
+        Assert.assertEquals(3, BeanUtils.retrieveObjectValue(bean, "count"));
+    }
+
+    static class Counter {
+        private int count;
+        private boolean active;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public String getLabel() {
+            if (count < 0) {
+                throw new IllegalStateException("Negative count " + count);
+            }
+            return "count " + count;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package net.researchgate.restdsl.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class BeanUtilsTest {
+
+    @Test
+    public void testDeepDifferences_changedLeavesByDottedPath() throws Exception {
+        Profile oldBean = new Profile("name", new Stats(1, 2), List.of(new Stats(3, 4), new Stats(5, 6)), List.of("a"));
+        Profile newBean = new Profile("name", new Stats(1, 7), List.of(new Stats(3, 4), new Stats(8, 6)), List.of("a", "b"));
+
+        Map<String, Object> changes = BeanUtils.deepDifferences(oldBean, newBean, Collections.emptySet(), true, false, true);
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("additionalStats.1.followerCnt", 8);
+        expected.put("stats.viewCnt", 7);
+        expected.put("tags", List.of("a", "b"));
+        Assert.assertEquals(expected, changes);
+    }
+
+    @Test
+    public void testDeepDifferences_listsWholeWithoutIndexing() throws Exception {
+        Profile oldBean = new Profile("name", new Stats(1, 2), List.of(new Stats(3, 4), new Stats(5, 6)), List.of("a"));
+        Profile newBean = new Profile("name", new Stats(1, 2), List.of(new Stats(3, 4), new Stats(8, 6)), List.of("a"));
+
+        Assert.assertEquals(Map.of("additionalStats", newBean.getAdditionalStats()),
+                BeanUtils.deepDifferences(oldBean, newBean, Collections.emptySet(), true, false));
+    }
+
+    @Test
+    public void testDeepDifferences_newNullsOfEmbeddedBeansIgnored() throws Exception {
+        Profile oldBean = new Profile("name", new Stats(1, 2), new ArrayList<>(), null);
+        Profile newBean = new Profile(null, new Stats(5, null), new ArrayList<>(), null);
+
+        Assert.assertEquals(Map.of("stats.followerCnt", 5),
+                BeanUtils.deepDifferences(oldBean, newBean, Collections.emptySet(), true, false));
+    }
+
+    @Test
+    public void testDeepDifferences_embeddedBeanSetWhole() throws Exception {
+        Profile oldBean = new Profile("name", null, null, null);
+        Profile newBean = new Profile("name", new Stats(1, 2), null, null);
+
+        Map<String, Object> changes = BeanUtils.deepDifferences(oldBean, newBean, Collections.emptySet(), true, false);
+
+        Assert.assertEquals(Collections.singleton("stats"), changes.keySet());
+    }
+
+    public static class Profile {
+        private String name;
+        private Stats stats;
+        private List<Stats> additionalStats;
+        private List<String> tags;
+
+        public Profile() {
+        }
+
+        Profile(String name, Stats stats, List<Stats> additionalStats, List<String> tags) {
+            this.name = name;
+            this.stats = stats;
+            this.additionalStats = additionalStats;
+            this.tags = tags;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Stats getStats() {
+            return stats;
+        }
+
+        public void setStats(Stats stats) {
+            this.stats = stats;
+        }
+
+        public List<Stats> getAdditionalStats() {
+            return additionalStats;
+        }
+
+        public void setAdditionalStats(List<Stats> additionalStats) {
+            this.additionalStats = additionalStats;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+
+    public static class Stats {
+        private Integer followerCnt;
+        private Integer viewCnt;
+
+        public Stats() {
+        }
+
+        Stats(Integer followerCnt, Integer viewCnt) {
+            this.followerCnt = followerCnt;
+            this.viewCnt = viewCnt;
+        }
+
+        public Integer getFollowerCnt() {
+            return followerCnt;
+        }
+
+        public void setFollowerCnt(Integer followerCnt) {
+            this.followerCnt = followerCnt;
+        }
+
+        public Integer getViewCnt() {
+            return viewCnt;
+        }
+
+        public void setViewCnt(Integer viewCnt) {
+            this.viewCnt = viewCnt;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stats)) {
+                return false;
+            }
+            Stats that = (Stats) o;
+            return Objects.equals(followerCnt, that.followerCnt) && Objects.equals(viewCnt, that.viewCnt);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(followerCnt, viewCnt);
+        }
+    }
+}
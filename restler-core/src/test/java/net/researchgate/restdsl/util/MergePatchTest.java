@@ -0,0 +1,121 @@
+package net.researchgate.restdsl.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.researchgate.restdsl.exceptions.RestDslException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MergePatchTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void testToChanges_typedValuesByDottedPath() throws Exception {
+        Map<String, Object> patch = MAPPER.readValue(
+                "{\"name\": \"n\", \"tags\": [\"a\", \"b\"], \"address\": {\"since\": 1700000000000, \"city\": null}," +
+                        " \"attributes\": {\"k\": {\"x\": 1}}, \"empty\": {}}", Map.class);
+
+        Map<String, Object> changes = MergePatch.toChanges(patch, Person.class, MAPPER);
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("name", "n");
+        expected.put("tags", List.of("a", "b"));
+        expected.put("address.since", new Date(1700000000000L));
+        expected.put("address.city", null);
+        expected.put("attributes.k.x", 1);
+        Assert.assertEquals(expected, changes);
+    }
+
+    @Test
+    public void testToChanges_nullUnsetsField() {
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("address", null);
+
+        Assert.assertEquals(Collections.singletonMap("address", null), MergePatch.toChanges(patch, Person.class, MAPPER));
+    }
+
+    @Test
+    public void testToChanges_unknownField_throws() {
+        try {
+            MergePatch.toChanges(Map.of("unknown", 1), Person.class, MAPPER);
+            Assert.fail();
+        } catch (RestDslException e) {
+            Assert.assertEquals(RestDslException.Type.ENTITY_ERROR, e.getType());
+        }
+    }
+
+    public static class Person {
+        private String name;
+        private List<String> tags;
+        private Address address;
+        private Map<String, Object> attributes;
+        private Address empty;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Map<String, Object> attributes) {
+            this.attributes = attributes;
+        }
+
+        public Address getEmpty() {
+            return empty;
+        }
+
+        public void setEmpty(Address empty) {
+            this.empty = empty;
+        }
+    }
+
+    public static class Address {
+        private Date since;
+        private String city;
+
+        public Date getSince() {
+            return since;
+        }
+
+        public void setSince(Date since) {
+            this.since = since;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+    }
+}
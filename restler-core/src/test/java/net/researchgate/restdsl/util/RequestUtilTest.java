@@ -5,16 +5,24 @@ import com.google.common.collect.Sets;
 import net.researchgate.restdsl.dao.GenericFieldMapper;
 import net.researchgate.restdsl.entities.TestEntity;
 import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.queries.ConsistencyToken;
 import net.researchgate.restdsl.queries.ServiceQuery;
 import net.researchgate.restdsl.queries.ServiceQueryParams;
+import net.researchgate.restdsl.queries.ServiceQueryParamsImpl;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
 import org.glassfish.jersey.internal.util.collection.ImmutableMultivaluedMap;
 import org.glassfish.jersey.uri.UriComponent;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.UriInfo;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
 
 public class RequestUtilTest {
 
@@ -103,6 +111,95 @@ public class RequestUtilTest {
         Assert.assertEquals(Lists.newArrayList(1L, 2L, 3L), result.getIdList());
     }
 
+    @Test
+    public void testParseRequest_maxTimeHeader_cappedByParams() {
+        ServiceQueryParams params = ServiceQueryParamsImpl.builder()
+                .defaultFields(new HashSet<>(Set.of("*")))
+                .maxTime(Duration.ofSeconds(2))
+                .build();
+
+        Assert.assertEquals(Duration.ofSeconds(2), parseWithMaxTimeHeader(null, params).getMaxTime());
+        Assert.assertEquals(Duration.ofMillis(500), parseWithMaxTimeHeader("500", params).getMaxTime());
+        Assert.assertEquals(Duration.ofSeconds(2), parseWithMaxTimeHeader("60000", params).getMaxTime());
+        Assert.assertEquals(Duration.ofMillis(500), parseWithMaxTimeHeader("500", ServiceQueryParams.DEFAULT_QUERY_PARAMS).getMaxTime());
+        Assert.assertNull(parseWithMaxTimeHeader(null, ServiceQueryParams.DEFAULT_QUERY_PARAMS).getMaxTime());
+    }
+
+    @Test(expected = RestDslException.class)
+    public void testParseRequest_invalidMaxTimeHeader_throwException() {
+        parseWithMaxTimeHeader("soon", ServiceQueryParams.DEFAULT_QUERY_PARAMS);
+    }
+
+    @Test
+    public void testParseRequest_consistencyTokenHeader_roundTrip() {
+        ConsistencyToken token = new ConsistencyToken(new BsonTimestamp(1700000000, 7),
+                new BsonDocument("clusterTime", new BsonTimestamp(1700000000, 9)));
+
+        ServiceQuery<Long> query = parseWithHeader(RequestUtil.CONSISTENCY_TOKEN_HEADER, token.encode());
+
+        Assert.assertEquals(token, query.getConsistencyToken());
+        Assert.assertNull(parseWithHeader(RequestUtil.CONSISTENCY_TOKEN_HEADER, null).getConsistencyToken());
+    }
+
+    @Test(expected = RestDslException.class)
+    public void testParseRequest_invalidConsistencyTokenHeader_throwException() {
+        parseWithHeader(RequestUtil.CONSISTENCY_TOKEN_HEADER, "not-a-token");
+    }
+
+    @Test
+    public void testConsistencyToken_lastWriteKeepsLatest() {
+        ConsistencyToken earlier = new ConsistencyToken(new BsonTimestamp(1700000000, 1), null);
+        ConsistencyToken later = new ConsistencyToken(new BsonTimestamp(1700000000, 2), null);
+
+        ConsistencyToken.setLastWrite(later);
+        ConsistencyToken.setLastWrite(earlier);
+
+        Assert.assertEquals(later, ConsistencyToken.takeLastWrite());
+        Assert.assertNull(ConsistencyToken.takeLastWrite());
+    }
+
+    @Test
+    public void testGetExpectedVersion_ifMatchHeader() {
+        Assert.assertEquals(Long.valueOf(3), RequestUtil.getExpectedVersion(headers(HttpHeaders.IF_MATCH, "\"3\"")));
+        Assert.assertEquals(Long.valueOf(3), RequestUtil.getExpectedVersion(headers(HttpHeaders.IF_MATCH, "W/\"3\"")));
+        Assert.assertEquals(Long.valueOf(3), RequestUtil.getExpectedVersion(headers(HttpHeaders.IF_MATCH, "3")));
+        Assert.assertNull(RequestUtil.getExpectedVersion(headers(HttpHeaders.IF_MATCH, null)));
+        Assert.assertNull(RequestUtil.getExpectedVersion(null));
+    }
+
+    @Test(expected = RestDslException.class)
+    public void testGetExpectedVersion_invalidIfMatchHeader_throwException() {
+        RequestUtil.getExpectedVersion(headers(HttpHeaders.IF_MATCH, "*"));
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        HttpHeaders headers = Mockito.mock(HttpHeaders.class);
+        Mockito.when(headers.getHeaderString(name)).thenReturn(value);
+        return headers;
+    }
+
+    private static ServiceQuery<Long> parseWithHeader(String name, String value) {
+        UriInfo emptyUriInfo = Mockito.mock(UriInfo.class);
+        Mockito.when(emptyUriInfo.getQueryParameters()).thenReturn(ImmutableMultivaluedMap.empty());
+        HttpHeaders headers = Mockito.mock(HttpHeaders.class);
+        Mockito.when(headers.getHeaderString(name)).thenReturn(value);
+
+        PathSegment pathSegment = UriComponent.decodePath("-", true).get(0);
+        return RequestUtil.parseRequest(TestEntity.class, Long.class, pathSegment, emptyUriInfo, headers,
+                ServiceQueryParams.DEFAULT_QUERY_PARAMS, new GenericFieldMapper());
+    }
+
+    private static ServiceQuery<Long> parseWithMaxTimeHeader(String maxTimeMs, ServiceQueryParams params) {
+        UriInfo emptyUriInfo = Mockito.mock(UriInfo.class);
+        Mockito.when(emptyUriInfo.getQueryParameters()).thenReturn(ImmutableMultivaluedMap.empty());
+        HttpHeaders headers = Mockito.mock(HttpHeaders.class);
+        Mockito.when(headers.getHeaderString(RequestUtil.MAX_TIME_HEADER)).thenReturn(maxTimeMs);
+
+        PathSegment pathSegment = UriComponent.decodePath("-", true).get(0);
+        return RequestUtil.parseRequest(TestEntity.class, Long.class, pathSegment, emptyUriInfo, headers,
+                params, new GenericFieldMapper());
+    }
+
     private static ServiceQuery<Long> parseSimplePathSegment(String clientQuery) {
         UriInfo emptyUriInfo = Mockito.mock(UriInfo.class);
         Mockito.when(emptyUriInfo.getQueryParameters()).thenReturn(ImmutableMultivaluedMap.empty());
@@ -1,11 +1,21 @@
 package net.researchgate.restdsl.util;
 
+import net.researchgate.restdsl.dao.GenericFieldMapper;
 import net.researchgate.restdsl.entities.Account;
+import net.researchgate.restdsl.entities.TestEntity;
 import net.researchgate.restdsl.exceptions.RestDslException;
+import net.researchgate.restdsl.queries.ServiceQueryReservedValue;
+import net.researchgate.restdsl.types.FieldPath;
+import net.researchgate.restdsl.types.FieldPathRegistry;
 import net.researchgate.restdsl.types.TypeInfoUtil;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -25,4 +35,42 @@ public class TypeInfoUtilTest {
         }
 
     }
+
+    @Test
+    public void testFieldPath_resolvedOnceWithBoundConverter() {
+        FieldPathRegistry registry = new GenericFieldMapper().getFieldPaths(TestEntity.class);
+
+        FieldPath fieldPath = registry.resolve("stringList");
+
+        assertSame(fieldPath, registry.resolve("stringList"));
+        assertEquals(String.class, fieldPath.getType());
+        assertEquals(TestEntity.class, fieldPath.getParentType());
+        assertTrue(fieldPath.isList());
+        assertEquals("stringList", fieldPath.getMongoPath());
+        assertEquals("a", fieldPath.convert("a"));
+        assertNull(fieldPath.convert("$null"));
+        assertEquals(ServiceQueryReservedValue.EXISTS, fieldPath.convert("$exists"));
+
+        FieldPath enumPath = registry.resolve("enumField");
+        assertFalse(enumPath.isList());
+        assertEquals(TestEntity.TestEnum.enum2, enumPath.convert("enum2"));
+    }
+
+    @Test
+    public void testFieldPath_registryPerMapper() {
+        GenericFieldMapper mapper = new GenericFieldMapper();
+
+        assertSame(mapper.getFieldPaths(TestEntity.class), mapper.getFieldPaths(TestEntity.class));
+        assertNotSame(mapper.getFieldPaths(TestEntity.class), new GenericFieldMapper().getFieldPaths(TestEntity.class));
+    }
+
+    @Test
+    public void testFieldPath_unknownField_throws() {
+        try {
+            new GenericFieldMapper().getFieldPaths(TestEntity.class).resolve("missing");
+            fail();
+        } catch (RestDslException e) {
+            assertEquals(RestDslException.Type.ENTITY_ERROR, e.getType());
+        }
+    }
 }
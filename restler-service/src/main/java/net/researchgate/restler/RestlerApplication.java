@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import io.dropwizard.core.Application;
 import io.dropwizard.core.setup.Bootstrap;
+import io.dropwizard.core.server.AbstractServerFactory;
 import io.dropwizard.core.setup.Environment;
 import net.researchgate.restler.service.config.RestlerConfig;
 import net.researchgate.restler.service.modules.RestlerServiceModule;
@@ -47,6 +48,21 @@ public class RestlerApplication extends Application<RestlerConfig> {
     @Override
     public void run(RestlerConfig configuration, Environment environment) throws Exception {
         environment.jersey().getResourceConfig().property(ServerProperties.WADL_FEATURE_DISABLE, false);
+        if (configuration.execution.isVirtualThreads()) {
+            enableVirtualThreads(configuration);
+        }
+    }
+
+    // the server is built from its factory after run(), so requests of the built server run on virtual threads
+    private static void enableVirtualThreads(RestlerConfig configuration) {
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("execution.virtualThreads requires Java 21, but runs on " + Runtime.version());
+        }
+        if (!(configuration.getServerFactory() instanceof AbstractServerFactory)) {
+            throw new IllegalStateException("execution.virtualThreads is not supported by server factory "
+                    + configuration.getServerFactory().getClass().getName());
+        }
+        ((AbstractServerFactory) configuration.getServerFactory()).setEnableVirtualThreads(true);
     }
 
     // MAIN ENTRY POINT
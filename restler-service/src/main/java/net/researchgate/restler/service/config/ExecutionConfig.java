@@ -0,0 +1,42 @@
+package net.researchgate.restler.service.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import net.researchgate.restdsl.dao.QueryFanOutExecutor;
+
+import javax.validation.constraints.Min;
+import java.util.concurrent.Executors;
+
+/**
+ * How requests and the queries they fan out into are executed
+ */
+public class ExecutionConfig {
+
+    /**
+     * Run requests on virtual threads instead of Jetty's platform thread pool, and every query of a fan-out,
+     * e.g. per groupBy key, on a virtual thread of its own. Requires Java 21.
+     */
+    @JsonProperty
+    private boolean virtualThreads = false;
+
+    /**
+     * Maximum number of queries a single fan-out runs at the same time
+     */
+    @Min(1)
+    @JsonProperty
+    private int fanOutParallelism = 8;
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getFanOutParallelism() {
+        return fanOutParallelism;
+    }
+
+    public QueryFanOutExecutor buildFanOutExecutor() {
+        if (virtualThreads) {
+            return new QueryFanOutExecutor(Executors.newVirtualThreadPerTaskExecutor(), fanOutParallelism);
+        }
+        return QueryFanOutExecutor.withParallelism(fanOutParallelism);
+    }
+}
@@ -13,4 +13,8 @@ public class RestlerConfig extends Configuration {
     @JsonProperty
     @Valid
     public MongoClientBuilder mongoConfig;
+
+    @JsonProperty
+    @Valid
+    public ExecutionConfig execution = new ExecutionConfig();
 }
@@ -6,6 +6,7 @@ import dev.morphia.Datastore;
 import dev.morphia.query.updates.UpdateOperator;
 import dev.morphia.query.updates.UpdateOperators;
 import net.researchgate.restdsl.dao.MongoServiceDao;
+import net.researchgate.restdsl.dao.QueryFanOutExecutor;
 import net.researchgate.restdsl.exceptions.RestDslException;
 import net.researchgate.restdsl.queries.ServiceQuery;
 import net.researchgate.restler.domain.Account;
@@ -30,8 +31,9 @@ public class AccountDao extends MongoServiceDao<Account, ObjectId> {
     private HttpHeaders headers;
 
     @Inject
-    public AccountDao(Datastore datastore) {
+    public AccountDao(Datastore datastore, QueryFanOutExecutor fanOutExecutor) {
         super(datastore, Account.class);
+        setFanOutExecutor(fanOutExecutor);
     }
 
     @Override
@@ -3,6 +3,7 @@ package net.researchgate.restler.service.dao;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import net.researchgate.restdsl.dao.MongoServiceDao;
+import net.researchgate.restdsl.dao.QueryFanOutExecutor;
 import net.researchgate.restler.domain.Publication;
 import dev.morphia.Datastore;
 import org.slf4j.Logger;
@@ -20,8 +21,9 @@ public class PublicationDao extends MongoServiceDao<Publication, Long> {
     private HttpHeaders headers;
 
     @Inject
-    public PublicationDao(Datastore datastore) {
+    public PublicationDao(Datastore datastore, QueryFanOutExecutor fanOutExecutor) {
         super(datastore, Publication.class);
+        setFanOutExecutor(fanOutExecutor);
     }
 
     @Override
@@ -99,6 +99,12 @@ public class ServiceExceptionMapper implements ExceptionMapper<Throwable> {
             return Status.CONFLICT;
         } else if (type == RestDslException.Type.QUERY_ERROR) {
             return Status.BAD_REQUEST;
+        } else if (type == RestDslException.Type.TIMEOUT) {
+            return Status.GATEWAY_TIMEOUT;
+        } else if (type == RestDslException.Type.CONFLICT) {
+            // a failed If-Match precondition, otherwise a version sent with the entity did not match
+            return headers != null && headers.getHeaderString(HttpHeaders.IF_MATCH) != null
+                    ? Status.PRECONDITION_FAILED : Status.CONFLICT;
         } else {
             return Status.INTERNAL_SERVER_ERROR;
         }
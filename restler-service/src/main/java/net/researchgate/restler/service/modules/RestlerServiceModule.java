@@ -3,8 +3,10 @@ package net.researchgate.restler.service.modules;
 import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Binder;
 import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
+import net.researchgate.restdsl.dao.QueryFanOutExecutor;
 import net.researchgate.restler.service.config.RestlerConfig;
 import net.researchgate.restler.service.dao.AccountDao;
 import net.researchgate.restler.service.dao.ExternalPublicationDao;
@@ -63,4 +65,10 @@ public class RestlerServiceModule extends DropwizardAwareModule<RestlerConfig> {
         return configuration().mongoConfig;
     }
 
+    @Provides
+    @Singleton
+    QueryFanOutExecutor getFanOutExecutor() {
+        return configuration().execution.buildFanOutExecutor();
+    }
+
 }
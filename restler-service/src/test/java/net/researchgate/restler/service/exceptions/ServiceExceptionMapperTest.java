@@ -0,0 +1,50 @@
+package net.researchgate.restler.service.exceptions;
+
+import net.researchgate.restdsl.exceptions.RestDslException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ServiceExceptionMapperTest {
+
+    @Mock
+    private HttpHeaders headers;
+
+    @Mock
+    private UriInfo uriInfo;
+
+    @InjectMocks
+    private ServiceExceptionMapper mapper;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        Mockito.when(uriInfo.getRequestUri()).thenReturn(URI.create("/entities/1"));
+    }
+
+    @Test
+    public void testConflict_withIfMatch_preconditionFailed() {
+        Mockito.when(headers.getHeaderString(HttpHeaders.IF_MATCH)).thenReturn("\"3\"");
+
+        Response response = mapper.toResponse(new RestDslException("Stale version", RestDslException.Type.CONFLICT));
+
+        assertEquals(Response.Status.PRECONDITION_FAILED.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void testConflict_withVersionInBody_conflict() {
+        Response response = mapper.toResponse(new RestDslException("Stale version", RestDslException.Type.CONFLICT));
+
+        assertEquals(Response.Status.CONFLICT.getStatusCode(), response.getStatus());
+    }
+}